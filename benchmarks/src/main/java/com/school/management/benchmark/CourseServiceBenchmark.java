@@ -0,0 +1,52 @@
+package com.school.management.benchmark;
+
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.StudentCourseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CourseServiceBenchmark {
+
+	/**
+	 * Alternates the roster of the benchmark course between two disjoint sets of students,
+	 * so every call removes and adds enrollments.
+	 */
+	@State(Scope.Thread)
+	public static class Roster {
+		boolean flip;
+	}
+
+	@Benchmark
+	public List<CourseDto> listAllCourses(SchoolState state) {
+		return state.courseService.getCourses(new ListFilter()).getContent();
+	}
+
+	@Benchmark
+	public List<CourseDto> coursesByStudent(SchoolState state) {
+		return state.courseService.getCoursesByStudent(state.studentIds.get(0));
+	}
+
+	@Benchmark
+	public List<StudentCourseDto> replaceStudents(SchoolState state, Roster roster) {
+		roster.flip = !roster.flip;
+		int size = state.studentIds.size();
+		List<Long> studentIds = roster.flip ? state.studentIds.subList(size - 20, size - 10) : state.studentIds.subList(size - 10, size);
+		return state.courseService.updateCourseStudents(state.courseIds.get(state.courseIds.size() - 1), studentIds, null);
+	}
+}
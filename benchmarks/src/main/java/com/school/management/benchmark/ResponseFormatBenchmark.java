@@ -0,0 +1,151 @@
+package com.school.management.benchmark;
+
+import com.school.management.SchoolApplication;
+import com.school.management.model.Course;
+import com.school.management.model.Student;
+import com.school.management.model.StudentCourseView;
+import com.school.management.model.dto.StudentDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding time of the listing bodies with each response format, using the message converters of the running
+ * application (ex: -p format=application/json,application/cbor -p rows=10000). The size of each encoding, plain and
+ * gzipped, is printed at the start of the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+	private static final Type STUDENTS = new ParameterizedTypeReference<List<StudentDto>>() {
+	}.getType();
+	private static final Type RELATIONS = new ParameterizedTypeReference<List<StudentCourseView>>() {
+	}.getType();
+
+	@State(Scope.Benchmark)
+	public static class Bodies {
+
+		@Param({"application/json", "application/cbor", "application/x-jackson-smile", "application/avro"})
+		public String format;
+
+		@Param("1000")
+		public int rows;
+
+		ConfigurableApplicationContext context;
+		MediaType mediaType;
+		GenericHttpMessageConverter<Object> converter;
+		List<StudentDto> students;
+		List<StudentCourseView> relations;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			context = new SpringApplicationBuilder(SchoolApplication.class)
+				.profiles("benchmark")
+				.run("--server.port=0");
+			mediaType = MediaType.parseMediaType(format);
+			converter = converterOf(context.getBean(RequestMappingHandlerAdapter.class).getMessageConverters(), mediaType);
+
+			Timestamp ts = Timestamp.from(Instant.now());
+			students = new ArrayList<>(rows);
+			relations = new ArrayList<>(rows);
+			for (int i = 0; i < rows; i++) {
+				students.add(new StudentDto((long) i + 1, "Student " + i, "Address " + i, ts, ts));
+				Student student = new Student((long) i + 1);
+				student.setName("Student " + i);
+				Course course = new Course((long) i % 100 + 1);
+				course.setName("Course " + i % 100);
+				relations.add(new StudentCourseView(student, course));
+			}
+
+			byte[] studentsBody = encode(this, students, STUDENTS).toByteArray();
+			byte[] relationsBody = encode(this, relations, RELATIONS).toByteArray();
+			System.out.printf("%n%s, %d rows: students %d bytes (%d gzipped), relationships %d bytes (%d gzipped)%n",
+				format, rows, studentsBody.length, gzipped(studentsBody), relationsBody.length, gzipped(relationsBody));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			context.close();
+		}
+
+		@SuppressWarnings("unchecked")
+		private static GenericHttpMessageConverter<Object> converterOf(List<HttpMessageConverter<?>> converters, MediaType mediaType) {
+			for (HttpMessageConverter<?> converter : converters) {
+				if (converter instanceof GenericHttpMessageConverter && ((GenericHttpMessageConverter<?>) converter).canWrite(STUDENTS, List.class, mediaType)) {
+					return (GenericHttpMessageConverter<Object>) converter;
+				}
+			}
+			throw new IllegalArgumentException("No converter for " + mediaType);
+		}
+
+		private static int gzipped(byte[] body) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(body);
+			}
+			return out.size();
+		}
+	}
+
+	@Benchmark
+	public int encodeStudents(Bodies bodies) throws IOException {
+		return encode(bodies, bodies.students, STUDENTS).size();
+	}
+
+	@Benchmark
+	public int encodeRelationships(Bodies bodies) throws IOException {
+		return encode(bodies, bodies.relations, RELATIONS).size();
+	}
+
+	private static ByteArrayOutputStream encode(Bodies bodies, Object body, Type type) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		bodies.converter.write(body, type, bodies.mediaType, new HttpOutputMessage() {
+			private final HttpHeaders headers = new HttpHeaders();
+
+			@Override
+			public OutputStream getBody() {
+				return out;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		});
+		return out;
+	}
+}
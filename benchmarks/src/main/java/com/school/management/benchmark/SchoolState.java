@@ -0,0 +1,101 @@
+package com.school.management.benchmark;
+
+import com.school.management.SchoolApplication;
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.StudentService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The application (without the web server) running against an embedded H2 database in MySQL mode,
+ * seeded with a dataset of configurable size (ex: -p students=100000 -p courses=1000).
+ * <p>
+ * Student i is enrolled in coursesPerStudent consecutive courses starting at course (i mod courses).
+ * The last course has a capacity of one and is full, for the validation benchmarks.
+ * The read caches are disabled.
+ */
+@State(Scope.Benchmark)
+public class SchoolState {
+
+	@Param("1000")
+	public int students;
+
+	@Param("100")
+	public int courses;
+
+	@Param("3")
+	public int coursesPerStudent;
+
+	ConfigurableApplicationContext context;
+	StudentService studentService;
+	CourseService courseService;
+
+	List<Long> studentIds;
+	List<Long> courseIds;
+	Long fullCourseId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(SchoolApplication.class)
+			.web(WebApplicationType.NONE)
+			.profiles("benchmark")
+			//measure the database path of the cached lookups (a zero time-to-live disables the read caches)
+			.run("--school.cache.time-to-live=0s");
+		studentService = context.getBean(StudentService.class);
+		courseService = context.getBean(CourseService.class);
+		ImportService importService = context.getBean(ImportService.class);
+
+		StringBuilder csv = new StringBuilder("name,address\n");
+		for (int i = 0; i < students; i++) {
+			csv.append("Student ").append(i).append(",Address ").append(i).append('\n');
+		}
+		importService.importStudents(input(csv), ImportService.TEXT_CSV);
+
+		csv = new StringBuilder("name,capacity\n");
+		for (int i = 0; i < courses; i++) {
+			csv.append("Course ").append(i).append(',').append(students).append('\n');
+		}
+		csv.append("Full course,1\n");
+		importService.importCourses(input(csv), ImportService.TEXT_CSV);
+
+		studentIds = studentService.getStudents(new ListFilter()).getContent().stream().map(StudentDto::getId).collect(Collectors.toList());
+		List<Long> allCourseIds = courseService.getCourses(new ListFilter()).getContent().stream().map(CourseDto::getId).collect(Collectors.toList());
+		courseIds = allCourseIds.subList(0, courses);
+		fullCourseId = allCourseIds.get(courses);
+
+		for (int i = 0; i < studentIds.size(); i++) {
+			List<Long> enrolled = new ArrayList<>(coursesPerStudent);
+			for (int j = 0; j < coursesPerStudent; j++) {
+				enrolled.add(courseIds.get((i + j) % courses));
+			}
+			studentService.updateStudentCourses(studentIds.get(i), enrolled, null);
+		}
+		courseService.updateCourseStudents(fullCourseId, List.of(studentIds.get(studentIds.size() / 2)), null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	private static ByteArrayInputStream input(CharSequence content) {
+		return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,67 @@
+package com.school.management.benchmark;
+
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentCourseDto;
+import com.school.management.model.dto.StudentDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+	/**
+	 * Alternates the roster of the benchmark student between two disjoint sets of courses,
+	 * so every call removes and adds enrollments.
+	 */
+	@State(Scope.Thread)
+	public static class Roster {
+		boolean flip;
+	}
+
+	@Benchmark
+	public List<StudentDto> listAllStudents(SchoolState state) {
+		return state.studentService.getStudents(new ListFilter()).getContent();
+	}
+
+	@Benchmark
+	public PageDto<StudentDto> listStudentsPage(SchoolState state) {
+		return state.studentService.getStudents(new ListFilter(state.studentIds.get(state.studentIds.size() / 2), 100, null, null, null));
+	}
+
+	@Benchmark
+	public List<StudentDto> studentsByCourse(SchoolState state) {
+		return state.studentService.getStudentsByCourse(state.courseIds.get(0));
+	}
+
+	@Benchmark
+	public List<StudentCourseDto> replaceCourses(SchoolState state, Roster roster) {
+		roster.flip = !roster.flip;
+		List<Long> courseIds = roster.flip ? state.courseIds.subList(0, 2) : state.courseIds.subList(2, 4);
+		return state.studentService.updateStudentCourses(state.studentIds.get(0), courseIds, null);
+	}
+
+	@Benchmark
+	public Object rejectFullCourse(SchoolState state) {
+		try {
+			return state.studentService.updateStudentCourses(state.studentIds.get(1), List.of(state.courseIds.get(0), state.fullCourseId), null);
+		} catch (ResponseStatusException e) {
+			return e.getStatus();
+		}
+	}
+}
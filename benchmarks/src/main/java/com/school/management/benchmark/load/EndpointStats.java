@@ -0,0 +1,61 @@
+package com.school.management.benchmark.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram (microseconds, 3 significant digits) and response status counts of one endpoint.
+ */
+class EndpointStats {
+
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+	private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+	void record(long nanos, int status) {
+		latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+		statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+	}
+
+	void reset() {
+		latency.reset();
+		statuses.clear();
+	}
+
+	/**
+	 * @param seconds = the measured period, to compute the throughput.
+	 * @return the request count, throughput, status counts and latency percentiles (microseconds).
+	 */
+	Map<String, Object> summary(double seconds) {
+		Map<String, Object> summary = new TreeMap<>();
+		long count = latency.getTotalCount();
+		summary.put("requests", count);
+		summary.put("throughput", count / seconds);
+
+		Map<Integer, Long> statusCounts = new TreeMap<>();
+		statuses.forEach((status, adder) -> statusCounts.put(status, adder.sum()));
+		summary.put("statuses", statusCounts);
+
+		Map<String, Object> percentiles = new TreeMap<>();
+		percentiles.put("mean", latency.getMean());
+		percentiles.put("p50", latency.getValueAtPercentile(50));
+		percentiles.put("p90", latency.getValueAtPercentile(90));
+		percentiles.put("p95", latency.getValueAtPercentile(95));
+		percentiles.put("p99", latency.getValueAtPercentile(99));
+		percentiles.put("p999", latency.getValueAtPercentile(99.9));
+		percentiles.put("max", latency.getMaxValue());
+		summary.put("latencyMicros", percentiles);
+		return summary;
+	}
+
+	Histogram histogram() {
+		return latency;
+	}
+}
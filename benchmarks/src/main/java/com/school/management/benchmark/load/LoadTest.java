@@ -0,0 +1,292 @@
+package com.school.management.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.school.management.SchoolApplication;
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.StudentService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Registration-day load test: boots the application on a random port against the embedded H2 database
+ * (profile "benchmark"), seeds students and courses, and drives a weighted mix of requests from closed-loop virtual
+ * users. Latencies are recorded per endpoint in HdrHistograms and written as a JSON report.
+ * <p>
+ * Options (system properties):
+ * - load.users = number of virtual users (default: 50).
+ * - load.warmup / load.duration = seconds of warm-up (not reported) and of measurement (default: 10 / 60).
+ * - load.students / load.courses / load.capacity = seeded dataset (default: 10000 / 200 / 50).
+ * - load.mix = operation weights (default: get-student=40,course-students=15,list-students=10,enroll=30,create-students=5).
+ * The reactive-course-students and reactive-list-students operations call the non-blocking read path: when one of
+ * them has a weight, the application also runs with the profile "reactive", on the same database.
+ * - load.think-time = milliseconds each user waits between requests (default: 0).
+ * - load.report = path of the JSON report (default: target/load-report.json).
+ * <p>
+ * Ex: mvn -f benchmarks/pom.xml package exec:java@load -Dload.users=200 -Dload.duration=120
+ * Blocking vs non-blocking listings: -Dload.mix=list-students=25,reactive-list-students=25,enroll=50
+ */
+public class LoadTest {
+
+	enum Operation {
+		GET_STUDENT("get-student", "GET /students/{id}"),
+		COURSE_STUDENTS("course-students", "GET /courses/{id}/students"),
+		LIST_STUDENTS("list-students", "GET /students/?cursor&limit=100"),
+		REACTIVE_COURSE_STUDENTS("reactive-course-students", "GET /reactive/courses/{id}/students"),
+		REACTIVE_LIST_STUDENTS("reactive-list-students", "GET /reactive/students/?cursor&limit=100"),
+		ENROLL("enroll", "PUT /students/{id}/courses"),
+		CREATE_STUDENTS("create-students", "POST /students/");
+
+		final String key;
+		final String endpoint;
+		final boolean reactive;
+
+		Operation(String key, String endpoint) {
+			this.key = key;
+			this.endpoint = endpoint;
+			this.reactive = endpoint.startsWith("GET /reactive/");
+		}
+	}
+
+	private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	private final String baseUrl;
+	private final List<Long> studentIds;
+	private final List<Long> courseIds;
+	private final Operation[] weightedOperations;
+	private final long thinkTimeMillis;
+	private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+	private volatile boolean running = true;
+
+	LoadTest(String baseUrl, List<Long> studentIds, List<Long> courseIds, Map<Operation, Integer> mix, long thinkTimeMillis) {
+		this.baseUrl = baseUrl;
+		this.studentIds = studentIds;
+		this.courseIds = courseIds;
+		this.thinkTimeMillis = thinkTimeMillis;
+
+		List<Operation> weighted = new ArrayList<>();
+		mix.forEach((operation, weight) -> {
+			for (int i = 0; i < weight; i++) {
+				weighted.add(operation);
+			}
+		});
+		this.weightedOperations = weighted.toArray(new Operation[0]);
+		for (Operation operation : Operation.values()) {
+			stats.put(operation, new EndpointStats());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int users = Integer.getInteger("load.users", 50);
+		int warmup = Integer.getInteger("load.warmup", 10);
+		int duration = Integer.getInteger("load.duration", 60);
+		int students = Integer.getInteger("load.students", 10000);
+		int courses = Integer.getInteger("load.courses", 200);
+		int capacity = Integer.getInteger("load.capacity", 50);
+		Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix", "get-student=40,course-students=15,list-students=10,enroll=30,create-students=5"));
+		long thinkTime = Long.getLong("load.think-time", 0);
+		File reportFile = new File(System.getProperty("load.report", "target/load-report.json"));
+
+		//"benchmark" last, so its embedded database wins over the R2DBC url of "reactive"
+		boolean reactive = mix.entrySet().stream().anyMatch(e -> e.getKey().reactive && e.getValue() > 0);
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(SchoolApplication.class)
+			.profiles(reactive ? new String[]{"reactive", "benchmark"} : new String[]{"benchmark"})
+			.run("--server.port=0");
+		try {
+			ImportService importService = context.getBean(ImportService.class);
+			StringBuilder csv = new StringBuilder("name,address\n");
+			for (int i = 0; i < students; i++) {
+				csv.append("Student ").append(i).append(",Address ").append(i).append('\n');
+			}
+			importService.importStudents(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ImportService.TEXT_CSV);
+			csv = new StringBuilder("name,capacity\n");
+			for (int i = 0; i < courses; i++) {
+				csv.append("Course ").append(i).append(',').append(capacity).append('\n');
+			}
+			importService.importCourses(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ImportService.TEXT_CSV);
+
+			List<Long> studentIds = context.getBean(StudentService.class).getStudents(new ListFilter()).getContent().stream()
+				.map(StudentDto::getId).collect(Collectors.toList());
+			List<Long> courseIds = context.getBean(CourseService.class).getCourses(new ListFilter()).getContent().stream()
+				.map(CourseDto::getId).collect(Collectors.toList());
+
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			LoadTest test = new LoadTest("http://localhost:" + port, studentIds, courseIds, mix, thinkTime);
+			Map<String, Object> report = test.run(users, warmup, duration);
+
+			Map<String, Object> configuration = new LinkedHashMap<>();
+			configuration.put("users", users);
+			configuration.put("warmupSeconds", warmup);
+			configuration.put("durationSeconds", duration);
+			configuration.put("students", students);
+			configuration.put("courses", courses);
+			configuration.put("capacity", capacity);
+			configuration.put("mix", mix.entrySet().stream().collect(Collectors.toMap(e -> e.getKey().key, Map.Entry::getValue, (a, b) -> a, TreeMap::new)));
+			configuration.put("thinkTimeMillis", thinkTime);
+			report.put("configuration", configuration);
+
+			reportFile.getAbsoluteFile().getParentFile().mkdirs();
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+			System.out.println("Report written to " + reportFile.getAbsolutePath());
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * @return the report: per endpoint (and in total) the request count, throughput, status counts and latency percentiles.
+	 */
+	Map<String, Object> run(int users, int warmupSeconds, int durationSeconds) throws InterruptedException {
+		List<Thread> threads = new ArrayList<>(users);
+		for (int i = 0; i < users; i++) {
+			Thread thread = new Thread(this::virtualUser, "virtual-user-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+
+		Thread.sleep(warmupSeconds * 1000L);
+		stats.values().forEach(EndpointStats::reset);
+		long start = System.nanoTime();
+		Thread.sleep(durationSeconds * 1000L);
+		running = false;
+		double seconds = (System.nanoTime() - start) / 1e9;
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Map<String, Object> endpoints = new TreeMap<>();
+		Histogram total = new Histogram(3);
+		stats.forEach((operation, endpointStats) -> {
+			if (endpointStats.histogram().getTotalCount() > 0) {
+				endpoints.put(operation.endpoint, endpointStats.summary(seconds));
+				total.add(endpointStats.histogram());
+			}
+		});
+		System.out.printf("%-32s %10s %10s %10s %10s %10s%n", "endpoint", "req/s", "p50 (us)", "p99 (us)", "p999 (us)", "max (us)");
+		stats.forEach((operation, endpointStats) -> {
+			Histogram histogram = endpointStats.histogram();
+			System.out.printf("%-32s %10.1f %10d %10d %10d %10d%n", operation.endpoint, histogram.getTotalCount() / seconds,
+				histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+		});
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("measuredSeconds", seconds);
+		report.put("requests", total.getTotalCount());
+		report.put("throughput", total.getTotalCount() / seconds);
+		report.put("endpoints", endpoints);
+		return report;
+	}
+
+	private void virtualUser() {
+		Random random = ThreadLocalRandom.current();
+		while (running) {
+			Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+			HttpRequest request = request(operation, random);
+			long start = System.nanoTime();
+			int status;
+			try {
+				status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+			} catch (IOException e) {
+				//connection failures are reported with status 0
+				status = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			stats.get(operation).record(System.nanoTime() - start, status);
+
+			if (thinkTimeMillis > 0) {
+				try {
+					Thread.sleep(thinkTimeMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private HttpRequest request(Operation operation, Random random) {
+		switch (operation) {
+			case GET_STUDENT:
+				return get("/students/" + randomId(studentIds, random));
+			case COURSE_STUDENTS:
+				return get("/courses/" + randomId(courseIds, random) + "/students");
+			case LIST_STUDENTS:
+				return get("/students/?limit=100&cursor=" + randomId(studentIds, random));
+			case REACTIVE_COURSE_STUDENTS:
+				return get("/reactive/courses/" + randomId(courseIds, random) + "/students");
+			case REACTIVE_LIST_STUDENTS:
+				return get("/reactive/students/?limit=100&cursor=" + randomId(studentIds, random));
+			case ENROLL:
+				List<Long> courses = random.ints(0, courseIds.size()).distinct().limit(1 + random.nextInt(5))
+					.mapToObj(courseIds::get).collect(Collectors.toList());
+				return json("/students/" + randomId(studentIds, random) + "/courses", "PUT", courses.toString());
+			case CREATE_STUDENTS:
+				StringBuilder body = new StringBuilder("[");
+				for (int i = 0; i < 50; i++) {
+					body.append(i == 0 ? "" : ",").append("{\"name\":\"New student\",\"address\":\"Address ").append(random.nextInt()).append("\"}");
+				}
+				return json("/students/", "POST", body.append(']').toString());
+			default:
+				throw new IllegalArgumentException(operation.name());
+		}
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+	}
+
+	private HttpRequest json(String path, String method, String body) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path))
+			.header("Content-Type", "application/json")
+			.method(method, HttpRequest.BodyPublishers.ofString(body))
+			.build();
+	}
+
+	private static long randomId(List<Long> ids, Random random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] keyValue = entry.split("=");
+			Operation operation = null;
+			for (Operation candidate : Operation.values()) {
+				if (candidate.key.equals(keyValue[0].trim())) {
+					operation = candidate;
+				}
+			}
+			if (operation == null || keyValue.length != 2) {
+				throw new IllegalArgumentException("Invalid load.mix entry: " + entry);
+			}
+			weights.put(operation, Integer.parseInt(keyValue[1].trim()));
+		}
+		return weights;
+	}
+}
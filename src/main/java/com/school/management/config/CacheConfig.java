@@ -0,0 +1,38 @@
+package com.school.management.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bounded in-process caches in front of the student and course reads.
+ * Hit, miss and eviction counters are published by the actuator as the cache.* metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+	public static final String STUDENTS = "students";
+	public static final String COURSES = "courses";
+	public static final String COURSES_BY_STUDENT = "coursesByStudent";
+	public static final String STUDENTS_BY_COURSE = "studentsByCourse";
+
+	/**
+	 * Evictions made inside a transaction are applied only after it commits, so a reader can not
+	 * reload the old value between the eviction and the commit.
+	 */
+	@Bean
+	public CacheManager cacheManager(SchoolProperties properties) {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager(STUDENTS, COURSES, COURSES_BY_STUDENT, STUDENTS_BY_COURSE);
+		cacheManager.setCaffeine(Caffeine.newBuilder()
+			.maximumSize(properties.getCache().getMaximumSize())
+			.expireAfterWrite(properties.getCache().getTimeToLive())
+			.recordStats());
+		cacheManager.setAllowNullValues(false);
+		return new TransactionAwareCacheManagerProxy(cacheManager);
+	}
+}
@@ -0,0 +1,100 @@
+package com.school.management.config;
+
+import com.school.management.model.ChangeRecord;
+import com.school.management.model.DataMigration;
+import com.school.management.model.IdGenerator;
+import com.school.management.repository.CourseRepository;
+import com.school.management.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Idempotent data migrations executed at startup, after Hibernate has added the new columns and before the web server
+ * accepts requests. Every step only touches rows that were not migrated yet, so it is a no-op after the first run.
+ */
+@Component
+public class DataMigrationRunner implements SmartInitializingSingleton {
+
+	private static final Logger log = LoggerFactory.getLogger(DataMigrationRunner.class);
+
+	private static final String ENROLLMENT_READ_TABLE = "student_course_view";
+
+	private final CourseRepository courseRepository;
+	private final StudentRepository studentRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final SchoolProperties properties;
+
+	public DataMigrationRunner(CourseRepository courseRepository, StudentRepository studentRepository, JdbcTemplate jdbcTemplate, SchoolProperties properties) {
+		this.courseRepository = courseRepository;
+		this.studentRepository = studentRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.properties = properties;
+	}
+
+	@Override
+	@Transactional
+	public void afterSingletonsInstantiated() {
+		//seat counters
+		int courses = courseRepository.initializeCapacity(properties.getEnrollment().getDefaultCapacity());
+		courseRepository.initializeEnrolledCount();
+		int students = studentRepository.initializeCourseCount();
+		if (courses > 0 || students > 0) {
+			log.info("Initialized the seat counters of {} courses and {} students.", courses, students);
+		}
+
+		//optimistic locks
+		int versioned = courseRepository.initializeVersion() + studentRepository.initializeVersion();
+		if (versioned > 0) {
+			log.info("Initialized the version of {} students and courses.", versioned);
+		}
+
+		//enrollment read table: copied once, the marker row is inserted by the same transaction as the copy, so the
+		//anti-join over all the enrollments does not run on every startup
+		if (markApplied(ENROLLMENT_READ_TABLE)) {
+			int enrollments = jdbcTemplate.update("INSERT INTO " + ENROLLMENT_READ_TABLE + " (student_id, course_id, student, course)"
+				+ " SELECT sc.student_id, sc.course_id, s.name, c.name FROM student_course sc"
+				+ " JOIN student s ON s.id = sc.student_id JOIN course c ON c.id = sc.course_id"
+				+ " WHERE NOT EXISTS (SELECT 1 FROM " + ENROLLMENT_READ_TABLE + " scv WHERE scv.student_id = sc.student_id AND scv.course_id = sc.course_id)");
+			log.info("Copied {} enrollments to the enrollment read table.", enrollments);
+		}
+		//the marker of the former versions, which was a row of the id generator table
+		jdbcTemplate.update("DELETE FROM " + IdGenerator.TABLE + " WHERE " + IdGenerator.NAME_COLUMN + " = ?", ENROLLMENT_READ_TABLE);
+
+		//pooled ids: the first block must start after the ids assigned by the former auto-increment columns
+		initializeIdGenerator("student");
+		initializeIdGenerator("course");
+
+		//change feed ids (see ChangeFeed): reserved one transaction at a time, starting after the existing records
+		if (jdbcTemplate.update("INSERT INTO " + IdGenerator.TABLE + " (" + IdGenerator.NAME_COLUMN + ", " + IdGenerator.VALUE_COLUMN + ")"
+			+ " SELECT ?, ids.next_id FROM (SELECT COALESCE(MAX(id), 0) + 1 AS next_id FROM " + ChangeRecord.TABLE + ") ids"
+			+ " WHERE NOT EXISTS (SELECT 1 FROM " + IdGenerator.TABLE + " WHERE " + IdGenerator.NAME_COLUMN + " = ?)", ChangeRecord.TABLE, ChangeRecord.TABLE) > 0) {
+			log.info("Initialized the change feed id generator.");
+		}
+	}
+
+	/**
+	 * @return true when the migration was not applied yet: it must then be applied by the current transaction.
+	 */
+	private boolean markApplied(String migration) {
+		return jdbcTemplate.update("INSERT INTO " + DataMigration.TABLE + " (" + DataMigration.NAME_COLUMN + ", " + DataMigration.APPLIED_AT_COLUMN + ")"
+			+ " SELECT ?, CURRENT_TIMESTAMP FROM (SELECT 1 AS one) marker"
+			+ " WHERE NOT EXISTS (SELECT 1 FROM " + DataMigration.TABLE + " WHERE " + DataMigration.NAME_COLUMN + " = ?)", migration, migration) > 0;
+	}
+
+	private void initializeIdGenerator(String table) {
+		String nextId = "SELECT COALESCE(MAX(id), 0) + " + IdGenerator.ALLOCATION_SIZE + " AS next_id FROM " + table;
+		int rows = jdbcTemplate.update("INSERT INTO " + IdGenerator.TABLE + " (" + IdGenerator.NAME_COLUMN + ", " + IdGenerator.VALUE_COLUMN + ")"
+			+ " SELECT ?, ids.next_id FROM (" + nextId + ") ids"
+			+ " WHERE NOT EXISTS (SELECT 1 FROM " + IdGenerator.TABLE + " WHERE " + IdGenerator.NAME_COLUMN + " = ?)", table, table);
+		//rows inserted by a node still running with auto-increment ids
+		rows += jdbcTemplate.update("UPDATE " + IdGenerator.TABLE + " SET " + IdGenerator.VALUE_COLUMN + " = (" + nextId + ")"
+			+ " WHERE " + IdGenerator.NAME_COLUMN + " = ? AND " + IdGenerator.VALUE_COLUMN + " < (" + nextId + ")", table);
+		if (rows > 0) {
+			log.info("Moved the {} id generator past the existing ids.", table);
+		}
+	}
+}
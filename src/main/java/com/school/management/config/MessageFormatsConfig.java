@@ -0,0 +1,70 @@
+package com.school.management.config;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.school.management.rest.AvroHttpMessageConverter;
+import com.school.management.rest.StreamingBodyHttpMessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Compact binary encodings of the request and response bodies, chosen with the Accept and Content-Type headers:
+ * CBOR (application/cbor), Smile (application/x-jackson-smile) and, for responses only, Avro (application/avro, see
+ * {@link AvroHttpMessageConverter}). JSON stays the first converter, so it is still the default (ex: Accept: *&#47;*).
+ * <p>
+ * CBOR and Smile use the application ObjectMapper settings, except that dates are written as epoch milliseconds.
+ * Every response carries Vary: Accept, since the same URL has several representations (with distinct ETags, see
+ * ResponseFormats).
+ * <p>
+ * The streamed JSON listings are written by {@link StreamingBodyHttpMessageConverter}, ahead of the others.
+ */
+@Configuration
+public class MessageFormatsConfig implements WebMvcConfigurer {
+
+	private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+	public MessageFormatsConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+		this.objectMapperBuilder = objectMapperBuilder;
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		//replaces the converters Spring MVC registers with default settings when the formats are on the classpath
+		converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter || converter instanceof MappingJackson2SmileHttpMessageConverter);
+		converters.add(new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.getObject()
+			.factory(new CBORFactory())
+			.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build()));
+		converters.add(new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.getObject()
+			.factory(new SmileFactory())
+			.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build()));
+		converters.add(new AvroHttpMessageConverter());
+		//only writes StreamingResponseBody, which the Jackson converters would take for an empty bean
+		converters.add(0, new StreamingBodyHttpMessageConverter());
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+				return true;
+			}
+		});
+	}
+}
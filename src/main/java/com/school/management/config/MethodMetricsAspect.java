@@ -0,0 +1,133 @@
+package com.school.management.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times every public method of the controllers and services.
+ * <p>
+ * Meters (tags: layer, class, method):
+ * - school.method.duration: timer, also tagged with the outcome (SUCCESS or ERROR). Percentiles and histogram buckets
+ * are configured with the management.metrics.distribution.* properties.
+ * - school.method.errors: counter, also tagged with the HTTP status of the exception (500 when it is not a
+ * ResponseStatusException) and the exception class.
+ * - school.method.in.flight: gauge of the calls in progress.
+ * <p>
+ * A method returning a Mono or a Flux only assembles the publisher, so its work is timed from the subscription until
+ * the publisher terminates.
+ */
+@Aspect
+@Component
+public class MethodMetricsAspect {
+
+	static final String DURATION = "school.method.duration";
+	static final String ERRORS = "school.method.errors";
+	static final String IN_FLIGHT = "school.method.in.flight";
+
+	private final MeterRegistry registry;
+	private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+	public MethodMetricsAspect(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Around("execution(public * *(..)) && @within(org.springframework.web.bind.annotation.RestController)")
+	public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, "controller");
+	}
+
+	@Around("execution(public * *(..)) && @within(org.springframework.stereotype.Service)")
+	public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, "service");
+	}
+
+	private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		MethodMeters methodMeters = meters.computeIfAbsent(method, m -> new MethodMeters(layer, m));
+
+		methodMeters.inFlight.incrementAndGet();
+		long start = registry.config().clock().monotonicTime();
+		try {
+			Object result = joinPoint.proceed();
+			if (result instanceof Mono) {
+				return time((Mono<?>) result, methodMeters);
+			}
+			if (result instanceof Flux) {
+				return time((Flux<?>) result, methodMeters);
+			}
+			methodMeters.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+			return result;
+		} catch (Throwable e) {
+			recordError(methodMeters, start, e);
+			throw e;
+		} finally {
+			methodMeters.inFlight.decrementAndGet();
+		}
+	}
+
+	private <T> Mono<T> time(Mono<T> mono, MethodMeters methodMeters) {
+		return Mono.defer(() -> {
+			methodMeters.inFlight.incrementAndGet();
+			long start = registry.config().clock().monotonicTime();
+			return mono
+				.doOnSuccess(value -> methodMeters.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS))
+				.doOnError(e -> recordError(methodMeters, start, e))
+				.doFinally(signal -> methodMeters.inFlight.decrementAndGet());
+		});
+	}
+
+	private <T> Flux<T> time(Flux<T> flux, MethodMeters methodMeters) {
+		return Flux.defer(() -> {
+			methodMeters.inFlight.incrementAndGet();
+			long start = registry.config().clock().monotonicTime();
+			return flux
+				.doOnComplete(() -> methodMeters.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS))
+				.doOnError(e -> recordError(methodMeters, start, e))
+				.doFinally(signal -> methodMeters.inFlight.decrementAndGet());
+		});
+	}
+
+	private void recordError(MethodMeters methodMeters, long start, Throwable e) {
+		methodMeters.error.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+		int status = e instanceof ResponseStatusException ? ((ResponseStatusException) e).getStatus().value() : 500;
+		methodMeters.errors.computeIfAbsent(status + " " + e.getClass().getName(), key -> Counter.builder(ERRORS)
+			.tags(methodMeters.tags)
+			.tag("status", String.valueOf(status))
+			.tag("exception", e.getClass().getSimpleName())
+			.register(registry))
+			.increment();
+	}
+
+	private class MethodMeters {
+		final Tags tags;
+		final Timer success;
+		final Timer error;
+		final AtomicInteger inFlight = new AtomicInteger();
+		//"status exception class" --> error counter
+		final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+		MethodMeters(String layer, Method method) {
+			tags = Tags.of("layer", layer, "class", method.getDeclaringClass().getSimpleName(), "method", method.getName());
+			success = Timer.builder(DURATION).tags(tags).tag("outcome", "SUCCESS").register(registry);
+			error = Timer.builder(DURATION).tags(tags).tag("outcome", "ERROR").register(registry);
+			Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get).tags(tags).register(registry);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.school.management.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+
+/**
+ * Profile "reactive": R2DBC connection pool (spring.r2dbc.* properties) of the non-blocking read path.
+ * <p>
+ * The pool is not a ConnectionFactory bean: Spring Boot takes such a bean for a replacement of the JDBC DataSource and
+ * would skip the DataSource (and so the JPA) auto-configuration. For the same reason the R2DBC auto-configurations are
+ * excluded in application.properties.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveConfig implements DisposableBean {
+
+	private ConnectionPool connectionPool;
+
+	@Bean
+	public DatabaseClient databaseClient(R2dbcProperties properties) {
+		ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+		if (StringUtils.hasText(properties.getUsername())) {
+			options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+		}
+		if (StringUtils.hasText(properties.getPassword())) {
+			options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+		}
+		connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+			.initialSize(properties.getPool().getInitialSize())
+			.maxSize(properties.getPool().getMaxSize())
+			.maxIdleTime(properties.getPool().getMaxIdleTime())
+			.build());
+		return DatabaseClient.create(connectionPool);
+	}
+
+	@Override
+	public void destroy() {
+		if (connectionPool != null) {
+			connectionPool.dispose();
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package com.school.management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "school")
+public class SchoolProperties {
+
+	private final Pagination pagination = new Pagination();
+
+	private final Enrollment enrollment = new Enrollment();
+
+	private final Cache cache = new Cache();
+
+	private final BulkImport bulkImport = new BulkImport();
+
+	private final BulkDelete bulkDelete = new BulkDelete();
+
+	private final BulkEnrollment bulkEnrollment = new BulkEnrollment();
+
+	private final Jobs jobs = new Jobs();
+
+	private final OptimisticLocking optimisticLocking = new OptimisticLocking();
+
+	private final EnrollmentIndex enrollmentIndex = new EnrollmentIndex();
+
+	private final Lookup lookup = new Lookup();
+
+	private final Search search = new Search();
+
+	public Pagination getPagination() {
+		return pagination;
+	}
+
+	public Enrollment getEnrollment() {
+		return enrollment;
+	}
+
+	public Cache getCache() {
+		return cache;
+	}
+
+	public BulkImport getBulkImport() {
+		return bulkImport;
+	}
+
+	public BulkDelete getBulkDelete() {
+		return bulkDelete;
+	}
+
+	public BulkEnrollment getBulkEnrollment() {
+		return bulkEnrollment;
+	}
+
+	public Jobs getJobs() {
+		return jobs;
+	}
+
+	public OptimisticLocking getOptimisticLocking() {
+		return optimisticLocking;
+	}
+
+	public EnrollmentIndex getEnrollmentIndex() {
+		return enrollmentIndex;
+	}
+
+	public Lookup getLookup() {
+		return lookup;
+	}
+
+	public Search getSearch() {
+		return search;
+	}
+
+	public static class Pagination {
+		/**
+		 * Page size used when a cursor is informed without a limit.
+		 */
+		private int defaultLimit = 100;
+
+		/**
+		 * Largest page size a client can request.
+		 */
+		private int maxLimit = 1000;
+
+		public int getDefaultLimit() {
+			return defaultLimit;
+		}
+
+		public void setDefaultLimit(int defaultLimit) {
+			this.defaultLimit = defaultLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+	}
+
+	public static class Enrollment {
+		/**
+		 * Capacity of the courses created without an explicit capacity.
+		 */
+		private int defaultCapacity = 50;
+
+		public int getDefaultCapacity() {
+			return defaultCapacity;
+		}
+
+		public void setDefaultCapacity(int defaultCapacity) {
+			this.defaultCapacity = defaultCapacity;
+		}
+	}
+
+	public static class Cache {
+		/**
+		 * Maximum number of entries of each read cache.
+		 */
+		private long maximumSize = 10000;
+
+		/**
+		 * Time after which a cached entry is reloaded, bounding the staleness of an entry
+		 * that raced with an invalidation.
+		 */
+		private Duration timeToLive = Duration.ofMinutes(10);
+
+		public long getMaximumSize() {
+			return maximumSize;
+		}
+
+		public void setMaximumSize(long maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		public Duration getTimeToLive() {
+			return timeToLive;
+		}
+
+		public void setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+		}
+	}
+
+	public static class BulkImport {
+		/**
+		 * Number of rows sent to the database in each JDBC batch (and committed together).
+		 */
+		private int batchSize = 1000;
+
+		/**
+		 * Maximum number of rejected rows detailed in the import report. Every reject is still counted.
+		 */
+		private int maxReportedRejects = 100;
+
+		/**
+		 * Maximum number of characters of an NDJSON line. A longer line fails the import with 413 instead of being
+		 * buffered whole.
+		 */
+		private int maxLineLength = 16384;
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public int getMaxReportedRejects() {
+			return maxReportedRejects;
+		}
+
+		public void setMaxReportedRejects(int maxReportedRejects) {
+			this.maxReportedRejects = maxReportedRejects;
+		}
+
+		public int getMaxLineLength() {
+			return maxLineLength;
+		}
+
+		public void setMaxLineLength(int maxLineLength) {
+			this.maxLineLength = maxLineLength;
+		}
+	}
+
+	public static class BulkDelete {
+		/**
+		 * Number of students or courses (or enrollments of a deleted course) removed by each transaction.
+		 */
+		private int chunkSize = 1000;
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+	}
+
+	public static class BulkEnrollment {
+		/**
+		 * Maximum number of students whose courses are replaced by one request (PUT /students/courses).
+		 */
+		private int maxStudents = 1000;
+
+		/**
+		 * Maximum number of rejected students detailed in the enrollment report. Every reject is still counted.
+		 */
+		private int maxReportedRejects = 100;
+
+		public int getMaxStudents() {
+			return maxStudents;
+		}
+
+		public void setMaxStudents(int maxStudents) {
+			this.maxStudents = maxStudents;
+		}
+
+		public int getMaxReportedRejects() {
+			return maxReportedRejects;
+		}
+
+		public void setMaxReportedRejects(int maxReportedRejects) {
+			this.maxReportedRejects = maxReportedRejects;
+		}
+	}
+
+	public static class Jobs {
+		/**
+		 * Number of jobs run at the same time. Each running job holds at most one database connection, so keep it
+		 * below the size of the connection pool.
+		 */
+		private int workers = 2;
+
+		/**
+		 * Maximum number of jobs waiting for a worker. Further submissions are refused with 503.
+		 */
+		private int maxQueued = 100;
+
+		/**
+		 * How long the status of a finished background job can still be read.
+		 */
+		private Duration retention = Duration.ofHours(1);
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public void setWorkers(int workers) {
+			this.workers = workers;
+		}
+
+		public int getMaxQueued() {
+			return maxQueued;
+		}
+
+		public void setMaxQueued(int maxQueued) {
+			this.maxQueued = maxQueued;
+		}
+
+		public Duration getRetention() {
+			return retention;
+		}
+
+		public void setRetention(Duration retention) {
+			this.retention = retention;
+		}
+	}
+
+	public static class OptimisticLocking {
+		/**
+		 * Number of times an update of a student or course (or of its enrollments) is run before a concurrent write
+		 * is reported to the client as a conflict.
+		 */
+		private int maxAttempts = 5;
+		/**
+		 * Upper bound of the random pause before the second attempt, multiplied by the attempt number for the next
+		 * ones, so the writers that collided do not collide again.
+		 */
+		private Duration backoff = Duration.ofMillis(10);
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getBackoff() {
+			return backoff;
+		}
+
+		public void setBackoff(Duration backoff) {
+			this.backoff = backoff;
+		}
+	}
+
+	public static class EnrollmentIndex {
+		/**
+		 * Serves the rosters and the "without courses/students" listings from an in-memory copy of the enrollments.
+		 * The copy is updated by the writes of this instance only, so enable it on single-instance deployments.
+		 */
+		private boolean enabled = false;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+	}
+
+	public static class Lookup {
+		/**
+		 * How long the lookups by id that missed the cache while a lookup query runs wait for it, to be loaded together
+		 * by the next query. A lookup with no query in progress is not delayed. Zero disables the coalescing.
+		 */
+		private Duration batchWindow = Duration.ofMillis(2);
+
+		/**
+		 * Number of coalesced lookups that sends the query before the end of the window.
+		 */
+		private int maxBatchSize = 100;
+
+		public Duration getBatchWindow() {
+			return batchWindow;
+		}
+
+		public void setBatchWindow(Duration batchWindow) {
+			this.batchWindow = batchWindow;
+		}
+
+		public int getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		public void setMaxBatchSize(int maxBatchSize) {
+			this.maxBatchSize = maxBatchSize;
+		}
+	}
+
+	public static class Search {
+		/**
+		 * Serves the searches from an in-memory prefix index of the names and addresses. The index is updated by the
+		 * writes of this instance only; without it, the searches are LIKE queries on the database.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Number of matches returned when the search does not inform a limit.
+		 */
+		private int defaultLimit = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getDefaultLimit() {
+			return defaultLimit;
+		}
+
+		public void setDefaultLimit(int defaultLimit) {
+			this.defaultLimit = defaultLimit;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.school.management.model;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * Outbox of the writes to students, courses and enrollments, written by the transactions that made them (see
+ * ChangeFeed). The ids follow the commit order, so reading the records after the last seen id never skips a change.
+ * <p>
+ * A record carries the keys of the changed row only: STUDENT and COURSE records the student or the course id,
+ * ENROLLMENT records both ids of the enrollment.
+ */
+@Entity
+@Table(name = "change_record")
+public class ChangeRecord {
+
+	public enum EntityType {
+		STUDENT, COURSE, ENROLLMENT
+	}
+
+	public enum Operation {
+		CREATED, UPDATED, DELETED
+	}
+
+	public static final String TABLE = "change_record";
+
+	@Id
+	private Long id;
+	@Enumerated(EnumType.STRING)
+	private EntityType entityType;
+	@Enumerated(EnumType.STRING)
+	private Operation operation;
+	private Long studentId;
+	private Long courseId;
+	private Timestamp changedAt;
+
+	public ChangeRecord() {
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public void setEntityType(EntityType entityType) {
+		this.entityType = entityType;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public void setOperation(Operation operation) {
+		this.operation = operation;
+	}
+
+	public Long getStudentId() {
+		return studentId;
+	}
+
+	public void setStudentId(Long studentId) {
+		this.studentId = studentId;
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public void setCourseId(Long courseId) {
+		this.courseId = courseId;
+	}
+
+	public Timestamp getChangedAt() {
+		return changedAt;
+	}
+
+	public void setChangedAt(Timestamp changedAt) {
+		this.changedAt = changedAt;
+	}
+}
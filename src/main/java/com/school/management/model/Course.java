@@ -9,11 +9,28 @@ import java.util.Set;
 @Entity
 public class Course {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "course_id")
+	@TableGenerator(name = "course_id", table = IdGenerator.TABLE, pkColumnName = IdGenerator.NAME_COLUMN, valueColumnName = IdGenerator.VALUE_COLUMN,
+		pkColumnValue = "course", allocationSize = IdGenerator.ALLOCATION_SIZE)
 	private Long id;
 	private String name;
+	/**
+	 * Maximum number of students. Only changed through conditional updates (see CourseRepository).
+	 */
+	@Column(updatable = false)
+	private Integer capacity;
+	/**
+	 * Number of enrolled students, maintained by atomic updates in the enrollment transactions.
+	 */
+	@Column(updatable = false)
+	private Integer enrolledCount;
 	private Timestamp createdAt;
 	private Timestamp updatedAt;
+	/**
+	 * Optimistic lock, incremented by every update of the entity (not by the counter updates). Exposed as the ETag.
+	 */
+	@Version
+	private Long version;
 
 	@OneToMany(mappedBy = "course")
 	@JsonManagedReference
@@ -26,8 +43,10 @@ public class Course {
 		this.id = id;
 	}
 
-	public Course(String name, Timestamp createdAt, Timestamp updatedAt, Set<StudentCourse> studentCourse) {
+	public Course(String name, Integer capacity, Timestamp createdAt, Timestamp updatedAt, Set<StudentCourse> studentCourse) {
 		this.name = name;
+		this.capacity = capacity;
+		this.enrolledCount = 0;
 		this.createdAt = createdAt;
 		this.updatedAt = updatedAt;
 		this.studentCourse = studentCourse;
@@ -49,6 +68,22 @@ public class Course {
 		this.name = name;
 	}
 
+	public Integer getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(Integer capacity) {
+		this.capacity = capacity;
+	}
+
+	public Integer getEnrolledCount() {
+		return enrolledCount;
+	}
+
+	public void setEnrolledCount(Integer enrolledCount) {
+		this.enrolledCount = enrolledCount;
+	}
+
 	public Timestamp getCreatedAt() {
 		return createdAt;
 	}
@@ -65,6 +100,14 @@ public class Course {
 		this.updatedAt = updatedAt;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public Set<StudentCourse> getStudentCourse() {
 		return studentCourse;
 	}
@@ -0,0 +1,41 @@
+package com.school.management.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * Marker of a one-time data migration (see DataMigrationRunner), inserted by the transaction that applied it.
+ */
+@Entity
+@Table(name = "data_migration")
+public class DataMigration {
+
+	public static final String TABLE = "data_migration";
+	public static final String NAME_COLUMN = "name";
+	public static final String APPLIED_AT_COLUMN = "applied_at";
+
+	@Id
+	private String name;
+	private Timestamp appliedAt;
+
+	public DataMigration() {
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Timestamp getAppliedAt() {
+		return appliedAt;
+	}
+
+	public void setAppliedAt(Timestamp appliedAt) {
+		this.appliedAt = appliedAt;
+	}
+}
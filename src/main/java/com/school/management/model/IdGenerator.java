@@ -0,0 +1,20 @@
+package com.school.management.model;
+
+/**
+ * Table-backed pooled id allocation shared by Student and Course.
+ * <p>
+ * Each node reserves a block of ALLOCATION_SIZE ids with a single update of the generator row and hands them out
+ * in memory, so inserts do not need a round trip per row to learn the id and can be sent as JDBC batches.
+ * A row value of MAX(id) + ALLOCATION_SIZE makes the next reserved block start after the existing ids.
+ */
+public final class IdGenerator {
+
+	public static final String TABLE = "id_generator";
+	public static final String NAME_COLUMN = "entity_name";
+	public static final String VALUE_COLUMN = "next_id";
+
+	public static final int ALLOCATION_SIZE = 100;
+
+	private IdGenerator() {
+	}
+}
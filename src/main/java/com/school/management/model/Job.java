@@ -0,0 +1,161 @@
+package com.school.management.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.TableGenerator;
+import java.sql.Timestamp;
+
+/**
+ * A background job (see Jobs). The parameters and the result are JSON documents whose shape depends on the type.
+ */
+@Entity
+public class Job {
+
+	public enum Status {
+		QUEUED, RUNNING, SUCCEEDED, FAILED
+	}
+
+	/**
+	 * Among the queued jobs, the ones with higher priority run first.
+	 */
+	public enum Priority {
+		LOW, NORMAL, HIGH
+	}
+
+	public static final int MAX_ERROR_LENGTH = 1000;
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "job_id")
+	@TableGenerator(name = "job_id", table = IdGenerator.TABLE, pkColumnName = IdGenerator.NAME_COLUMN, valueColumnName = IdGenerator.VALUE_COLUMN,
+		pkColumnValue = "job", allocationSize = 1)
+	private Long id;
+	private String type;
+	@Enumerated(EnumType.STRING)
+	private Status status;
+	@Enumerated(EnumType.STRING)
+	private Priority priority;
+	@Lob
+	private String parameters;
+	private long processed;
+	private Long total;
+	@Lob
+	private String result;
+	@Column(length = MAX_ERROR_LENGTH)
+	private String error;
+	private Timestamp createdAt;
+	private Timestamp startedAt;
+	private Timestamp finishedAt;
+
+	public Job() {
+	}
+
+	public Job(String type, Priority priority, String parameters, Timestamp createdAt) {
+		this.type = type;
+		this.status = Status.QUEUED;
+		this.priority = priority;
+		this.parameters = parameters;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
+	public String getParameters() {
+		return parameters;
+	}
+
+	public void setParameters(String parameters) {
+		this.parameters = parameters;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	public void setProcessed(long processed) {
+		this.processed = processed;
+	}
+
+	public Long getTotal() {
+		return total;
+	}
+
+	public void setTotal(Long total) {
+		this.total = total;
+	}
+
+	public String getResult() {
+		return result;
+	}
+
+	public void setResult(String result) {
+		this.result = result;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public Timestamp getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Timestamp createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Timestamp getStartedAt() {
+		return startedAt;
+	}
+
+	public void setStartedAt(Timestamp startedAt) {
+		this.startedAt = startedAt;
+	}
+
+	public Timestamp getFinishedAt() {
+		return finishedAt;
+	}
+
+	public void setFinishedAt(Timestamp finishedAt) {
+		this.finishedAt = finishedAt;
+	}
+}
@@ -8,13 +8,30 @@ import java.util.Set;
 
 @Entity
 public class Student {
+	/**
+	 * Maximum number of courses a student can enroll in.
+	 */
+	public static final int MAX_COURSES = 5;
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "student_id")
+	@TableGenerator(name = "student_id", table = IdGenerator.TABLE, pkColumnName = IdGenerator.NAME_COLUMN, valueColumnName = IdGenerator.VALUE_COLUMN,
+		pkColumnValue = "student", allocationSize = IdGenerator.ALLOCATION_SIZE)
 	private Long id;
 	private String name;
 	private String address;
+	/**
+	 * Number of enrolled courses, maintained by atomic updates in the enrollment transactions.
+	 */
+	@Column(updatable = false)
+	private Integer courseCount;
 	private Timestamp createdAt;
 	private Timestamp updatedAt;
+	/**
+	 * Optimistic lock, incremented by every update of the entity (not by the counter updates). Exposed as the ETag.
+	 */
+	@Version
+	private Long version;
 
 	@OneToMany(mappedBy = "student")
 	@JsonManagedReference
@@ -30,6 +47,7 @@ public class Student {
 	public Student(String name, String address, Timestamp createdAt, Timestamp updatedAt, Set<StudentCourse> studentCourse) {
 		this.name = name;
 		this.address = address;
+		this.courseCount = 0;
 		this.createdAt = createdAt;
 		this.updatedAt = updatedAt;
 		this.studentCourse = studentCourse;
@@ -64,6 +82,14 @@ public class Student {
 		this.address = address;
 	}
 
+	public Integer getCourseCount() {
+		return courseCount;
+	}
+
+	public void setCourseCount(Integer courseCount) {
+		this.courseCount = courseCount;
+	}
+
 	public Timestamp getCreatedAt() {
 		return createdAt;
 	}
@@ -80,6 +106,14 @@ public class Student {
 		this.updatedAt = updatedAt;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public Set<StudentCourse> getStudentCourse() {
 		return studentCourse;
 	}
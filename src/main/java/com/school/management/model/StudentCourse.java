@@ -1,14 +1,22 @@
 package com.school.management.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
 import javax.persistence.MapsId;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Transient;
 
+/**
+ * The key is assigned by the application, so the entity tells Spring Data when it is new.
+ * Otherwise saveAll would merge every row (one SELECT each) instead of persisting it in a JDBC batch.
+ */
 @Entity
-public class StudentCourse {
+public class StudentCourse implements Persistable<StudentCourseKey> {
 	@EmbeddedId
 	StudentCourseKey id;
 
@@ -22,6 +30,9 @@ public class StudentCourse {
 	@MapsId("courseId")
 	Course course;
 
+	@Transient
+	private boolean isNew = true;
+
 	public StudentCourse(){}
 
 	public StudentCourse(Student student, Course course) {
@@ -30,6 +41,22 @@ public class StudentCourse {
 		this.course = course;
 	}
 
+	@Override
+	public StudentCourseKey getId() {
+		return id;
+	}
+
+	@Override
+	public boolean isNew() {
+		return isNew;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		this.isNew = false;
+	}
+
 	public Student getStudent() {
 		return student;
 	}
@@ -1,22 +1,62 @@
 package com.school.management.model;
 
 
-import org.hibernate.annotations.Subselect;
-import org.springframework.data.annotation.Immutable;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 
+/**
+ * Denormalized copy of the enrollments with the student and course names, so the relationship listings are index scans
+ * instead of a three-way join and a sort. Kept in sync by the enrollment changes, renames and deletes of
+ * StudentService/CourseService, in the same transactions.
+ */
 @Entity
-@Immutable
-@Subselect("SELECT student.id AS `student_id`, course.id AS `course_id`, student.name AS `student`, course.name AS `course` FROM (student, course) JOIN (student_course) " +
-	" ON (student.id = student_course.student_id  AND student_course.course_id = course.id) ")
-public class StudentCourseView {
+@Table(name = "student_course_view", indexes = {
+	@Index(name = "idx_student_course_view_student", columnList = "student, course"),
+	@Index(name = "idx_student_course_view_course", columnList = "course, student")})
+public class StudentCourseView implements Persistable<StudentCourseKey> {
 	@EmbeddedId
 	StudentCourseKey id;
 	private String student;
 	private String course;
 
+	@Transient
+	private boolean isNew = true;
+
+	public StudentCourseView() {
+	}
+
+	public StudentCourseView(Student student, Course course) {
+		this.id = new StudentCourseKey(student.getId(), course.getId());
+		this.student = student.getName();
+		this.course = course.getName();
+	}
+
+	@Override
+	@JsonIgnore
+	public StudentCourseKey getId() {
+		return id;
+	}
+
+	@Override
+	@JsonIgnore
+	public boolean isNew() {
+		return isNew;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		this.isNew = false;
+	}
+
 	public String getStudent() {
 		return student;
 	}
@@ -0,0 +1,85 @@
+package com.school.management.model.dto;
+
+import com.school.management.model.ChangeRecord.EntityType;
+import com.school.management.model.ChangeRecord.Operation;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+public class ChangeDto {
+
+	private Long id;
+
+	private EntityType entityType;
+
+	private Operation operation;
+
+	private Long studentId;
+
+	private Long courseId;
+
+	private Timestamp changedAt;
+
+	public ChangeDto() {
+	}
+
+	/**
+	 * Also the constructor of the JPQL projections, which type the timestamp attributes as {@link Date}.
+	 */
+	public ChangeDto(Long id, EntityType entityType, Operation operation, Long studentId, Long courseId, Date changedAt) {
+		this.id = id;
+		this.entityType = entityType;
+		this.operation = operation;
+		this.studentId = studentId;
+		this.courseId = courseId;
+		this.changedAt = changedAt == null || changedAt instanceof Timestamp ? (Timestamp) changedAt : new Timestamp(changedAt.getTime());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public void setEntityType(EntityType entityType) {
+		this.entityType = entityType;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public void setOperation(Operation operation) {
+		this.operation = operation;
+	}
+
+	public Long getStudentId() {
+		return studentId;
+	}
+
+	public void setStudentId(Long studentId) {
+		this.studentId = studentId;
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public void setCourseId(Long courseId) {
+		this.courseId = courseId;
+	}
+
+	public Timestamp getChangedAt() {
+		return changedAt;
+	}
+
+	public void setChangedAt(Timestamp changedAt) {
+		this.changedAt = changedAt;
+	}
+}
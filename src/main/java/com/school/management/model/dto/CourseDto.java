@@ -1,6 +1,9 @@
 package com.school.management.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.sql.Timestamp;
+import java.util.Date;
 
 public class CourseDto {
 
@@ -8,21 +11,44 @@ public class CourseDto {
 
 	private String name;
 
+	private Integer capacity;
+
 	private Timestamp createdAt;
 
 	private Timestamp updatedAt;
 
+	/**
+	 * Sent as the ETag (and checked against If-Match) instead of in the body.
+	 */
+	@JsonIgnore
+	private Long version;
 
 	public CourseDto(){}
 	public CourseDto(String name) {
 		this.name = name;
 	}
 
-	public CourseDto(Long id, String name, Timestamp createdAt, Timestamp updatedAt) {
+	/**
+	 * Accepts the timestamp attributes as {@link Date}, as typed by the JPQL projections.
+	 */
+	public CourseDto(Long id, String name, Integer capacity, Date createdAt, Date updatedAt) {
 		this(name);
 		this.id = id;
-		this.createdAt = createdAt;
-		this.updatedAt = updatedAt;
+		this.capacity = capacity;
+		this.createdAt = toTimestamp(createdAt);
+		this.updatedAt = toTimestamp(updatedAt);
+	}
+
+	/**
+	 * The constructor of the JPQL projections (see CourseRepository.DTO).
+	 */
+	public CourseDto(Long id, String name, Integer capacity, Date createdAt, Date updatedAt, Long version) {
+		this(id, name, capacity, createdAt, updatedAt);
+		this.version = version;
+	}
+
+	private static Timestamp toTimestamp(Date date) {
+		return date == null || date instanceof Timestamp ? (Timestamp) date : new Timestamp(date.getTime());
 	}
 
 	public Long getId() {
@@ -41,6 +67,14 @@ public class CourseDto {
 		this.name = name;
 	}
 
+	public Integer getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(Integer capacity) {
+		this.capacity = capacity;
+	}
+
 	public Timestamp getCreatedAt() {
 		return createdAt;
 	}
@@ -56,4 +90,12 @@ public class CourseDto {
 	public void setUpdatedAt(Timestamp updatedAt) {
 		this.updatedAt = updatedAt;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 }
@@ -0,0 +1,56 @@
+package com.school.management.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk enrollment. Only the first rejects are detailed, but all of them are counted.
+ */
+public class EnrollmentReportDto {
+
+	private long updated;
+
+	private long rejected;
+
+	private final List<Reject> rejects = new ArrayList<>();
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(long updated) {
+		this.updated = updated;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<Reject> getRejects() {
+		return rejects;
+	}
+
+	public static class Reject {
+
+		private final long studentId;
+
+		private final String reason;
+
+		public Reject(long studentId, String reason) {
+			this.studentId = studentId;
+			this.reason = reason;
+		}
+
+		public long getStudentId() {
+			return studentId;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+}
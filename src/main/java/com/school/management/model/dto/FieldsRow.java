@@ -0,0 +1,24 @@
+package com.school.management.model.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A row of a sparse fieldset listing: the requested attributes of an entity, by name. It also carries the types of
+ * the attributes, so the row can be described (ex: by an Avro schema) even when its values are null.
+ */
+public class FieldsRow extends LinkedHashMap<String, Object> {
+
+	private final Map<String, Class<?>> types;
+
+	/**
+	 * @param types = attribute name --> Java type, shared by all the rows of a listing.
+	 */
+	public FieldsRow(Map<String, Class<?>> types) {
+		this.types = types;
+	}
+
+	public Map<String, Class<?>> getTypes() {
+		return types;
+	}
+}
@@ -0,0 +1,59 @@
+package com.school.management.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first rejects are detailed, but all of them are counted.
+ */
+public class ImportReportDto {
+
+	private long imported;
+
+	private long rejected;
+
+	private final List<Reject> rejects = new ArrayList<>();
+
+	public long getImported() {
+		return imported;
+	}
+
+	public void setImported(long imported) {
+		this.imported = imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<Reject> getRejects() {
+		return rejects;
+	}
+
+	public static class Reject {
+
+		private final long row;
+
+		private final String reason;
+
+		public Reject(long row, String reason) {
+			this.row = row;
+			this.reason = reason;
+		}
+
+		/**
+		 * @return the 1-based position of the record in the file (the CSV header is not counted).
+		 */
+		public long getRow() {
+			return row;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+}
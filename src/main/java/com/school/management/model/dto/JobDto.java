@@ -0,0 +1,129 @@
+package com.school.management.model.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.school.management.model.Job.Priority;
+import com.school.management.model.Job.Status;
+
+import java.sql.Timestamp;
+
+/**
+ * Status of a background job (see GET /jobs/{id}).
+ */
+public class JobDto {
+
+	private Long id;
+
+	private String type;
+
+	private Status status;
+
+	private Priority priority;
+
+	private long processed;
+
+	/**
+	 * Null until the job knows how many rows it will process.
+	 */
+	private Long total;
+
+	/**
+	 * Outcome of a succeeded job, when its type has one (ex: the report of a bulk enrollment).
+	 */
+	private JsonNode result;
+
+	private String error;
+
+	private Timestamp createdAt;
+
+	private Timestamp startedAt;
+
+	private Timestamp finishedAt;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	public void setProcessed(long processed) {
+		this.processed = processed;
+	}
+
+	public Long getTotal() {
+		return total;
+	}
+
+	public void setTotal(Long total) {
+		this.total = total;
+	}
+
+	public JsonNode getResult() {
+		return result;
+	}
+
+	public void setResult(JsonNode result) {
+		this.result = result;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public Timestamp getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Timestamp createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Timestamp getStartedAt() {
+		return startedAt;
+	}
+
+	public void setStartedAt(Timestamp startedAt) {
+		this.startedAt = startedAt;
+	}
+
+	public Timestamp getFinishedAt() {
+		return finishedAt;
+	}
+
+	public void setFinishedAt(Timestamp finishedAt) {
+		this.finishedAt = finishedAt;
+	}
+}
@@ -0,0 +1,109 @@
+package com.school.management.model.dto;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Keyset pagination and filtering options for the listing endpoints.
+ * Every field is optional; a null field means "no restriction".
+ */
+public class ListFilter {
+
+	private Long cursor;
+
+	private Integer limit;
+
+	private String namePrefix;
+
+	private Timestamp createdFrom;
+
+	private Timestamp createdTo;
+
+	private List<String> fields;
+
+	public ListFilter() {
+	}
+
+	public ListFilter(Long cursor, Integer limit, String namePrefix, Timestamp createdFrom, Timestamp createdTo) {
+		this.cursor = cursor;
+		this.limit = limit;
+		this.namePrefix = namePrefix;
+		this.createdFrom = createdFrom;
+		this.createdTo = createdTo;
+	}
+
+	public Long getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(Long cursor) {
+		this.cursor = cursor;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	public Timestamp getCreatedFrom() {
+		return createdFrom;
+	}
+
+	public void setCreatedFrom(Timestamp createdFrom) {
+		this.createdFrom = createdFrom;
+	}
+
+	public Timestamp getCreatedTo() {
+		return createdTo;
+	}
+
+	public void setCreatedTo(Timestamp createdTo) {
+		this.createdTo = createdTo;
+	}
+
+	/**
+	 * @return the fields each row must carry (sparse fieldset), or null for all of them.
+	 */
+	public List<String> getFields() {
+		return fields;
+	}
+
+	public void setFields(List<String> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * @return the name prefix with the LIKE wildcards escaped with '!', or null when there is no name filter.
+	 */
+	public String getEscapedNamePrefix() {
+		if (namePrefix == null || namePrefix.isBlank()) {
+			return null;
+		}
+		return escapeLike(namePrefix);
+	}
+
+	/**
+	 * @return the text with the LIKE wildcards escaped with '!'.
+	 */
+	public static String escapeLike(String text) {
+		return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+
+	/**
+	 * @return true when the client asked for a single page instead of the whole list.
+	 */
+	public boolean isPaged() {
+		return cursor != null || limit != null;
+	}
+}
@@ -0,0 +1,46 @@
+package com.school.management.model.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset-paginated listing.
+ * The next cursor is the id of the last row of the page, or null when there are no more rows.
+ */
+public class PageDto<T> {
+
+	/**
+	 * Response header carrying the cursor of the next page.
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private final List<T> content;
+
+	private final Long next;
+
+	public PageDto(List<T> content, Long next) {
+		this.content = content;
+		this.next = next;
+	}
+
+	/**
+	 * @param rows     = rows fetched with limit + 1, so an extra row means there is a next page.
+	 * @param limit    = the page size (null --> unpaged).
+	 * @param cursorOf = extracts the cursor (id) from a row.
+	 */
+	public static <T> PageDto<T> of(List<T> rows, Integer limit, Function<T, Long> cursorOf) {
+		if (limit == null || rows.size() <= limit) {
+			return new PageDto<>(rows, null);
+		}
+		List<T> content = rows.subList(0, limit);
+		return new PageDto<>(content, cursorOf.apply(content.get(limit - 1)));
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public Long getNext() {
+		return next;
+	}
+}
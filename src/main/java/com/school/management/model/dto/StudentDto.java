@@ -1,7 +1,10 @@
 package com.school.management.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Date;
 
 public class StudentDto {
 
@@ -15,6 +18,11 @@ public class StudentDto {
 
 	private Timestamp updatedAt;
 
+	/**
+	 * Sent as the ETag (and checked against If-Match) instead of in the body.
+	 */
+	@JsonIgnore
+	private Long version;
 
 	public StudentDto(){}
 	public StudentDto(String name, String address) {
@@ -26,11 +34,27 @@ public class StudentDto {
 		this.updatedAt = ts;
 	}
 
-	public StudentDto(Long id, String name, String address, Timestamp createdAt, Timestamp updatedAt) {
-		this(name, address);
+	/**
+	 * Accepts the timestamp attributes as {@link Date}, as typed by the JPQL projections.
+	 */
+	public StudentDto(Long id, String name, String address, Date createdAt, Date updatedAt) {
 		this.id = id;
-		this.createdAt = createdAt;
-		this.updatedAt = updatedAt;
+		this.name = name;
+		this.address = address;
+		this.createdAt = toTimestamp(createdAt);
+		this.updatedAt = toTimestamp(updatedAt);
+	}
+
+	/**
+	 * The constructor of the JPQL projections (see StudentRepository.DTO).
+	 */
+	public StudentDto(Long id, String name, String address, Date createdAt, Date updatedAt, Long version) {
+		this(id, name, address, createdAt, updatedAt);
+		this.version = version;
+	}
+
+	private static Timestamp toTimestamp(Date date) {
+		return date == null || date instanceof Timestamp ? (Timestamp) date : new Timestamp(date.getTime());
 	}
 
 	public Long getId() {
@@ -72,4 +96,12 @@ public class StudentDto {
 	public void setUpdatedAt(Timestamp updatedAt) {
 		this.updatedAt = updatedAt;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 }
@@ -0,0 +1,17 @@
+package com.school.management.repository;
+
+import com.school.management.model.ChangeRecord;
+import com.school.management.model.dto.ChangeDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ChangeRecordRepository extends JpaRepository<ChangeRecord, Long> {
+
+	@Query("SELECT new com.school.management.model.dto.ChangeDto(c.id, c.entityType, c.operation, c.studentId, c.courseId, c.changedAt) " +
+		"FROM ChangeRecord c WHERE c.id > :since ORDER BY c.id")
+	List<ChangeDto> getChanges(@Param("since") Long since, Pageable pageable);
+}
@@ -2,18 +2,150 @@ package com.school.management.repository;
 
 import com.school.management.model.Course;
 import com.school.management.model.Student;
+import com.school.management.model.dto.CourseDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface CourseRepository extends JpaRepository<Course, Long>, CourseRepositoryCustom {
+	/**
+	 * The listings select the DTO columns only, so no entity is loaded into the persistence context.
+	 */
+	String DTO = "new com.school.management.model.dto.CourseDto(c.id, c.name, c.capacity, c.createdAt, c.updatedAt, c.version)";
+
+	/**
+	 * Keyset page ordered by id. The name prefix must have its LIKE wildcards escaped with '!'.
+	 */
+	String PAGE = "FROM Course c " +
+		"WHERE c.id > :cursor " +
+		"AND (:namePrefix IS NULL OR c.name LIKE CONCAT(:namePrefix, '%') ESCAPE '!') " +
+		"AND (:createdFrom IS NULL OR c.createdAt >= :createdFrom) " +
+		"AND (:createdTo IS NULL OR c.createdAt < :createdTo) " +
+		"ORDER BY c.id";
+
+	String WITHOUT_STUDENT_PAGE = "FROM Course c LEFT JOIN c.studentCourse sc " +
+		"WHERE sc.course IS NULL " +
+		"AND c.id > :cursor " +
+		"AND (:namePrefix IS NULL OR c.name LIKE CONCAT(:namePrefix, '%') ESCAPE '!') " +
+		"AND (:createdFrom IS NULL OR c.createdAt >= :createdFrom) " +
+		"AND (:createdTo IS NULL OR c.createdAt < :createdTo) " +
+		"ORDER BY c.id";
+
+	String BY_IDS = "FROM Course c WHERE c.id IN :ids";
 
-public interface CourseRepository extends JpaRepository<Course, Long> {
-	@Query("SELECT c FROM Course c LEFT JOIN c.studentCourse sc " +
+	@Query("SELECT " + DTO + " FROM Course c LEFT JOIN c.studentCourse sc " +
 		"WHERE sc.student = :student")
-	List<Course> getCoursesByStudent(@Param("student") Student student);
+	List<CourseDto> getCoursesByStudent(@Param("student") Student student);
+
+	@Query("SELECT " + DTO + " " + PAGE)
+	List<CourseDto> getCoursesPage(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo, Pageable pageable);
+
+	@Query("SELECT " + DTO + " " + WITHOUT_STUDENT_PAGE)
+	List<CourseDto> getCoursesWithoutStudentPage(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo, Pageable pageable);
+
+	/**
+	 * Whole listings read with a forward-only cursor (MySQL needs useCursorFetch=true to honor the fetch size).
+	 * Must be consumed inside a transaction and closed afterwards.
+	 */
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT " + DTO + " " + PAGE)
+	Stream<CourseDto> streamCourses(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo);
+
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT " + DTO + " " + WITHOUT_STUDENT_PAGE)
+	Stream<CourseDto> streamCoursesWithoutStudent(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo);
+
+	@Query("SELECT " + DTO + " " + BY_IDS)
+	List<CourseDto> getCoursesByIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Search without the in-memory index: the name has a word starting with the text (case-insensitive).
+	 * The text must have its LIKE wildcards escaped with '!'.
+	 */
+	@Query("SELECT " + DTO + " FROM Course c " +
+		"WHERE LOWER(c.name) LIKE LOWER(CONCAT(:text, '%')) ESCAPE '!' OR LOWER(c.name) LIKE LOWER(CONCAT('% ', :text, '%')) ESCAPE '!' " +
+		"ORDER BY c.id")
+	List<CourseDto> searchCourses(@Param("text") String text, Pageable pageable);
+
+	@Query("SELECT c.id FROM Course c WHERE c.id IN :ids")
+	List<Long> getExistingIds(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT c.id FROM Course c ORDER BY c.id")
+	List<Long> getIds(Pageable pageable);
+
+	@Modifying
+	@Query("DELETE FROM Course c WHERE c.id IN :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Changes the version of the courses whose roster was changed through the students (PUT /students/{id}/courses),
+	 * so the If-Match of a course write fails on it as on a change through the course.
+	 */
+	@Modifying
+	@Query("UPDATE Course c SET c.version = c.version + 1 WHERE c.id IN :ids")
+	int incrementVersion(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Seat counters: conditional atomic updates, so concurrent enrollments can not overfill a course.
+	 * All of them return the number of updated courses.
+	 */
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = c.enrolledCount + 1 " +
+		"WHERE c.id IN :courseIds AND c.enrolledCount < c.capacity")
+	int incrementEnrolledCount(@Param("courseIds") Collection<Long> courseIds);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = c.enrolledCount - 1 " +
+		"WHERE c.id IN :courseIds")
+	int decrementEnrolledCount(@Param("courseIds") Collection<Long> courseIds);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = c.enrolledCount + :delta " +
+		"WHERE c.id = :id AND c.enrolledCount + :delta <= c.capacity")
+	int addToEnrolledCount(@Param("id") Long id, @Param("delta") int delta);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = c.enrolledCount - 1 " +
+		"WHERE c.id IN (SELECT sc.course.id FROM StudentCourse sc WHERE sc.student = :student)")
+	int decrementEnrolledCountByStudent(@Param("student") Student student);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = c.enrolledCount - " +
+		"(SELECT COUNT(sc) FROM StudentCourse sc WHERE sc.course = c AND sc.student.id IN :studentIds) " +
+		"WHERE c.id IN (SELECT sc.course.id FROM StudentCourse sc WHERE sc.student.id IN :studentIds)")
+	int decrementEnrolledCountByStudents(@Param("studentIds") Collection<Long> studentIds);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.capacity = :capacity " +
+		"WHERE c.id = :id AND c.enrolledCount <= :capacity")
+	int updateCapacity(@Param("id") Long id, @Param("capacity") int capacity);
+
+	/**
+	 * Backfill of the counter columns for courses created before they existed.
+	 */
+	@Modifying
+	@Query("UPDATE Course c SET c.capacity = :capacity WHERE c.capacity IS NULL")
+	int initializeCapacity(@Param("capacity") int capacity);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledCount = (SELECT COUNT(sc) FROM StudentCourse sc WHERE sc.course = c) " +
+		"WHERE c.enrolledCount IS NULL")
+	int initializeEnrolledCount();
 
-	@Query("SELECT c FROM Course c LEFT JOIN c.studentCourse sc " +
-		"WHERE sc.course IS NULL")
-	List<Course> getCoursesWithoutStudent();
+	@Modifying
+	@Query("UPDATE Course c SET c.version = 0 WHERE c.version IS NULL")
+	int initializeVersion();
 }
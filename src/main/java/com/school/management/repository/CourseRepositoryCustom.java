@@ -0,0 +1,21 @@
+package com.school.management.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The listings of {@link CourseRepository} selecting only some of the fields (sparse fieldsets), each row as a map of
+ * field name to value. The fields must be attribute names of Course.
+ */
+public interface CourseRepositoryCustom {
+
+	List<Map<String, Object>> getCoursesPage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable);
+
+	List<Map<String, Object>> getCoursesWithoutStudentPage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable);
+
+	List<Map<String, Object>> getCoursesByIds(Collection<String> fields, Collection<Long> ids);
+}
@@ -0,0 +1,57 @@
+package com.school.management.repository;
+
+import com.school.management.model.dto.FieldsRow;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A listing query that selects only the requested attributes of an entity, returning every row as a map of attribute
+ * name to value (with the types of the attributes, see {@link FieldsRow}). The attribute names are concatenated into the JPQL, so they must be validated by the caller.
+ */
+final class FieldsQuery {
+
+	private final TypedQuery<Tuple> query;
+
+	/**
+	 * @param alias = the alias of the entity in the query.
+	 * @param from  = the query without its SELECT clause.
+	 */
+	FieldsQuery(EntityManager entityManager, String alias, Collection<String> fields, String from) {
+		String select = fields.stream()
+			.map(field -> alias + "." + field + " AS " + field)
+			.collect(Collectors.joining(", "));
+		query = entityManager.createQuery("SELECT " + select + " " + from, Tuple.class);
+	}
+
+	FieldsQuery param(String name, Object value) {
+		query.setParameter(name, value);
+		return this;
+	}
+
+	List<Map<String, Object>> list(Pageable pageable) {
+		if (pageable.isPaged()) {
+			query.setFirstResult((int) pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize());
+		}
+		List<Tuple> tuples = query.getResultList();
+		Map<String, Class<?>> types = new LinkedHashMap<>();
+		if (!tuples.isEmpty()) {
+			tuples.get(0).getElements().forEach(element -> types.put(element.getAlias(), element.getJavaType()));
+		}
+		return tuples.stream()
+			.map(tuple -> {
+				FieldsRow row = new FieldsRow(types);
+				tuple.getElements().forEach(element -> row.put(element.getAlias(), tuple.get(element)));
+				return row;
+			})
+			.collect(Collectors.toList());
+	}
+}
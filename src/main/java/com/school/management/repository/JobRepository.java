@@ -0,0 +1,55 @@
+package com.school.management.repository;
+
+import com.school.management.model.Job;
+import com.school.management.model.Job.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The updates are single statements, each in its own transaction: a job records its progress while it runs.
+ */
+public interface JobRepository extends JpaRepository<Job, Long> {
+
+	List<Job> findByStatusOrderById(Status status);
+
+	List<Job> findByTypeAndStatusIn(String type, Collection<Status> statuses);
+
+	long countByStatus(Status status);
+
+	/**
+	 * @return 1 when the job was queued and is now running (0 when another worker took it).
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE Job j SET j.status = :running, j.startedAt = :startedAt, j.processed = 0, j.total = NULL " +
+		"WHERE j.id = :id AND j.status = :queued")
+	int start(@Param("id") Long id, @Param("startedAt") Timestamp startedAt, @Param("queued") Status queued, @Param("running") Status running);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE Job j SET j.processed = :processed, j.total = :total WHERE j.id = :id")
+	int updateProgress(@Param("id") Long id, @Param("processed") long processed, @Param("total") Long total);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE Job j SET j.status = :status, j.processed = :processed, j.result = :result, j.error = :error, j.finishedAt = :finishedAt " +
+		"WHERE j.id = :id")
+	int finish(@Param("id") Long id, @Param("status") Status status, @Param("processed") long processed, @Param("result") String result, @Param("error") String error, @Param("finishedAt") Timestamp finishedAt);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE Job j SET j.status = :queued WHERE j.status = :running")
+	int requeueRunning(@Param("running") Status running, @Param("queued") Status queued);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM Job j WHERE j.finishedAt < :finishedBefore")
+	int deleteFinishedBefore(@Param("finishedBefore") Timestamp finishedBefore);
+}
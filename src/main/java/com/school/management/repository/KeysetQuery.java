@@ -0,0 +1,72 @@
+package com.school.management.repository;
+
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL version of the keyset listings of the JPA repositories, for the R2DBC repositories. Only the informed filters
+ * are added to the WHERE clause, so no parameter is bound to null.
+ */
+final class KeysetQuery {
+
+	private final StringBuilder sql;
+	private final String alias;
+	private final Map<String, Object> params = new LinkedHashMap<>();
+
+	/**
+	 * @param select = SELECT ... FROM table alias, without WHERE clause.
+	 * @param alias  = alias of the listed table.
+	 * @param cursor = only rows with id greater than the cursor.
+	 */
+	KeysetQuery(String select, String alias, long cursor) {
+		this.sql = new StringBuilder(select).append(" WHERE ").append(alias).append(".id > :cursor");
+		this.alias = alias;
+		params.put("cursor", cursor);
+	}
+
+	KeysetQuery where(String condition) {
+		sql.append(" AND ").append(condition);
+		return this;
+	}
+
+	/**
+	 * @param namePrefix = prefix with its LIKE wildcards escaped with '!' (null --> no restriction).
+	 */
+	KeysetQuery nameStartsWith(String namePrefix) {
+		if (namePrefix != null) {
+			where(alias + ".name LIKE CONCAT(:namePrefix, '%') ESCAPE '!'");
+			params.put("namePrefix", namePrefix);
+		}
+		return this;
+	}
+
+	KeysetQuery createdBetween(Timestamp createdFrom, Timestamp createdTo) {
+		if (createdFrom != null) {
+			where(alias + ".created_at >= :createdFrom");
+			params.put("createdFrom", createdFrom.toLocalDateTime());
+		}
+		if (createdTo != null) {
+			where(alias + ".created_at < :createdTo");
+			params.put("createdTo", createdTo.toLocalDateTime());
+		}
+		return this;
+	}
+
+	/**
+	 * @param limit = maximum number of rows (null --> every row), ordered by id.
+	 */
+	DatabaseClient.GenericExecuteSpec execute(DatabaseClient databaseClient, Integer limit) {
+		sql.append(" ORDER BY ").append(alias).append(".id");
+		if (limit != null) {
+			sql.append(" LIMIT ").append(limit.intValue());
+		}
+		DatabaseClient.GenericExecuteSpec spec = databaseClient.execute(sql.toString());
+		for (Map.Entry<String, Object> param : params.entrySet()) {
+			spec = spec.bind(param.getKey(), param.getValue());
+		}
+		return spec;
+	}
+}
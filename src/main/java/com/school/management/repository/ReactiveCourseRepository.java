@@ -0,0 +1,76 @@
+package com.school.management.repository;
+
+import com.school.management.model.dto.CourseDto;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static com.school.management.repository.ReactiveStudentRepository.toTimestamp;
+
+/**
+ * Non-blocking (R2DBC) reads of the courses, profile "reactive". Rows are emitted as they are decoded, on demand.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCourseRepository {
+
+	private static final String SELECT = "SELECT c.id, c.name, c.capacity, c.created_at, c.updated_at FROM course c";
+
+	private final DatabaseClient databaseClient;
+
+	public ReactiveCourseRepository(DatabaseClient databaseClient) {
+		this.databaseClient = databaseClient;
+	}
+
+	public Mono<CourseDto> getCourse(long id) {
+		return databaseClient.execute(SELECT + " WHERE c.id = :id")
+			.bind("id", id)
+			.map(ReactiveCourseRepository::toDto)
+			.one();
+	}
+
+	/**
+	 * Keyset page ordered by id, same filters as {@link CourseRepository#getCoursesPage}.
+	 *
+	 * @param limit = maximum number of rows (null --> every row).
+	 */
+	public Flux<CourseDto> getCoursesPage(long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Integer limit) {
+		return new KeysetQuery(SELECT, "c", cursor)
+			.nameStartsWith(namePrefix)
+			.createdBetween(createdFrom, createdTo)
+			.execute(databaseClient, limit)
+			.map(ReactiveCourseRepository::toDto)
+			.all();
+	}
+
+	public Flux<CourseDto> getCoursesWithoutStudentPage(long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Integer limit) {
+		return new KeysetQuery(SELECT, "c", cursor)
+			.where("NOT EXISTS (SELECT 1 FROM student_course sc WHERE sc.course_id = c.id)")
+			.nameStartsWith(namePrefix)
+			.createdBetween(createdFrom, createdTo)
+			.execute(databaseClient, limit)
+			.map(ReactiveCourseRepository::toDto)
+			.all();
+	}
+
+	/**
+	 * @return the courses of the student, ordered by id.
+	 */
+	public Flux<CourseDto> getCoursesByStudent(long studentId) {
+		return databaseClient.execute(SELECT + " JOIN student_course sc ON sc.course_id = c.id WHERE sc.student_id = :studentId ORDER BY c.id")
+			.bind("studentId", studentId)
+			.map(ReactiveCourseRepository::toDto)
+			.all();
+	}
+
+	private static CourseDto toDto(Row row) {
+		return new CourseDto(row.get("id", Long.class), row.get("name", String.class), row.get("capacity", Integer.class),
+			toTimestamp(row.get("created_at", LocalDateTime.class)), toTimestamp(row.get("updated_at", LocalDateTime.class)));
+	}
+}
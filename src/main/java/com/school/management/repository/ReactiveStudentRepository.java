@@ -0,0 +1,78 @@
+package com.school.management.repository;
+
+import com.school.management.model.dto.StudentDto;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking (R2DBC) reads of the students, profile "reactive". Rows are emitted as they are decoded, on demand.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveStudentRepository {
+
+	private static final String SELECT = "SELECT s.id, s.name, s.address, s.created_at, s.updated_at FROM student s";
+
+	private final DatabaseClient databaseClient;
+
+	public ReactiveStudentRepository(DatabaseClient databaseClient) {
+		this.databaseClient = databaseClient;
+	}
+
+	public Mono<StudentDto> getStudent(long id) {
+		return databaseClient.execute(SELECT + " WHERE s.id = :id")
+			.bind("id", id)
+			.map(ReactiveStudentRepository::toDto)
+			.one();
+	}
+
+	/**
+	 * Keyset page ordered by id, same filters as {@link StudentRepository#getStudentsPage}.
+	 *
+	 * @param limit = maximum number of rows (null --> every row).
+	 */
+	public Flux<StudentDto> getStudentsPage(long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Integer limit) {
+		return new KeysetQuery(SELECT, "s", cursor)
+			.nameStartsWith(namePrefix)
+			.createdBetween(createdFrom, createdTo)
+			.execute(databaseClient, limit)
+			.map(ReactiveStudentRepository::toDto)
+			.all();
+	}
+
+	public Flux<StudentDto> getStudentsWithoutCoursePage(long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Integer limit) {
+		return new KeysetQuery(SELECT, "s", cursor)
+			.where("NOT EXISTS (SELECT 1 FROM student_course sc WHERE sc.student_id = s.id)")
+			.nameStartsWith(namePrefix)
+			.createdBetween(createdFrom, createdTo)
+			.execute(databaseClient, limit)
+			.map(ReactiveStudentRepository::toDto)
+			.all();
+	}
+
+	/**
+	 * @return the students enrolled in the course, ordered by id.
+	 */
+	public Flux<StudentDto> getStudentsByCourse(long courseId) {
+		return databaseClient.execute(SELECT + " JOIN student_course sc ON sc.student_id = s.id WHERE sc.course_id = :courseId ORDER BY s.id")
+			.bind("courseId", courseId)
+			.map(ReactiveStudentRepository::toDto)
+			.all();
+	}
+
+	private static StudentDto toDto(Row row) {
+		return new StudentDto(row.get("id", Long.class), row.get("name", String.class), row.get("address", String.class),
+			toTimestamp(row.get("created_at", LocalDateTime.class)), toTimestamp(row.get("updated_at", LocalDateTime.class)));
+	}
+
+	static Timestamp toTimestamp(LocalDateTime dateTime) {
+		return dateTime == null ? null : Timestamp.valueOf(dateTime);
+	}
+}
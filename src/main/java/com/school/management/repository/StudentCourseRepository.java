@@ -4,22 +4,68 @@ import com.school.management.model.Course;
 import com.school.management.model.Student;
 import com.school.management.model.StudentCourse;
 import com.school.management.model.StudentCourseKey;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface StudentCourseRepository extends JpaRepository<StudentCourse, StudentCourseKey> {
 	@Modifying
 	@Query("DELETE FROM StudentCourse sc " +
 		"WHERE sc.student = :student")
-	void deleteCoursesByStudent(Student student);
+	int deleteCoursesByStudent(Student student);
 
 	@Modifying
 	@Query("DELETE FROM StudentCourse sc " +
 		"WHERE sc.course = :course")
-	void deleteStudentsByCourse(Course course);
+	int deleteStudentsByCourse(Course course);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourse sc " +
+		"WHERE sc.student.id IN :studentIds")
+	int deleteByStudents(Collection<Long> studentIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourse sc " +
+		"WHERE sc.course.id IN :courseIds")
+	int deleteByCourses(Collection<Long> courseIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourse sc " +
+		"WHERE sc.student = :student AND sc.course.id IN :courseIds")
+	int deleteStudentCourses(Student student, Collection<Long> courseIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourse sc " +
+		"WHERE sc.course = :course AND sc.student.id IN :studentIds")
+	int deleteCourseStudents(Course course, Collection<Long> studentIds);
+
+	@Query("SELECT sc.course.id FROM StudentCourse sc " +
+		"WHERE sc.student = :student")
+	List<Long> getCourseIdsByStudent(Student student);
+
+	@Query("SELECT sc.student.id FROM StudentCourse sc " +
+		"WHERE sc.course = :course")
+	List<Long> getStudentIdsByCourse(Course course);
+
+	@Query("SELECT sc.student.id FROM StudentCourse sc " +
+		"WHERE sc.course = :course ORDER BY sc.student.id")
+	List<Long> getStudentIdsByCourse(Course course, Pageable pageable);
+
+	/**
+	 * @return (student id, course id) pairs.
+	 */
+	@Query("SELECT sc.student.id, sc.course.id FROM StudentCourse sc " +
+		"WHERE sc.student.id IN :studentIds")
+	List<Object[]> getEnrollmentsByStudents(Collection<Long> studentIds);
 
-	@Query("SELECT COUNT(*) FROM StudentCourse sc " +
-		"WHERE sc.course = :course AND sc.student <> :student")
-	int getTotalOtherStudentsByCourse(Course course, Student student);
+	/**
+	 * @return (course id, student id) pairs.
+	 */
+	@Query("SELECT sc.course.id, sc.student.id FROM StudentCourse sc " +
+		"WHERE sc.course.id IN :courseIds")
+	List<Object[]> getEnrollmentsByCourses(Collection<Long> courseIds);
 }
@@ -1,12 +1,21 @@
 package com.school.management.repository;
 
+import com.school.management.model.StudentCourseKey;
 import com.school.management.model.StudentCourseView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface StudentCourseViewRepository extends JpaRepository<StudentCourseView, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface StudentCourseViewRepository extends JpaRepository<StudentCourseView, StudentCourseKey> {
 	@Query("SELECT scv FROM StudentCourseView scv " +
 		"ORDER BY student, course")
 	List<StudentCourseView> getStudentCourseRelationship();
@@ -14,4 +23,58 @@ public interface StudentCourseViewRepository extends JpaRepository<StudentCourse
 	@Query("SELECT scv FROM StudentCourseView scv " +
 		"ORDER BY course, student")
 	List<StudentCourseView> getCourseStudentRelationship();
+
+	/**
+	 * Forward-only cursor over the relationships (MySQL needs useCursorFetch=true to honor the fetch size).
+	 * Must be consumed inside a transaction and closed afterwards.
+	 */
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT scv FROM StudentCourseView scv " +
+		"ORDER BY student, course")
+	Stream<StudentCourseView> streamStudentCourseRelationship();
+
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT scv FROM StudentCourseView scv " +
+		"ORDER BY course, student")
+	Stream<StudentCourseView> streamCourseStudentRelationship();
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.studentId = :studentId")
+	int deleteCoursesByStudent(Long studentId);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.courseId = :courseId")
+	int deleteStudentsByCourse(Long courseId);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.studentId IN :studentIds")
+	int deleteByStudents(Collection<Long> studentIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.courseId IN :courseIds")
+	int deleteByCourses(Collection<Long> courseIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.studentId = :studentId AND scv.id.courseId IN :courseIds")
+	int deleteStudentCourses(Long studentId, Collection<Long> courseIds);
+
+	@Modifying
+	@Query("DELETE FROM StudentCourseView scv " +
+		"WHERE scv.id.courseId = :courseId AND scv.id.studentId IN :studentIds")
+	int deleteCourseStudents(Long courseId, Collection<Long> studentIds);
+
+	@Modifying
+	@Query("UPDATE StudentCourseView scv SET scv.student = :name " +
+		"WHERE scv.id.studentId = :studentId")
+	int renameStudent(Long studentId, String name);
+
+	@Modifying
+	@Query("UPDATE StudentCourseView scv SET scv.course = :name " +
+		"WHERE scv.id.courseId = :courseId")
+	int renameCourse(Long courseId, String name);
 }
@@ -2,18 +2,142 @@ package com.school.management.repository;
 
 import com.school.management.model.Course;
 import com.school.management.model.Student;
+import com.school.management.model.dto.StudentDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentRepositoryCustom {
+	/**
+	 * The listings select the DTO columns only, so no entity is loaded into the persistence context.
+	 */
+	String DTO = "new com.school.management.model.dto.StudentDto(s.id, s.name, s.address, s.createdAt, s.updatedAt, s.version)";
+
+	/**
+	 * Keyset page ordered by id. The name prefix must have its LIKE wildcards escaped with '!'.
+	 */
+	String PAGE = "FROM Student s " +
+		"WHERE s.id > :cursor " +
+		"AND (:namePrefix IS NULL OR s.name LIKE CONCAT(:namePrefix, '%') ESCAPE '!') " +
+		"AND (:createdFrom IS NULL OR s.createdAt >= :createdFrom) " +
+		"AND (:createdTo IS NULL OR s.createdAt < :createdTo) " +
+		"ORDER BY s.id";
+
+	String WITHOUT_COURSE_PAGE = "FROM Student s LEFT JOIN s.studentCourse sc " +
+		"WHERE sc.student IS NULL " +
+		"AND s.id > :cursor " +
+		"AND (:namePrefix IS NULL OR s.name LIKE CONCAT(:namePrefix, '%') ESCAPE '!') " +
+		"AND (:createdFrom IS NULL OR s.createdAt >= :createdFrom) " +
+		"AND (:createdTo IS NULL OR s.createdAt < :createdTo) " +
+		"ORDER BY s.id";
+
+	String BY_IDS = "FROM Student s WHERE s.id IN :ids";
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
-	@Query("SELECT s FROM Student s LEFT JOIN s.studentCourse sc " +
+	@Query("SELECT " + DTO + " FROM Student s LEFT JOIN s.studentCourse sc " +
 		"WHERE sc.course = :course")
-	List<Student> getStudentsByCourse(@Param("course") Course course);
+	List<StudentDto> getStudentsByCourse(@Param("course") Course course);
+
+	@Query("SELECT " + DTO + " " + PAGE)
+	List<StudentDto> getStudentsPage(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo, Pageable pageable);
+
+	@Query("SELECT " + DTO + " " + WITHOUT_COURSE_PAGE)
+	List<StudentDto> getStudentsWithoutCoursePage(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo, Pageable pageable);
+
+	/**
+	 * Whole listings read with a forward-only cursor (MySQL needs useCursorFetch=true to honor the fetch size).
+	 * Must be consumed inside a transaction and closed afterwards.
+	 */
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT " + DTO + " " + PAGE)
+	Stream<StudentDto> streamStudents(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo);
+
+	@QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+	@Query("SELECT " + DTO + " " + WITHOUT_COURSE_PAGE)
+	Stream<StudentDto> streamStudentsWithoutCourse(@Param("cursor") Long cursor, @Param("namePrefix") String namePrefix, @Param("createdFrom") Timestamp createdFrom, @Param("createdTo") Timestamp createdTo);
+
+	@Query("SELECT " + DTO + " " + BY_IDS)
+	List<StudentDto> getStudentsByIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Search without the in-memory index: the name or the address has a word starting with the text (case-insensitive).
+	 * The text must have its LIKE wildcards escaped with '!'.
+	 */
+	@Query("SELECT " + DTO + " FROM Student s " +
+		"WHERE LOWER(s.name) LIKE LOWER(CONCAT(:text, '%')) ESCAPE '!' OR LOWER(s.name) LIKE LOWER(CONCAT('% ', :text, '%')) ESCAPE '!' " +
+		"OR LOWER(s.address) LIKE LOWER(CONCAT(:text, '%')) ESCAPE '!' OR LOWER(s.address) LIKE LOWER(CONCAT('% ', :text, '%')) ESCAPE '!' " +
+		"ORDER BY s.id")
+	List<StudentDto> searchStudents(@Param("text") String text, Pageable pageable);
+
+	/**
+	 * Course counters: conditional atomic updates, so concurrent enrollments can not exceed the limit of courses.
+	 * All of them return the number of updated students.
+	 */
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = s.courseCount + 1 " +
+		"WHERE s.id IN :studentIds AND s.courseCount < :max")
+	int incrementCourseCount(@Param("studentIds") Collection<Long> studentIds, @Param("max") int max);
+
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = s.courseCount - 1 " +
+		"WHERE s.id IN :studentIds")
+	int decrementCourseCount(@Param("studentIds") Collection<Long> studentIds);
+
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = s.courseCount + :delta " +
+		"WHERE s.id = :id AND s.courseCount + :delta <= :max")
+	int addToCourseCount(@Param("id") Long id, @Param("delta") int delta, @Param("max") int max);
+
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = s.courseCount - 1 " +
+		"WHERE s.id IN (SELECT sc.student.id FROM StudentCourse sc WHERE sc.course = :course)")
+	int decrementCourseCountByCourse(@Param("course") Course course);
+
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = s.courseCount - " +
+		"(SELECT COUNT(sc) FROM StudentCourse sc WHERE sc.student = s AND sc.course.id IN :courseIds) " +
+		"WHERE s.id IN (SELECT sc.student.id FROM StudentCourse sc WHERE sc.course.id IN :courseIds)")
+	int decrementCourseCountByCourses(@Param("courseIds") Collection<Long> courseIds);
+
+	@Query("SELECT s.id FROM Student s")
+	List<Long> getIds();
+
+	@Query("SELECT s.id FROM Student s ORDER BY s.id")
+	List<Long> getIds(Pageable pageable);
+
+	@Modifying
+	@Query("DELETE FROM Student s WHERE s.id IN :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Changes the version of the students whose courses were changed through a course (PUT /courses/{id}/students),
+	 * so the If-Match of a student write fails on it as on a change through the student.
+	 */
+	@Modifying
+	@Query("UPDATE Student s SET s.version = s.version + 1 WHERE s.id IN :ids")
+	int incrementVersion(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Backfill of the counter column for students created before it existed.
+	 */
+	@Modifying
+	@Query("UPDATE Student s SET s.courseCount = (SELECT COUNT(sc) FROM StudentCourse sc WHERE sc.student = s) " +
+		"WHERE s.courseCount IS NULL")
+	int initializeCourseCount();
 
-	@Query("SELECT s FROM Student s LEFT JOIN s.studentCourse sc " +
-		"WHERE sc.student IS NULL")
-	List<Student> getStudentsWithoutCourse();
+	@Modifying
+	@Query("UPDATE Student s SET s.version = 0 WHERE s.version IS NULL")
+	int initializeVersion();
 }
@@ -0,0 +1,21 @@
+package com.school.management.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The listings of {@link StudentRepository} selecting only some of the fields (sparse fieldsets), each row as a map of
+ * field name to value. The fields must be attribute names of Student.
+ */
+public interface StudentRepositoryCustom {
+
+	List<Map<String, Object>> getStudentsPage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable);
+
+	List<Map<String, Object>> getStudentsWithoutCoursePage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable);
+
+	List<Map<String, Object>> getStudentsByIds(Collection<String> fields, Collection<Long> ids);
+}
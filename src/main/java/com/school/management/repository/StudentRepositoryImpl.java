@@ -0,0 +1,44 @@
+package com.school.management.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+class StudentRepositoryImpl implements StudentRepositoryCustom {
+
+	private final EntityManager entityManager;
+
+	StudentRepositoryImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public List<Map<String, Object>> getStudentsPage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable) {
+		return page(fields, StudentRepository.PAGE, cursor, namePrefix, createdFrom, createdTo, pageable);
+	}
+
+	@Override
+	public List<Map<String, Object>> getStudentsWithoutCoursePage(Collection<String> fields, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable) {
+		return page(fields, StudentRepository.WITHOUT_COURSE_PAGE, cursor, namePrefix, createdFrom, createdTo, pageable);
+	}
+
+	@Override
+	public List<Map<String, Object>> getStudentsByIds(Collection<String> fields, Collection<Long> ids) {
+		return new FieldsQuery(entityManager, "s", fields, StudentRepository.BY_IDS)
+			.param("ids", ids)
+			.list(Pageable.unpaged());
+	}
+
+	private List<Map<String, Object>> page(Collection<String> fields, String query, Long cursor, String namePrefix, Timestamp createdFrom, Timestamp createdTo, Pageable pageable) {
+		return new FieldsQuery(entityManager, "s", fields, query)
+			.param("cursor", cursor)
+			.param("namePrefix", namePrefix)
+			.param("createdFrom", createdFrom)
+			.param("createdTo", createdTo)
+			.list(pageable);
+	}
+}
@@ -0,0 +1,143 @@
+package com.school.management.rest;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.avro.AvroMapper;
+import com.fasterxml.jackson.dataformat.avro.AvroSchema;
+import com.school.management.model.dto.FieldsRow;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the responses as an Avro object container (application/avro): the schema of the rows, generated from their
+ * class, followed by the rows in Avro binary encoding. A collection is written as one row per element, any other body
+ * as a single row. Dates are written as epoch milliseconds.
+ * <p>
+ * The rows of a sparse fieldset ({@link FieldsRow}) get a record schema with the requested fields, typed by the
+ * attribute types. Requests can not be read in this format.
+ */
+public class AvroHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	public static final String APPLICATION_AVRO_VALUE = "application/avro";
+	public static final MediaType APPLICATION_AVRO = MediaType.parseMediaType(APPLICATION_AVRO_VALUE);
+
+	//row class --> schema
+	private final Map<Class<?>, AvroSchema> schemas = new ConcurrentHashMap<>();
+	//sparse fieldset: field --> type, to schema
+	private final Map<Map<String, Class<?>>, AvroSchema> fieldsSchemas = new ConcurrentHashMap<>();
+	private final AvroMapper mapper = new AvroMapper();
+
+	public AvroHttpMessageConverter() {
+		super(APPLICATION_AVRO);
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		//a map body is an error response (the sparse fieldset rows are maps inside a list)
+		return !Map.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+		Collection<?> rows = body instanceof Collection ? (Collection<?>) body : List.of(body);
+		Object first = rows.isEmpty() ? null : rows.iterator().next();
+		AvroSchema schema = first instanceof FieldsRow ? schemaOf((FieldsRow) first) : schemaOf(rowClass(first, type));
+		ObjectWriter writer = mapper.writer(schema);
+
+		RowBuffer buffer = new RowBuffer();
+		try (DataFileWriter<Object> container = new DataFileWriter<>(new GenericDatumWriter<>())) {
+			container.create(schema.getAvroSchema(), StreamUtils.nonClosing(outputMessage.getBody()));
+			for (Object row : rows) {
+				buffer.reset();
+				writer.writeValue(buffer, row);
+				container.appendEncoded(buffer.contents());
+			}
+		}
+	}
+
+	/**
+	 * Encoded row, reused for all the rows of a response.
+	 */
+	private static class RowBuffer extends ByteArrayOutputStream {
+		ByteBuffer contents() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * @return the class of the rows, from the declared element type of an empty collection (null when unknown).
+	 */
+	private static Class<?> rowClass(Object first, Type type) {
+		if (first != null) {
+			return first.getClass();
+		}
+		ResolvableType declared = ResolvableType.forType(type);
+		return declared.asCollection() == ResolvableType.NONE ? declared.resolve() : declared.asCollection().resolveGeneric(0);
+	}
+
+	private AvroSchema schemaOf(Class<?> rowClass) {
+		if (rowClass == null || rowClass == Object.class) {
+			return new AvroSchema(SchemaBuilder.record("Empty").fields().endRecord());
+		}
+		return schemas.computeIfAbsent(rowClass, c -> {
+			try {
+				return mapper.schemaFor(c);
+			} catch (IOException e) {
+				throw new HttpMessageNotWritableException("No Avro schema for " + c.getName(), e);
+			}
+		});
+	}
+
+	private AvroSchema schemaOf(FieldsRow row) {
+		return fieldsSchemas.computeIfAbsent(row.getTypes(), types -> {
+			SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("Row").fields();
+			types.forEach((name, javaType) -> {
+				SchemaBuilder.BaseTypeBuilder<SchemaBuilder.UnionAccumulator<SchemaBuilder.NullDefault<Schema>>> type = fields.name(name).type().unionOf().nullType().and();
+				if (javaType == Integer.class || javaType == int.class) {
+					type.intType().endUnion().nullDefault();
+				} else if (Number.class.isAssignableFrom(javaType) || javaType == long.class || Date.class.isAssignableFrom(javaType)) {
+					type.longType().endUnion().nullDefault();
+				} else if (javaType == Boolean.class || javaType == boolean.class) {
+					type.booleanType().endUnion().nullDefault();
+				} else {
+					type.stringType().endUnion().nullDefault();
+				}
+			});
+			return new AvroSchema(fields.endRecord());
+		});
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Avro requests are not supported.", inputMessage);
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Avro requests are not supported.", inputMessage);
+	}
+}
@@ -0,0 +1,47 @@
+package com.school.management.rest;
+
+import com.school.management.model.dto.ChangeDto;
+import com.school.management.model.dto.PageDto;
+import com.school.management.service.ChangeFeed;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+
+	private final ChangeFeed changeFeed;
+
+	public ChangeController(ChangeFeed changeFeed) {
+		this.changeFeed = changeFeed;
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Ex: /changes?since=1500 --> the creations, updates and deletions of students, courses and enrollments committed
+	 * after the change 1500. A consumer keeps the id of the last change it applied and reads from it on the next sync,
+	 * then fetches the changed rows (ex: /students/?ids=1,2,3). The cursor of the next page is sent in the
+	 * {@value PageDto#NEXT_CURSOR_HEADER} header (absent on the last page).
+	 *
+	 * @param since = return only the changes with id greater than this one (default: from the first change).
+	 * @param limit = maximum number of changes in the page.
+	 * @return the changes, in commit order.
+	 */
+	@GetMapping
+	public ResponseEntity<List<ChangeDto>> getChanges(@RequestParam Optional<Long> since, @RequestParam Optional<Integer> limit) {
+		PageDto<ChangeDto> page = changeFeed.getChanges(since.orElse(null), limit.orElse(null));
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNext() != null) {
+			response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+		}
+		return response.body(page.getContent());
+	}
+}
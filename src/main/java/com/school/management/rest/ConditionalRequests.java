@@ -0,0 +1,113 @@
+package com.school.management.rest;
+
+import com.school.management.service.ResourceVersions;
+import com.school.management.service.ResourceVersions.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Validators (ETag and Last-Modified) of the GET responses, so If-None-Match/If-Modified-Since are answered with 304.
+ * Entities and rosters are validated by the cached DTOs (Spring skips the serialization), the listings by the
+ * collection-level versions (the listing is not even queried).
+ * <p>
+ * The ETag of a student or course carries its optimistic lock version, so a client that read it can make its PUT
+ * conditional with If-Match (see {@link #requiredVersion}).
+ * <p>
+ * Every ETag ends with the variant of the representation (ex: "1-3-cbor", see {@link ResponseFormats}), except the
+ * JSON one, so the formats of the same URL never share a strong ETag.
+ */
+final class ConditionalRequests {
+
+	private ConditionalRequests() {
+	}
+
+	/**
+	 * @param variant = the variant of the representation ("" for JSON).
+	 * @return a 200 response for an entity, validated by its id and version (and its update time).
+	 */
+	static <T> ResponseEntity<T> of(T dto, Long id, Long version, Timestamp updatedAt, String variant) {
+		return ResponseEntity.ok()
+			.eTag(eTag("\"" + id + "-" + (version == null ? 0 : version) + "\"", variant))
+			.lastModified(millis(updatedAt))
+			.body(dto);
+	}
+
+	/**
+	 * Accepts the ETag of any representation of the entity.
+	 *
+	 * @param ifMatch = the If-Match header of a PUT, with the ETag returned by the GET of the entity.
+	 * @return the version the entity must still have for the update to be applied, or null when any version is
+	 * accepted (no header or "*").
+	 * @throws ResponseStatusException (412) when no ETag of the header can match the entity, ex: a weak one.
+	 */
+	static Long requiredVersion(Optional<String> ifMatch, Long id) {
+		if (ifMatch.isEmpty() || ifMatch.get().trim().equals("*")) {
+			return null;
+		}
+		String prefix = "\"" + id + "-";
+		for (String eTag : ifMatch.get().split(",")) {
+			eTag = eTag.trim();
+			if (eTag.startsWith(prefix) && eTag.endsWith("\"") && eTag.length() > prefix.length() + 1) {
+				String version = eTag.substring(prefix.length(), eTag.length() - 1);
+				try {
+					return Long.valueOf(version.contains("-") ? version.substring(0, version.indexOf('-')) : version);
+				} catch (NumberFormatException e) {
+					//not an ETag of this entity
+				}
+			}
+		}
+		throw new ResponseStatusException(
+			HttpStatus.PRECONDITION_FAILED, "The If-Match header does not match the current version.");
+	}
+
+	//"tag" --> "tag-variant"
+	private static String eTag(String eTag, String variant) {
+		return variant.isEmpty() ? eTag : eTag.substring(0, eTag.length() - 1) + "-" + variant + "\"";
+	}
+
+	/**
+	 * @param lastChange = epoch millis of the last change of the list that its rows may not reflect (ex: a removal).
+	 * @param variant    = the variant of the representation ("" for JSON).
+	 * @return a 200 response for a list, validated by the ids and update times of its rows.
+	 */
+	static <T> ResponseEntity<List<T>> of(List<T> rows, Function<T, Long> id, Function<T, Timestamp> updatedAt, long lastChange, String variant) {
+		long hash = 17;
+		long lastModified = lastChange;
+		for (T row : rows) {
+			hash = 31 * hash + id.apply(row);
+			hash = 31 * hash + version(updatedAt.apply(row));
+			lastModified = Math.max(lastModified, millis(updatedAt.apply(row)));
+		}
+		return ResponseEntity.ok()
+			.eTag(eTag("\"" + rows.size() + "-" + Long.toHexString(hash) + "\"", variant))
+			.lastModified(lastModified)
+			.body(rows);
+	}
+
+	/**
+	 * Checks the request against the collection-level versions of the resources a listing depends on, before the
+	 * listing is queried. Sets the validators on the response.
+	 *
+	 * @param variant = the variant of the representation ("" for JSON).
+	 * @return true when the response is a 304 and the handler must return null.
+	 */
+	static boolean isNotModified(WebRequest request, String variant, ResourceVersions versions, Resource... resources) {
+		return request.checkNotModified(eTag(versions.getETag(resources), variant), versions.getLastModified(resources));
+	}
+
+	//microsecond precision, as stored by the database
+	private static long version(Timestamp updatedAt) {
+		return updatedAt == null ? 0 : updatedAt.getTime() / 1000 * 1_000_000 + updatedAt.getNanos() / 1000;
+	}
+
+	private static long millis(Timestamp updatedAt) {
+		return updatedAt == null ? 0 : updatedAt.getTime();
+	}
+}
@@ -1,15 +1,32 @@
 package com.school.management.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.model.Job.Priority;
 import com.school.management.model.StudentCourseView;
 import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ImportReportDto;
+import com.school.management.model.dto.JobDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
 import com.school.management.model.dto.StudentCourseDto;
 import com.school.management.model.dto.StudentDto;
 import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.ResourceVersions;
+import com.school.management.service.ResourceVersions.Resource;
 import com.school.management.service.StudentService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,26 +37,83 @@ public class CourseController {
 
 	private final StudentService studentService;
 	private final CourseService courseService;
+	private final ImportService importService;
+	private final ResourceVersions versions;
+	private final ObjectMapper objectMapper;
+	private final ResponseFormats formats;
 
-	public CourseController(StudentService studentService, CourseService courseService) {
+	public CourseController(StudentService studentService, CourseService courseService, ImportService importService, ResourceVersions versions, ObjectMapper objectMapper, ResponseFormats formats) {
 		this.studentService = studentService;
 		this.courseService = courseService;
+		this.importService = importService;
+		this.versions = versions;
+		this.objectMapper = objectMapper;
+		this.formats = formats;
 	}
 
 	/**
 	 * GET methods (retrieving info)
+	 * <p>
+	 * Responses carry an ETag and a Last-Modified header; If-None-Match and If-Modified-Since are answered with 304.
  	*/
 
 	/**
 	 * HTTP method: GET
+	 * <p>
+	 * The list is ordered by id. Informing a cursor or a limit returns a single page, and the cursor for
+	 * the next page is sent in the {@value PageDto#NEXT_CURSOR_HEADER} header (absent on the last page).
+	 * Otherwise the whole JSON list is streamed as it is read from the database (gzipped when the client accepts it).
 	 *
 	 * @param withoutStudents = true --> return the list of courses without any student (default: false).
+	 * @param cursor          = return only courses with id greater than the cursor.
+	 * @param limit           = maximum number of courses in the page.
+	 * @param name            = return only courses whose name starts with the informed prefix.
+	 * @param createdFrom     = return only courses created at or after the instant (ISO-8601, ex: 2022-08-01T00:00:00Z).
+	 * @param createdTo       = return only courses created before the instant (ISO-8601).
+	 * @param fields          = return only the informed fields of each course, ex: fields=name,capacity (default: all). The id is always returned.
+	 * @param ids             = return only the courses of the ids (ex: ids=1,2,3), ordered by id, with one query. The other filters are ignored.
 	 * @return the list of courses.
 	 */
 	@GetMapping(value = "/")
-	@ResponseStatus(HttpStatus.OK)
-	public List<CourseDto> getCourses(@RequestParam(name = "without-students") Optional<Boolean> withoutStudents) {
-		return withoutStudents.orElse(false) ? courseService.getCoursesWithoutStudent() : courseService.getCourses();
+	public ResponseEntity<?> getCourses(@RequestParam(name = "without-students") Optional<Boolean> withoutStudents, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo, @RequestParam Optional<List<String>> fields, @RequestParam Optional<List<Long>> ids, NativeWebRequest request) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		fields.ifPresent(filter::setFields);
+		boolean streamed = ids.isEmpty() && !filter.isPaged() && !fields.isPresent() && formats.prefersJson(request);
+		if (ConditionalRequests.isNotModified(request, streamed ? StreamingResponses.variantOf(request, "") : formats.variantOf(request), versions, Resource.COURSES, Resource.ENROLLMENTS)) {
+			return null;
+		}
+		if (ids.isPresent()) {
+			return ResponseEntity.ok(fields.isPresent() ? courseService.getCourseFieldsByIds(ids.get(), filter) : courseService.getCoursesByIds(ids.get()));
+		}
+		if (streamed) {
+			return StreamingResponses.<CourseDto>jsonArray(objectMapper, request, rows -> courseService.streamCourses(filter, withoutStudents.orElse(false), rows));
+		}
+		PageDto<?> page = fields.isPresent() ? courseService.getCourseFields(filter, withoutStudents.orElse(false))
+			: withoutStudents.orElse(false) ? courseService.getCoursesWithoutStudent(filter) : courseService.getCourses(filter);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNext() != null) {
+			response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+		}
+		return response.body(page.getContent());
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Ex: /courses/search?q=adv mat --> courses with a word starting with "adv" and a word starting with "mat" in the
+	 * name, ignoring case and accents.
+	 *
+	 * @param q     = the words typed so far.
+	 * @param limit = maximum number of courses returned (default: 10).
+	 * @return the matching courses, ordered by id.
+	 */
+	@GetMapping(value = "/search")
+	public ResponseEntity<List<CourseDto>> searchCourses(@RequestParam String q, @RequestParam Optional<Integer> limit, NativeWebRequest request) {
+		if (ConditionalRequests.isNotModified(request, formats.variantOf(request), versions, Resource.COURSES)) {
+			return null;
+		}
+		return ResponseEntity.ok(courseService.searchCourses(q, limit.orElse(null)));
 	}
 
 	/**
@@ -49,9 +123,9 @@ public class CourseController {
 	 * @return course info related to the id.
 	 */
 	@GetMapping(value = "/{id}")
-	@ResponseStatus(HttpStatus.OK)
-	public CourseDto getCourse(@PathVariable Long id) {
-		return courseService.getCourse(id);
+	public ResponseEntity<CourseDto> getCourse(@PathVariable Long id, NativeWebRequest request) {
+		CourseDto course = courseService.getCourse(id);
+		return ConditionalRequests.of(course, course.getId(), course.getVersion(), course.getUpdatedAt(), formats.variantOf(request));
 	}
 
 	/**
@@ -61,18 +135,39 @@ public class CourseController {
 	 * @return list of students enrolled in the course.
 	 */
 	@GetMapping(value = "/{id}/students")
-	@ResponseStatus(HttpStatus.OK)
-	public List<StudentDto> getStudentsFromCourse(@PathVariable Long id) {
-		return studentService.getStudentsByCourse(id);
+	public ResponseEntity<List<StudentDto>> getStudentsFromCourse(@PathVariable Long id, NativeWebRequest request) {
+		return ConditionalRequests.of(studentService.getStudentsByCourse(id), StudentDto::getId, StudentDto::getUpdatedAt, versions.getLastModified(Resource.ENROLLMENTS), formats.variantOf(request));
 	}
 
 	/**
+	 * The JSON list is streamed as it is read from the database (gzipped when the client accepts it).
+	 *
 	 * @return list of relationships between students and courses, ordered by course and student.
 	 */
 	@GetMapping(value = "/students")
-	@ResponseStatus(HttpStatus.OK)
-	public List<StudentCourseView> getRelations() {
-		return courseService.getCourseStudentRelationship();
+	public ResponseEntity<?> getRelations(NativeWebRequest request) {
+		boolean streamed = formats.prefersJson(request);
+		if (ConditionalRequests.isNotModified(request, streamed ? StreamingResponses.variantOf(request, "") : formats.variantOf(request), versions, Resource.values())) {
+			return null;
+		}
+		if (streamed) {
+			return StreamingResponses.jsonArray(objectMapper, request, courseService::streamCourseStudentRelationship);
+		}
+		return ResponseEntity.ok(courseService.getCourseStudentRelationship());
+	}
+
+	/**
+	 * HTTP method: GET (Accept: application/x-ndjson)
+	 *
+	 * @return the relationships between students and courses, ordered by course and student, streamed one JSON object
+	 * per line as they are read from the database.
+	 */
+	@GetMapping(value = "/students", produces = StreamingResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamRelations(NativeWebRequest request) {
+		if (ConditionalRequests.isNotModified(request, StreamingResponses.variantOf(request, StreamingResponses.NDJSON_VARIANT), versions, Resource.values())) {
+			return null;
+		}
+		return StreamingResponses.ndjson(objectMapper, request, courseService::streamCourseStudentRelationship);
 	}
 
 	/**
@@ -81,21 +176,27 @@ public class CourseController {
 
 	/**
 	 * HTTP method: PUT
+	 * <p>
+	 * With If-Match (the ETag of GET /courses/{id}), the update is only applied if the course was not changed since
+	 * it was read, otherwise the response is a 412.
 	 *
 	 * @param id        = the course id.
 	 * @param courseDto = JSON containing the course's name to be updated.
 	 *                  Ex: {"name":"Calculus"}
-	 * @return the course's info updated.
+	 * @return the course's info updated, with the ETag of its new version.
 	 */
 	@PutMapping(value = "/{id}")
-	@ResponseStatus(HttpStatus.OK)
-	public CourseDto updateCourse(@PathVariable Long id, @RequestBody CourseDto courseDto) {
+	public ResponseEntity<CourseDto> updateCourse(@PathVariable Long id, @RequestBody CourseDto courseDto, @RequestHeader(HttpHeaders.IF_MATCH) Optional<String> ifMatch, NativeWebRequest request) {
 		courseDto.setId(id);
-		return courseService.updateCourse(courseDto);
+		CourseDto course = courseService.updateCourse(courseDto, ConditionalRequests.requiredVersion(ifMatch, id));
+		return ConditionalRequests.of(course, course.getId(), course.getVersion(), course.getUpdatedAt(), formats.variantOf(request));
 	}
 
 	/**
 	 * HTTP method: PUT
+	 * <p>
+	 * With If-Match (the ETag of GET /courses/{id}), the students are only replaced if the course was not changed
+	 * since it was read, otherwise the response is a 412.
 	 *
 	 * @param id         = the course id.
 	 * @param studentIds = the ids of the students to be enrolled in the course. Limited to 50 students
@@ -104,8 +205,8 @@ public class CourseController {
 	 */
 	@PutMapping(value = "/{id}/students")
 	@ResponseStatus(HttpStatus.OK)
-	public List<StudentCourseDto> updateCourseStudents(@PathVariable Long id, @RequestBody List<Long> studentIds) {
-		return courseService.updateCourseStudents(id, studentIds);
+	public List<StudentCourseDto> updateCourseStudents(@PathVariable Long id, @RequestBody List<Long> studentIds, @RequestHeader(HttpHeaders.IF_MATCH) Optional<String> ifMatch) {
+		return courseService.updateCourseStudents(id, studentIds, ConditionalRequests.requiredVersion(ifMatch, id));
 	}
 
 	/**
@@ -125,6 +226,24 @@ public class CourseController {
 		return courseService.createCourses(courseDtoList);
 	}
 
+	/**
+	 * HTTP method: POST (Content-Type: text/csv or application/x-ndjson)
+	 * <p>
+	 * Registers courses from a file of any size. Rows are validated with the same rules as the JSON endpoint;
+	 * invalid rows are skipped and reported instead of failing the whole import.
+	 *
+	 * @param contentType = text/csv (a header line followed by one course per line) or application/x-ndjson
+	 *                    (one JSON object per line, of at most school.bulk-import.max-line-length characters, or 413).
+	 * @param body        = the rows to import, with the name and capacity (optional).
+	 *                    Ex: name,capacity\nAlgebra,40
+	 * @return the number of imported and rejected rows, and the reasons of the first rejects.
+	 */
+	@PostMapping(value = "/import", consumes = {ImportService.TEXT_CSV_VALUE, StreamingResponses.APPLICATION_NDJSON_VALUE})
+	@ResponseStatus(HttpStatus.OK)
+	public ImportReportDto importCourses(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+		return importService.importCourses(body, contentType);
+	}
+
 	/**
 	 * DELETE methods (removing info)
 	 */
@@ -134,11 +253,12 @@ public class CourseController {
 	 *
 	 * @param confirmDeletion = true --> deletes all the courses, and student-courses relations.
 	 *                        The student table will not be modified.  (default: false)
+	 * @param priority        = LOW, NORMAL or HIGH: the queued jobs with higher priority run first (default: NORMAL).
+	 * @return 202 with the deletion job, which runs in the background. Its status is polled at the Location (/jobs/{id}).
 	 */
 	@DeleteMapping(value = "/")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void deleteCourses(@RequestParam(name = "confirm-deletion") Optional<Boolean> confirmDeletion) {
-		courseService.deleteAllCourses(confirmDeletion.orElse(false));
+	public ResponseEntity<JobDto> deleteCourses(@RequestParam(name = "confirm-deletion") Optional<Boolean> confirmDeletion, @RequestParam Optional<Priority> priority) {
+		return JobController.accepted(courseService.deleteAllCourses(confirmDeletion.orElse(false), priority.orElse(Priority.NORMAL)));
 	}
 
 	/**
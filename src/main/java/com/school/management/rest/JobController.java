@@ -0,0 +1,43 @@
+package com.school.management.rest;
+
+import com.school.management.model.dto.JobDto;
+import com.school.management.service.Jobs;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+	private final Jobs jobs;
+
+	public JobController(Jobs jobs) {
+		this.jobs = jobs;
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Ex: /jobs/3 --> the status of the background job 3 (ex: a deletion of all students), with the number of rows
+	 * processed so far and, once it succeeded, its result.
+	 *
+	 * @param id = the job id.
+	 * @return the job status.
+	 */
+	@GetMapping(value = "/{id}")
+	public JobDto getJob(@PathVariable Long id) {
+		return jobs.getJob(id);
+	}
+
+	/**
+	 * @return 202 with the submitted job, located at /jobs/{id}.
+	 */
+	static ResponseEntity<JobDto> accepted(JobDto job) {
+		return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
+	}
+}
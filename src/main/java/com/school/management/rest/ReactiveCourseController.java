@@ -0,0 +1,93 @@
+package com.school.management.rest;
+
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.ReactiveCourseService;
+import com.school.management.service.ReactiveStudentService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking version of the GET methods of {@link CourseController}, enabled by the profile "reactive",
+ * see {@link ReactiveStudentController}.
+ */
+@Controller
+@RestController
+@Profile("reactive")
+@RequestMapping("/reactive/courses")
+public class ReactiveCourseController {
+
+	private final ReactiveStudentService studentService;
+	private final ReactiveCourseService courseService;
+
+	public ReactiveCourseController(ReactiveStudentService studentService, ReactiveCourseService courseService) {
+		this.studentService = studentService;
+		this.courseService = courseService;
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Same as GET /courses/ (without sparse fieldsets).
+	 *
+	 * @return the list of courses.
+	 */
+	@GetMapping(value = "/")
+	public Mono<ResponseEntity<List<CourseDto>>> getCourses(@RequestParam(name = "without-students") Optional<Boolean> withoutStudents, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		return courseService.getCourses(filter, withoutStudents.orElse(false)).map(page -> {
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.getNext() != null) {
+				response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+			}
+			return response.body(page.getContent());
+		});
+	}
+
+	/**
+	 * HTTP method: GET (Accept: application/stream+json)
+	 * <p>
+	 * Same courses as the JSON listing, one JSON object per line, with backpressure (see {@link ReactiveStudentController#streamStudents}).
+	 *
+	 * @return the courses, streamed.
+	 */
+	@GetMapping(value = "/", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+	public Flux<CourseDto> streamCourses(@RequestParam(name = "without-students") Optional<Boolean> withoutStudents, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		return courseService.streamCourses(filter, withoutStudents.orElse(false));
+	}
+
+	/**
+	 * HTTP method: GET
+	 *
+	 * @param id = the course id.
+	 * @return course info related to the id.
+	 */
+	@GetMapping(value = "/{id}")
+	public Mono<CourseDto> getCourse(@PathVariable Long id) {
+		return courseService.getCourse(id);
+	}
+
+	/**
+	 * HTTP method: GET
+	 *
+	 * @param id = the course id.
+	 * @return list of students enrolled in the course, ordered by id.
+	 */
+	@GetMapping(value = "/{id}/students")
+	public Flux<StudentDto> getStudentsFromCourse(@PathVariable Long id) {
+		return studentService.getStudentsByCourse(id);
+	}
+}
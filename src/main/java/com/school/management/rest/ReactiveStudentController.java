@@ -0,0 +1,98 @@
+package com.school.management.rest;
+
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.ReactiveCourseService;
+import com.school.management.service.ReactiveStudentService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking version of the GET methods of {@link StudentController}, enabled by the profile "reactive".
+ * <p>
+ * The servlet thread is released as soon as the query is sent: the response is written when the database driver
+ * publishes the rows, so slow listings do not hold the Tomcat threads needed by the enrollments.
+ * Same parameters and responses as the blocking endpoints, without the conditional requests (ETag, 304).
+ */
+@Controller
+@RestController
+@Profile("reactive")
+@RequestMapping("/reactive/students")
+public class ReactiveStudentController {
+
+	private final ReactiveStudentService studentService;
+	private final ReactiveCourseService courseService;
+
+	public ReactiveStudentController(ReactiveStudentService studentService, ReactiveCourseService courseService) {
+		this.studentService = studentService;
+		this.courseService = courseService;
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Same as GET /students/ (without sparse fieldsets).
+	 *
+	 * @return the list of students.
+	 */
+	@GetMapping(value = "/")
+	public Mono<ResponseEntity<List<StudentDto>>> getStudents(@RequestParam(name = "without-courses") Optional<Boolean> withoutCourses, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		return studentService.getStudents(filter, withoutCourses.orElse(false)).map(page -> {
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.getNext() != null) {
+				response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+			}
+			return response.body(page.getContent());
+		});
+	}
+
+	/**
+	 * HTTP method: GET (Accept: application/stream+json)
+	 * <p>
+	 * Same students as the JSON listing, one JSON object per line. Rows are requested from the database as the previous
+	 * ones are written to the socket (backpressure), so a slow client never makes the listing pile up in memory.
+	 * No {@value PageDto#NEXT_CURSOR_HEADER} header: the next page starts after the id of the last student received.
+	 *
+	 * @return the students, streamed.
+	 */
+	@GetMapping(value = "/", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+	public Flux<StudentDto> streamStudents(@RequestParam(name = "without-courses") Optional<Boolean> withoutCourses, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		return studentService.streamStudents(filter, withoutCourses.orElse(false));
+	}
+
+	/**
+	 * HTTP method: GET
+	 *
+	 * @param id = the student id.
+	 * @return student info related to the id.
+	 */
+	@GetMapping(value = "/{id}")
+	public Mono<StudentDto> getStudent(@PathVariable Long id) {
+		return studentService.getStudent(id);
+	}
+
+	/**
+	 * HTTP method: GET
+	 *
+	 * @param id = the student id.
+	 * @return list of courses the student is enrolled, ordered by id.
+	 */
+	@GetMapping(value = "/{id}/courses")
+	public Flux<CourseDto> getCoursesFromStudent(@PathVariable Long id) {
+		return courseService.getCoursesByStudent(id);
+	}
+}
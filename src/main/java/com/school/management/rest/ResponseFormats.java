@@ -0,0 +1,80 @@
+package com.school.management.rest;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The format of a response body (see MessageFormatsConfig), negotiated before the response is built, with the media
+ * types the configured {@link ContentNegotiationManager} resolves for the request (the Accept header).
+ * <p>
+ * A strong ETag identifies the bytes of one representation, so the CBOR, Smile and Avro representations are told apart
+ * by a variant appended to their ETags (see {@link ConditionalRequests}). JSON has no variant.
+ */
+@Component
+class ResponseFormats {
+
+	//format --> variant, in the order of the converters: the first one is chosen for Accept: */*
+	private static final Map<MediaType, String> VARIANTS = new LinkedHashMap<>();
+
+	static {
+		VARIANTS.put(MediaType.APPLICATION_JSON, "");
+		VARIANTS.put(MediaType.APPLICATION_CBOR, "cbor");
+		VARIANTS.put(MediaType.parseMediaType("application/x-jackson-smile"), "smile");
+		VARIANTS.put(AvroHttpMessageConverter.APPLICATION_AVRO, "avro");
+	}
+
+	private final ContentNegotiationManager contentNegotiationManager;
+
+	ResponseFormats(ContentNegotiationManager contentNegotiationManager) {
+		this.contentNegotiationManager = contentNegotiationManager;
+	}
+
+	/**
+	 * @return the format of the response body, or null when the request accepts none (answered with 406 by the
+	 * regular content negotiation).
+	 */
+	MediaType negotiate(NativeWebRequest request) {
+		List<MediaType> accepted;
+		try {
+			accepted = new ArrayList<>(contentNegotiationManager.resolveMediaTypes(request));
+		} catch (HttpMediaTypeNotAcceptableException e) {
+			return null;
+		}
+		MediaType.sortBySpecificityAndQuality(accepted);
+		for (MediaType type : accepted) {
+			if (type.getQualityValue() == 0) {
+				continue;
+			}
+			for (MediaType format : VARIANTS.keySet()) {
+				if (type.isCompatibleWith(format)) {
+					return format;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true when JSON is the format of the response (no Accept header means any format, and JSON is the
+	 * default).
+	 */
+	boolean prefersJson(NativeWebRequest request) {
+		return MediaType.APPLICATION_JSON.equals(negotiate(request));
+	}
+
+	/**
+	 * @return the variant of the ETags of the response ("" for JSON).
+	 */
+	String variantOf(NativeWebRequest request) {
+		MediaType format = negotiate(request);
+		return format == null ? "" : VARIANTS.get(format);
+	}
+}
@@ -0,0 +1,42 @@
+package com.school.management.rest;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link StreamingResponseBody} returned inside a ResponseEntity whose declared body type is not
+ * StreamingResponseBody (ex: a listing that is either a page or the whole streamed list), which Spring MVC would
+ * otherwise serialize as a bean. The body is written on the request thread, with the Content-Type set by the handler.
+ */
+public class StreamingBodyHttpMessageConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+
+	public StreamingBodyHttpMessageConverter() {
+		super(MediaType.ALL);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return StreamingResponseBody.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected void writeInternal(StreamingResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+		body.writeTo(outputMessage.getBody());
+	}
+
+	@Override
+	protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Streamed requests are not supported.", inputMessage);
+	}
+}
@@ -0,0 +1,124 @@
+package com.school.management.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds JSON responses that are written to the socket row by row, instead of materializing the whole list before
+ * serializing it: newline-delimited JSON, or a plain JSON array with the same bytes as the materialized list.
+ * <p>
+ * The body is gzipped on the fly when the client accepts it, so the ETag of the response must be checked with
+ * {@link #variantOf}. The rows are read after the status and the headers are
+ * sent, so a failure in the middle of the stream can only abort the connection (the client gets a truncated body
+ * instead of an error response).
+ */
+final class StreamingResponses {
+
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+	//the variant of the ETags of the NDJSON representation
+	static final String NDJSON_VARIANT = "ndjson";
+
+	private static final int GZIP_BUFFER_SIZE = 8192;
+
+	private StreamingResponses() {
+	}
+
+	/**
+	 * @param objectMapper = the mapper used to serialize each row.
+	 * @param request      = the request, to check whether the client accepts gzip.
+	 * @param source       = pushes every row to the given consumer (runs on an async request thread).
+	 * @return a 200 response streaming one JSON document per line.
+	 */
+	static <T> ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper, WebRequest request, Consumer<Consumer<T>> source) {
+		return of(request, APPLICATION_NDJSON, out -> {
+			JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+			//the lines are the separator (the default one is a space, which would start every other line)
+			generator.setRootValueSeparator(null);
+			source.accept(row -> {
+				try {
+					generator.writeObject(row);
+					generator.writeRaw('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			generator.flush();
+		});
+	}
+
+	/**
+	 * @param objectMapper = the mapper used to serialize each row.
+	 * @param request      = the request, to check whether the client accepts gzip.
+	 * @param source       = pushes every row to the given consumer (runs when the body is written).
+	 * @return a 200 response streaming a JSON array of the rows.
+	 */
+	static <T> ResponseEntity<StreamingResponseBody> jsonArray(ObjectMapper objectMapper, WebRequest request, Consumer<Consumer<T>> source) {
+		return of(request, MediaType.APPLICATION_JSON, out -> {
+			JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+			generator.writeStartArray();
+			source.accept(row -> {
+				try {
+					generator.writeObject(row);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			generator.writeEndArray();
+			generator.flush();
+		});
+	}
+
+	/**
+	 * @param variant = the variant of the ETags of the rows' format ("" for JSON, see {@link ConditionalRequests}).
+	 * @return the variant of the ETags of the streamed response: a gzipped body is another representation, ex: "gzip".
+	 */
+	static String variantOf(WebRequest request, String variant) {
+		if (!acceptsGzip(request)) {
+			return variant;
+		}
+		return variant.isEmpty() ? "gzip" : variant + "-gzip";
+	}
+
+	private static ResponseEntity<StreamingResponseBody> of(WebRequest request, MediaType contentType, StreamingResponseBody body) {
+		if (!acceptsGzip(request)) {
+			return ResponseEntity.ok().contentType(contentType).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(body);
+		}
+		StreamingResponseBody gzipped = out -> {
+			GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+			body.writeTo(gzip);
+			//writes the trailer, leaving the servlet stream open for the container
+			gzip.finish();
+		};
+		return ResponseEntity.ok().contentType(contentType)
+			.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+			.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+			.body(gzipped);
+	}
+
+	private static boolean acceptsGzip(WebRequest request) {
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+			String[] parts = StringUtils.tokenizeToStringArray(coding, ";");
+			if (parts.length > 0 && parts[0].equalsIgnoreCase("gzip")) {
+				return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+}
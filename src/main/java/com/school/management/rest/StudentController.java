@@ -1,16 +1,34 @@
 package com.school.management.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.model.Job.Priority;
 import com.school.management.model.StudentCourseView;
 import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ImportReportDto;
+import com.school.management.model.dto.JobDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
 import com.school.management.model.dto.StudentCourseDto;
 import com.school.management.model.dto.StudentDto;
 import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.ResourceVersions;
+import com.school.management.service.ResourceVersions.Resource;
 import com.school.management.service.StudentService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -20,26 +38,108 @@ public class StudentController {
 
 	private final StudentService studentService;
 	private final CourseService courseService;
+	private final ImportService importService;
+	private final ResourceVersions versions;
+	private final ObjectMapper objectMapper;
+	private final ResponseFormats formats;
 
-	public StudentController(StudentService studentService, CourseService courseService) {
+	public StudentController(StudentService studentService, CourseService courseService, ImportService importService, ResourceVersions versions, ObjectMapper objectMapper, ResponseFormats formats) {
 		this.studentService = studentService;
 		this.courseService = courseService;
+		this.importService = importService;
+		this.versions = versions;
+		this.objectMapper = objectMapper;
+		this.formats = formats;
 	}
 
 	/**
 	 * GET methods (retrieving info)
+	 * <p>
+	 * Responses carry an ETag and a Last-Modified header; If-None-Match and If-Modified-Since are answered with 304.
  	*/
 
 	/**
 	 * HTTP method: GET
+	 * <p>
+	 * The list is ordered by id. Informing a cursor or a limit returns a single page, and the cursor for
+	 * the next page is sent in the {@value PageDto#NEXT_CURSOR_HEADER} header (absent on the last page).
+	 * Otherwise the whole JSON list is streamed as it is read from the database (gzipped when the client accepts it).
 	 *
 	 * @param withoutCourses = true --> return the list of students without any course (default: false).
+	 * @param cursor         = return only students with id greater than the cursor.
+	 * @param limit          = maximum number of students in the page.
+	 * @param name           = return only students whose name starts with the informed prefix.
+	 * @param createdFrom    = return only students created at or after the instant (ISO-8601, ex: 2022-08-01T00:00:00Z).
+	 * @param createdTo      = return only students created before the instant (ISO-8601).
+	 * @param fields         = return only the informed fields of each student, ex: fields=name,address (default: all). The id is always returned.
+	 * @param ids            = return only the students of the ids (ex: ids=1,2,3), ordered by id, with one query. The other filters are ignored.
 	 * @return the list of students.
 	 */
 	@GetMapping(value = "/")
-	@ResponseStatus(HttpStatus.OK)
-	public List<StudentDto> getStudents(@RequestParam(name = "without-courses") Optional<Boolean> withoutCourses) {
-		return withoutCourses.orElse(false) ? studentService.getStudentsWithoutCourse() : studentService.getStudents();
+	public ResponseEntity<?> getStudents(@RequestParam(name = "without-courses") Optional<Boolean> withoutCourses, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, @RequestParam Optional<String> name, @RequestParam(name = "created-from") Optional<Instant> createdFrom, @RequestParam(name = "created-to") Optional<Instant> createdTo, @RequestParam Optional<List<String>> fields, @RequestParam Optional<List<Long>> ids, NativeWebRequest request) {
+		ListFilter filter = new ListFilter(cursor.orElse(null), limit.orElse(null), name.orElse(null), createdFrom.map(Timestamp::from).orElse(null), createdTo.map(Timestamp::from).orElse(null));
+		fields.ifPresent(filter::setFields);
+		boolean streamed = ids.isEmpty() && !filter.isPaged() && !fields.isPresent() && formats.prefersJson(request);
+		if (ConditionalRequests.isNotModified(request, streamed ? StreamingResponses.variantOf(request, "") : formats.variantOf(request), versions, Resource.STUDENTS, Resource.ENROLLMENTS)) {
+			return null;
+		}
+		if (ids.isPresent()) {
+			return ResponseEntity.ok(fields.isPresent() ? studentService.getStudentFieldsByIds(ids.get(), filter) : studentService.getStudentsByIds(ids.get()));
+		}
+		if (streamed) {
+			return StreamingResponses.<StudentDto>jsonArray(objectMapper, request, rows -> studentService.streamStudents(filter, withoutCourses.orElse(false), rows));
+		}
+		PageDto<?> page = fields.isPresent() ? studentService.getStudentFields(filter, withoutCourses.orElse(false))
+			: withoutCourses.orElse(false) ? studentService.getStudentsWithoutCourse(filter) : studentService.getStudents(filter);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNext() != null) {
+			response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+		}
+		return response.body(page.getContent());
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Ex: /students/query?expression=(10 OR 11) AND 20 AND NOT 30 --> students of course 20 and of course 10 or 11,
+	 * but not of course 30. Paginated like the list of students.
+	 *
+	 * @param expression = course ids combined with AND, OR, NOT and parentheses.
+	 * @param cursor     = return only students with id greater than the cursor.
+	 * @param limit      = maximum number of students in the page.
+	 * @return the students, ordered by id, whose courses match the expression.
+	 */
+	@GetMapping(value = "/query")
+	public ResponseEntity<List<StudentDto>> queryStudents(@RequestParam String expression, @RequestParam Optional<Long> cursor, @RequestParam Optional<Integer> limit, NativeWebRequest request) {
+		if (ConditionalRequests.isNotModified(request, formats.variantOf(request), versions, Resource.STUDENTS, Resource.ENROLLMENTS)) {
+			return null;
+		}
+		PageDto<StudentDto> page = studentService.getStudentsByCourseExpression(expression, new ListFilter(cursor.orElse(null), limit.orElse(null), null, null, null));
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNext() != null) {
+			response.header(PageDto.NEXT_CURSOR_HEADER, page.getNext().toString());
+		}
+		return response.body(page.getContent());
+	}
+
+	/**
+	 * HTTP method: GET
+	 * <p>
+	 * Ex: /students/search?q=jo sil --> students with a word starting with "jo" and a word starting with "sil" in the
+	 * name or in the address, ignoring case and accents.
+	 *
+	 * @param q     = the words typed so far.
+	 * @param limit = maximum number of students returned (default: 10).
+	 * @return the matching students, the name matches first, then ordered by id.
+	 */
+	@GetMapping(value = "/search")
+	public ResponseEntity<List<StudentDto>> searchStudents(@RequestParam String q, @RequestParam Optional<Integer> limit, NativeWebRequest request) {
+		if (ConditionalRequests.isNotModified(request, formats.variantOf(request), versions, Resource.STUDENTS)) {
+			return null;
+		}
+		return ResponseEntity.ok(studentService.searchStudents(q, limit.orElse(null)));
 	}
 
 	/**
@@ -49,9 +149,9 @@ public class StudentController {
 	 * @return student info related to the id.
 	 */
 	@GetMapping(value = "/{id}")
-	@ResponseStatus(HttpStatus.OK)
-	public StudentDto getStudent(@PathVariable Long id) {
-		return studentService.getStudent(id);
+	public ResponseEntity<StudentDto> getStudent(@PathVariable Long id, NativeWebRequest request) {
+		StudentDto student = studentService.getStudent(id);
+		return ConditionalRequests.of(student, student.getId(), student.getVersion(), student.getUpdatedAt(), formats.variantOf(request));
 	}
 
 	/**
@@ -61,18 +161,39 @@ public class StudentController {
 	 * @return list of courses the student is enrolled.
 	 */
 	@GetMapping(value = "/{id}/courses")
-	@ResponseStatus(HttpStatus.OK)
-	public List<CourseDto> getCoursesFromStudent(@PathVariable Long id) {
-		return courseService.getCoursesByStudent(id);
+	public ResponseEntity<List<CourseDto>> getCoursesFromStudent(@PathVariable Long id, NativeWebRequest request) {
+		return ConditionalRequests.of(courseService.getCoursesByStudent(id), CourseDto::getId, CourseDto::getUpdatedAt, versions.getLastModified(Resource.ENROLLMENTS), formats.variantOf(request));
 	}
 
 	/**
+	 * The JSON list is streamed as it is read from the database (gzipped when the client accepts it).
+	 *
 	 * @return list of relationships between students and courses, ordered by student and course.
 	 */
 	@GetMapping(value = "/courses")
-	@ResponseStatus(HttpStatus.OK)
-	public List<StudentCourseView> getRelations() {
-		return studentService.getStudentCourseRelationship();
+	public ResponseEntity<?> getRelations(NativeWebRequest request) {
+		boolean streamed = formats.prefersJson(request);
+		if (ConditionalRequests.isNotModified(request, streamed ? StreamingResponses.variantOf(request, "") : formats.variantOf(request), versions, Resource.values())) {
+			return null;
+		}
+		if (streamed) {
+			return StreamingResponses.jsonArray(objectMapper, request, studentService::streamStudentCourseRelationship);
+		}
+		return ResponseEntity.ok(studentService.getStudentCourseRelationship());
+	}
+
+	/**
+	 * HTTP method: GET (Accept: application/x-ndjson)
+	 *
+	 * @return the relationships between students and courses, ordered by student and course, streamed one JSON object
+	 * per line as they are read from the database.
+	 */
+	@GetMapping(value = "/courses", produces = StreamingResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamRelations(NativeWebRequest request) {
+		if (ConditionalRequests.isNotModified(request, StreamingResponses.variantOf(request, StreamingResponses.NDJSON_VARIANT), versions, Resource.values())) {
+			return null;
+		}
+		return StreamingResponses.ndjson(objectMapper, request, studentService::streamStudentCourseRelationship);
 	}
 
 	/**
@@ -81,21 +202,27 @@ public class StudentController {
 
 	/**
 	 * HTTP method: PUT
+	 * <p>
+	 * With If-Match (the ETag of GET /students/{id}), the update is only applied if the student was not changed since
+	 * it was read, otherwise the response is a 412.
 	 *
 	 * @param id         = the student id.
 	 * @param studentDto = JSON containing the student's name and address to be updated.
 	 *                   Ex: {"name":"John Doe", "address": "Some address"}
-	 * @return the student's info updated.
+	 * @return the student's info updated, with the ETag of its new version.
 	 */
 	@PutMapping(value = "/{id}")
-	@ResponseStatus(HttpStatus.OK)
-	public StudentDto updateStudent(@PathVariable Long id, @RequestBody StudentDto studentDto) {
+	public ResponseEntity<StudentDto> updateStudent(@PathVariable Long id, @RequestBody StudentDto studentDto, @RequestHeader(HttpHeaders.IF_MATCH) Optional<String> ifMatch, NativeWebRequest request) {
 		studentDto.setId(id);
-		return studentService.updateStudent(studentDto);
+		StudentDto student = studentService.updateStudent(studentDto, ConditionalRequests.requiredVersion(ifMatch, id));
+		return ConditionalRequests.of(student, student.getId(), student.getVersion(), student.getUpdatedAt(), formats.variantOf(request));
 	}
 
 	/**
 	 * HTTP method: PUT
+	 * <p>
+	 * With If-Match (the ETag of GET /students/{id}), the courses are only replaced if the student was not changed
+	 * since it was read, otherwise the response is a 412.
 	 *
 	 * @param id        = the student id.
 	 * @param courseIds = the ids of the courses to enroll the student. Limited to 5 courses.
@@ -104,8 +231,24 @@ public class StudentController {
 	 */
 	@PutMapping(value = "/{id}/courses")
 	@ResponseStatus(HttpStatus.OK)
-	public List<StudentCourseDto> updateStudentCourses(@PathVariable Long id, @RequestBody List<Long> courseIds) {
-		return studentService.updateStudentCourses(id, courseIds);
+	public List<StudentCourseDto> updateStudentCourses(@PathVariable Long id, @RequestBody List<Long> courseIds, @RequestHeader(HttpHeaders.IF_MATCH) Optional<String> ifMatch) {
+		return studentService.updateStudentCourses(id, courseIds, ConditionalRequests.requiredVersion(ifMatch, id));
+	}
+
+	/**
+	 * HTTP method: PUT
+	 * <p>
+	 * Replaces the courses of many students in a background job, each student as PUT /students/{id}/courses does.
+	 *
+	 * @param studentCourses = the ids of the courses of each student id. Ex: {"1": [1, 2], "2": [], "3": [2]}
+	 *                       Limited to school.bulk-enrollment.max-students students per request.
+	 * @param priority       = LOW, NORMAL or HIGH: the queued jobs with higher priority run first (default: NORMAL).
+	 * @return 202 with the job. Its status, and the counts of updated and rejected students when it is finished,
+	 * are polled at the Location (/jobs/{id}).
+	 */
+	@PutMapping(value = "/courses")
+	public ResponseEntity<JobDto> updateStudentsCourses(@RequestBody Map<Long, List<Long>> studentCourses, @RequestParam Optional<Priority> priority) {
+		return JobController.accepted(studentService.updateStudentsCourses(studentCourses, priority.orElse(Priority.NORMAL)));
 	}
 
 	/**
@@ -126,6 +269,24 @@ public class StudentController {
 		return studentService.createStudents(studentDtoList);
 	}
 
+	/**
+	 * HTTP method: POST (Content-Type: text/csv or application/x-ndjson)
+	 * <p>
+	 * Registers students from a file of any size. Rows are validated with the same rules as the JSON endpoint;
+	 * invalid rows are skipped and reported instead of failing the whole import.
+	 *
+	 * @param contentType = text/csv (a header line followed by one student per line) or application/x-ndjson
+	 *                    (one JSON object per line, of at most school.bulk-import.max-line-length characters, or 413).
+	 * @param body        = the rows to import, with the name and address.
+	 *                    Ex: name,address\nJohn Doe,Some address
+	 * @return the number of imported and rejected rows, and the reasons of the first rejects.
+	 */
+	@PostMapping(value = "/import", consumes = {ImportService.TEXT_CSV_VALUE, StreamingResponses.APPLICATION_NDJSON_VALUE})
+	@ResponseStatus(HttpStatus.OK)
+	public ImportReportDto importStudents(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+		return importService.importStudents(body, contentType);
+	}
+
 	/**
 	 * DELETE methods (removing info)
 	 */
@@ -135,11 +296,12 @@ public class StudentController {
 	 *
 	 * @param confirmDeletion = true --> deletes all the students, and student-courses relationships.
 	 *                        The course table will not be modified.  (default: false)
+	 * @param priority        = LOW, NORMAL or HIGH: the queued jobs with higher priority run first (default: NORMAL).
+	 * @return 202 with the deletion job, which runs in the background. Its status is polled at the Location (/jobs/{id}).
 	 */
 	@DeleteMapping(value = "/")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void deleteStudents(@RequestParam(name = "confirm-deletion") Optional<Boolean> confirmDeletion) {
-		studentService.deleteAllStudents(confirmDeletion.orElse(false));
+	public ResponseEntity<JobDto> deleteStudents(@RequestParam(name = "confirm-deletion") Optional<Boolean> confirmDeletion, @RequestParam Optional<Priority> priority) {
+		return JobController.accepted(studentService.deleteAllStudents(confirmDeletion.orElse(false), priority.orElse(Priority.NORMAL)));
 	}
 
 	/**
@@ -0,0 +1,29 @@
+package com.school.management.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the in-memory side effects of a write until its transaction commits, so a rollback leaves them untouched.
+ */
+final class AfterCommit {
+
+	private AfterCommit() {
+	}
+
+	/**
+	 * Runs the action after the current transaction commits, or right away when there is no transaction.
+	 */
+	static void run(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
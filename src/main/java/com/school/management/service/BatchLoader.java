@@ -0,0 +1,140 @@
+package com.school.management.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups by id into batched queries.
+ * <p>
+ * A lookup with no query in progress is queried at once. The lookups arriving while a query runs are collected in the
+ * next batch: its first caller waits for the running queries to end (at most the window, or until the batch fills),
+ * then runs one query for every id collected meanwhile and hands each caller its row. So an uncontended lookup is not
+ * delayed, and the batches grow with the load. A caller asking for an id that is already in flight (waiting in the
+ * batch or being queried) shares its result instead of adding it again. No thread is created: the query runs on the
+ * thread of the first caller.
+ */
+final class BatchLoader<V> {
+
+	private final Function<List<Long>, List<V>> query;
+	private final Function<V, Long> idOf;
+	private final long windowNanos;
+	private final int maxBatchSize;
+
+	private final Object lock = new Object();
+	//guarded by lock
+	private final Map<Long, CompletableFuture<V>> inFlight = new HashMap<>();
+	private List<Long> batch;
+	private int running;
+
+	/**
+	 * @param query        = loads the rows of the ids (missing ids have no row).
+	 * @param idOf         = extracts the id of a row.
+	 * @param window       = how long the first caller of a batch waits for the running queries (zero --> no
+	 *                     coalescing).
+	 * @param maxBatchSize = number of ids that ends the window earlier.
+	 */
+	BatchLoader(Function<List<Long>, List<V>> query, Function<V, Long> idOf, Duration window, int maxBatchSize) {
+		this.query = query;
+		this.idOf = idOf;
+		this.windowNanos = window.toNanos();
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * @return the row of the id, or null when it does not exist. The exceptions of the query are rethrown to every caller
+	 * of its batch.
+	 */
+	V load(Long id) {
+		if (windowNanos <= 0) {
+			List<V> rows = query.apply(List.of(id));
+			return rows.isEmpty() ? null : rows.get(0);
+		}
+
+		CompletableFuture<V> result;
+		boolean first = false;
+		synchronized (lock) {
+			result = inFlight.get(id);
+			if (result == null) {
+				result = new CompletableFuture<>();
+				inFlight.put(id, result);
+				if (batch == null) {
+					batch = new ArrayList<>();
+					first = true;
+				}
+				batch.add(id);
+				if (batch.size() >= maxBatchSize) {
+					lock.notifyAll();
+				}
+			}
+		}
+		if (first) {
+			List<Long> ids = awaitBatch();
+			try {
+				run(ids);
+			} finally {
+				synchronized (lock) {
+					running--;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private List<Long> awaitBatch() {
+		synchronized (lock) {
+			long deadline = System.nanoTime() + windowNanos;
+			long remaining = windowNanos;
+			try {
+				while (running > 0 && batch.size() < maxBatchSize && remaining > 0) {
+					TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+					remaining = deadline - System.nanoTime();
+				}
+			} catch (InterruptedException e) {
+				//query what was collected so far
+				Thread.currentThread().interrupt();
+			}
+			List<Long> ids = batch;
+			batch = null;
+			running++;
+			return ids;
+		}
+	}
+
+	private void run(List<Long> ids) {
+		Map<Long, V> rows = new HashMap<>();
+		Throwable failure = null;
+		try {
+			query.apply(ids).forEach(row -> rows.put(idOf.apply(row), row));
+		} catch (Throwable e) {
+			failure = e;
+		}
+
+		List<CompletableFuture<V>> results = new ArrayList<>(ids.size());
+		synchronized (lock) {
+			ids.forEach(id -> results.add(inFlight.remove(id)));
+		}
+		for (int i = 0; i < ids.size(); i++) {
+			if (failure == null) {
+				results.get(i).complete(rows.get(ids.get(i)));
+			} else {
+				results.get(i).completeExceptionally(failure);
+			}
+		}
+	}
+}
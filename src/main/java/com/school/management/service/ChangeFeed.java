@@ -0,0 +1,145 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord;
+import com.school.management.model.ChangeRecord.EntityType;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.IdGenerator;
+import com.school.management.model.dto.ChangeDto;
+import com.school.management.model.dto.PageDto;
+import com.school.management.repository.ChangeRecordRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Incremental change feed of students, courses and enrollments (GET /changes): a transactional outbox written by every
+ * write of StudentService, CourseService and ImportService, so downstream systems can read what changed since their
+ * last sync instead of re-reading the listings.
+ * <p>
+ * The records of a transaction are buffered and inserted right before it commits, with ids reserved from the
+ * change_record row of the id generator table. That row stays locked until the commit, so the ids follow the commit
+ * order: a reader never sees a record while one with a lower id is still uncommitted. Concurrent writes are
+ * serialized only between the reservation and the commit.
+ */
+@Service
+public class ChangeFeed {
+
+	private final ChangeRecordRepository changeRecordRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final EntityManager entityManager;
+	private final SchoolProperties properties;
+	private final Pagination pagination;
+
+	public ChangeFeed(ChangeRecordRepository changeRecordRepository, JdbcTemplate jdbcTemplate, EntityManager entityManager, SchoolProperties properties) {
+		this.changeRecordRepository = changeRecordRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.entityManager = entityManager;
+		this.properties = properties;
+		this.pagination = new Pagination(properties, "changes");
+	}
+
+	/**
+	 * @param since = return only the changes after this one (default: from the first change).
+	 * @param limit = maximum number of changes in the page (default: school.pagination.default-limit).
+	 * @return the page of changes, in commit order.
+	 */
+	public PageDto<ChangeDto> getChanges(Long since, Integer limit) {
+		int pageLimit = pagination.getPageLimit(limit);
+		return PageDto.of(changeRecordRepository.getChanges(since == null ? 0L : since, Pagination.toPageable(pageLimit)), pageLimit, ChangeDto::getId);
+	}
+
+	/**
+	 * The methods below record changes in the current transaction, which is required.
+	 */
+
+	public void students(Operation operation, Collection<Long> ids) {
+		ids.forEach(id -> add(EntityType.STUDENT, operation, id, null));
+	}
+
+	public void courses(Operation operation, Collection<Long> ids) {
+		ids.forEach(id -> add(EntityType.COURSE, operation, null, id));
+	}
+
+	public void studentEnrollments(Operation operation, Long studentId, Collection<Long> courseIds) {
+		courseIds.forEach(courseId -> add(EntityType.ENROLLMENT, operation, studentId, courseId));
+	}
+
+	public void courseEnrollments(Operation operation, Long courseId, Collection<Long> studentIds) {
+		studentIds.forEach(studentId -> add(EntityType.ENROLLMENT, operation, studentId, courseId));
+	}
+
+	private void add(EntityType entityType, Operation operation, Long studentId, Long courseId) {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			throw new IllegalStateException("Changes must be recorded in the transaction of the write.");
+		}
+		ChangeRecord record = new ChangeRecord();
+		record.setEntityType(entityType);
+		record.setOperation(operation);
+		record.setStudentId(studentId);
+		record.setCourseId(courseId);
+		record.setChangedAt(Timestamp.from(Instant.now()));
+		pending().records.add(record);
+	}
+
+	private Pending pending() {
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof Pending && ((Pending) synchronization).feed() == this) {
+				return (Pending) synchronization;
+			}
+		}
+		Pending pending = new Pending();
+		TransactionSynchronizationManager.registerSynchronization(pending);
+		return pending;
+	}
+
+	/**
+	 * The records of one transaction.
+	 */
+	private class Pending extends TransactionSynchronizationAdapter {
+		final List<ChangeRecord> records = new ArrayList<>();
+
+		ChangeFeed feed() {
+			return ChangeFeed.this;
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			write(records);
+		}
+	}
+
+	private void write(List<ChangeRecord> records) {
+		//the entity writes go first, so the row lock below is only held by the insert and the commit
+		entityManager.flush();
+		if (jdbcTemplate.update("UPDATE " + IdGenerator.TABLE + " SET " + IdGenerator.VALUE_COLUMN + " = " + IdGenerator.VALUE_COLUMN + " + ?"
+			+ " WHERE " + IdGenerator.NAME_COLUMN + " = ?", records.size(), ChangeRecord.TABLE) != 1) {
+			throw new IllegalStateException("The id generator of the change records is missing.");
+		}
+		long next = jdbcTemplate.queryForObject("SELECT " + IdGenerator.VALUE_COLUMN + " FROM " + IdGenerator.TABLE
+			+ " WHERE " + IdGenerator.NAME_COLUMN + " = ?", Long.class, ChangeRecord.TABLE);
+		long id = next - records.size();
+		for (ChangeRecord record : records) {
+			record.setId(id++);
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO " + ChangeRecord.TABLE + " (id, entity_type, operation, student_id, course_id, changed_at) VALUES (?, ?, ?, ?, ?, ?)",
+			records, properties.getBulkImport().getBatchSize(), (statement, record) -> {
+				statement.setLong(1, record.getId());
+				statement.setString(2, record.getEntityType().name());
+				statement.setString(3, record.getOperation().name());
+				statement.setObject(4, record.getStudentId(), Types.BIGINT);
+				statement.setObject(5, record.getCourseId(), Types.BIGINT);
+				statement.setTimestamp(6, record.getChangedAt());
+			});
+	}
+}
@@ -0,0 +1,248 @@
+package com.school.management.service;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A boolean expression over course rosters, evaluated to the set of matching student ids.
+ * <p>
+ * Operands are course ids, combined with AND, OR, NOT (case-insensitive) and parentheses, NOT binding tighter than AND
+ * and AND tighter than OR. Ex: "(10 OR 11) AND 20 AND NOT 30".
+ */
+public class CourseExpression {
+
+	/**
+	 * Maximum number of course ids an expression can reference.
+	 */
+	public static final int MAX_COURSES = 100;
+
+	/**
+	 * Maximum number of nested parentheses and NOT operators, which bounds the recursion of the parser and of the
+	 * evaluation.
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	private static final Pattern TOKEN = Pattern.compile("\\s*(\\(|\\)|\\d+|[A-Za-z]+|\\S)");
+
+	private final Node root;
+
+	private final Set<Long> courseIds = new LinkedHashSet<>();
+
+	private final List<String> tokens = new ArrayList<>();
+
+	private int position;
+
+	private int depth;
+
+	private CourseExpression(String expression) {
+		Matcher matcher = TOKEN.matcher(expression);
+		while (matcher.lookingAt()) {
+			tokens.add(matcher.group(1).toUpperCase(Locale.ROOT));
+			matcher.region(matcher.end(), expression.length());
+		}
+		if (tokens.isEmpty()) {
+			throw invalid("The expression is empty.");
+		}
+		root = parseOr();
+		if (position < tokens.size()) {
+			throw invalid("Unexpected '" + tokens.get(position) + "'.");
+		}
+		if (courseIds.size() > MAX_COURSES) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "An expression can not reference more than " + MAX_COURSES + " courses.");
+		}
+	}
+
+	/**
+	 * @throws ResponseStatusException (400) when the expression is malformed.
+	 */
+	public static CourseExpression parse(String expression) {
+		return new CourseExpression(expression);
+	}
+
+	/**
+	 * @return the distinct course ids referenced by the expression.
+	 */
+	public Set<Long> getCourseIds() {
+		return courseIds;
+	}
+
+	/**
+	 * @param rosters  = the student ids of a course, or null when the course does not exist. Not modified.
+	 * @param students = the ids of all students, only requested by a NOT without an AND operand to subtract from,
+	 *                 and at most once per evaluation. Not modified.
+	 * @return a new bitmap with the matching student ids.
+	 * @throws ResponseStatusException (404) when a course does not exist.
+	 */
+	public RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students) {
+		RoaringBitmap[] allStudents = new RoaringBitmap[1];
+		RoaringBitmap result = root.evaluate(rosters, () -> {
+			if (allStudents[0] == null) {
+				allStudents[0] = students.get();
+			}
+			return allStudents[0];
+		});
+		return root instanceof Course ? result.clone() : result;
+	}
+
+	private Node parseOr() {
+		List<Node> operands = new ArrayList<>();
+		operands.add(parseAnd());
+		while (accept("OR")) {
+			operands.add(parseAnd());
+		}
+		return operands.size() == 1 ? operands.get(0) : new Or(operands);
+	}
+
+	private Node parseAnd() {
+		List<Node> operands = new ArrayList<>();
+		operands.add(parseNot());
+		while (accept("AND")) {
+			operands.add(parseNot());
+		}
+		return operands.size() == 1 ? operands.get(0) : new And(operands);
+	}
+
+	private Node parseNot() {
+		if (accept("NOT")) {
+			nest();
+			Node node = new Not(parseNot());
+			depth--;
+			return node;
+		}
+		if (accept("(")) {
+			nest();
+			Node node = parseOr();
+			if (!accept(")")) {
+				throw invalid("Missing ')'.");
+			}
+			depth--;
+			return node;
+		}
+		if (position == tokens.size()) {
+			throw invalid("Unexpected end of the expression.");
+		}
+		String token = tokens.get(position++);
+		try {
+			long id = Long.parseLong(token);
+			courseIds.add(id);
+			return new Course(id);
+		} catch (NumberFormatException e) {
+			throw invalid("Expected a course id, found '" + token + "'.");
+		}
+	}
+
+	private void nest() {
+		if (++depth > MAX_DEPTH) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "An expression can not nest more than " + MAX_DEPTH + " parentheses and NOT operators.");
+		}
+	}
+
+	private boolean accept(String token) {
+		if (position < tokens.size() && tokens.get(position).equals(token)) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private static ResponseStatusException invalid(String reason) {
+		return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid course expression: " + reason);
+	}
+
+	private interface Node {
+		RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students);
+	}
+
+	private static final class Course implements Node {
+		private final long id;
+
+		Course(long id) {
+			this.id = id;
+		}
+
+		@Override
+		public RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students) {
+			RoaringBitmap roster = rosters.apply(id);
+			if (roster == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course (id " + id + ") not found.");
+			}
+			return roster;
+		}
+	}
+
+	private static final class Not implements Node {
+		private final Node operand;
+
+		Not(Node operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students) {
+			return RoaringBitmap.andNot(students.get(), operand.evaluate(rosters, students));
+		}
+	}
+
+	/**
+	 * Intersects the positive operands (smallest first) and subtracts the negated ones, so "A AND NOT B" never
+	 * materializes the complement of B.
+	 */
+	private static final class And implements Node {
+		private final List<Node> operands;
+
+		And(List<Node> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students) {
+			List<RoaringBitmap> included = new ArrayList<>();
+			List<RoaringBitmap> excluded = new ArrayList<>();
+			for (Node operand : operands) {
+				if (operand instanceof Not) {
+					excluded.add(((Not) operand).operand.evaluate(rosters, students));
+				} else {
+					included.add(operand.evaluate(rosters, students));
+				}
+			}
+			RoaringBitmap result = included.isEmpty() ? students.get().clone()
+				: included.size() == 1 ? included.get(0).clone()
+				: FastAggregation.and(included.iterator());
+			for (RoaringBitmap bitmap : excluded) {
+				result.andNot(bitmap);
+			}
+			return result;
+		}
+	}
+
+	private static final class Or implements Node {
+		private final List<Node> operands;
+
+		Or(List<Node> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public RoaringBitmap evaluate(LongFunction<RoaringBitmap> rosters, Supplier<RoaringBitmap> students) {
+			List<RoaringBitmap> bitmaps = new ArrayList<>(operands.size());
+			for (Node operand : operands) {
+				bitmaps.add(operand.evaluate(rosters, students));
+			}
+			return FastAggregation.or(bitmaps.iterator());
+		}
+	}
+}
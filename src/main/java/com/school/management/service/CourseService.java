@@ -1,105 +1,395 @@
 package com.school.management.service;
 
 
+import com.school.management.config.CacheConfig;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Job.Priority;
 import com.school.management.model.Course;
 import com.school.management.model.Student;
 import com.school.management.model.StudentCourse;
 import com.school.management.model.StudentCourseView;
 import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.JobDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
 import com.school.management.model.dto.StudentCourseDto;
 import com.school.management.repository.CourseRepository;
 import com.school.management.repository.StudentCourseRepository;
 import com.school.management.repository.StudentCourseViewRepository;
 import com.school.management.repository.StudentRepository;
+import com.school.management.service.ResourceVersions.Resource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManager;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CourseService {
 
+	/**
+	 * Fields a listing can be restricted to (sparse fieldset, ex: ?fields=id,name). The id is always included.
+	 */
+	public static final List<String> FIELDS = List.of("id", "name", "capacity", "createdAt", "updatedAt");
+
+	private static final String DELETE_ALL_JOB = "delete-all-courses";
+
 	private final CourseRepository courseRepository;
 	private final StudentRepository studentRepository;
 	private final StudentCourseRepository studentCourseRepository;
 	private final StudentCourseViewRepository studentCourseViewRepository;
+	private final SchoolProperties properties;
+	private final EntityManager entityManager;
+	private final ReadCache readCache;
+	private final EnrollmentIndex enrollmentIndex;
+	private final SearchIndex searchIndex;
+	private final ResourceVersions versions;
+	private final ChangeFeed changeFeed;
+	private final TransactionTemplate transactionTemplate;
+	private final OptimisticWrites writes;
+	private final Jobs jobs;
+	private final Pagination pagination;
+	private final SparseFields sparseFields;
+	private final BatchLoader<CourseDto> courseLoader;
 
-	public CourseService(CourseRepository courseRepository, StudentRepository studentRepository, StudentCourseRepository studentCourseRepository, StudentCourseViewRepository studentCourseViewRepository) {
+	public CourseService(CourseRepository courseRepository, StudentRepository studentRepository, StudentCourseRepository studentCourseRepository, StudentCourseViewRepository studentCourseViewRepository, SchoolProperties properties, EntityManager entityManager, ReadCache readCache, EnrollmentIndex enrollmentIndex, SearchIndex searchIndex, ResourceVersions versions, ChangeFeed changeFeed, PlatformTransactionManager transactionManager, Jobs jobs) {
 		this.courseRepository = courseRepository;
 		this.studentRepository = studentRepository;
 		this.studentCourseRepository = studentCourseRepository;
 		this.studentCourseViewRepository = studentCourseViewRepository;
+		this.properties = properties;
+		this.pagination = new Pagination(properties, "courses");
+		this.sparseFields = new SparseFields("course", FIELDS);
+		this.entityManager = entityManager;
+		this.readCache = readCache;
+		this.enrollmentIndex = enrollmentIndex;
+		this.searchIndex = searchIndex;
+		this.versions = versions;
+		this.changeFeed = changeFeed;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.writes = new OptimisticWrites(transactionTemplate, properties.getOptimisticLocking());
+		this.jobs = jobs;
+		jobs.register(DELETE_ALL_JOB, this::deleteCoursesInChunks);
+		this.courseLoader = new BatchLoader<>(courseRepository::getCoursesByIds, CourseDto::getId,
+			properties.getLookup().getBatchWindow(), properties.getLookup().getMaxBatchSize());
 	}
 
-	public List<CourseDto> getCourses() {
-		return courseRepository.findAll().stream()
-			.map(course -> new CourseDto(course.getId(), course.getName(), course.getCreatedAt(), course.getUpdatedAt()))
-			.collect(Collectors.toList());
+	public PageDto<CourseDto> getCourses(ListFilter filter) {
+		Integer limit = pagination.getPageLimit(filter);
+		return PageDto.of(courseRepository
+			.getCoursesPage(filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit)), limit, CourseDto::getId);
 	}
 
-	public List<CourseDto> getCoursesWithoutStudent() {
-		return courseRepository.getCoursesWithoutStudent().stream()
-			.map(course -> new CourseDto(course.getId(), course.getName(), course.getCreatedAt(), course.getUpdatedAt()))
-			.collect(Collectors.toList());
+	public PageDto<CourseDto> getCoursesWithoutStudent(ListFilter filter) {
+		Integer limit = pagination.getPageLimit(filter);
+		if (enrollmentIndex.isReadyFor(filter)) {
+			return Pagination.toPage(enrollmentIndex.getCoursesWithoutStudent(filter.getCursor() == null ? 0L : filter.getCursor(), limit == null ? Integer.MAX_VALUE : limit + 1), limit, this::findCourses);
+		}
+		return PageDto.of(courseRepository
+			.getCoursesWithoutStudentPage(filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit)), limit, CourseDto::getId);
 	}
 
+	/**
+	 * Same as getCourses and getCoursesWithoutStudent, selecting only the fields of the filter (and the id) for each row.
+	 */
+	public PageDto<Map<String, Object>> getCourseFields(ListFilter filter, boolean withoutStudents) {
+		Integer limit = pagination.getPageLimit(filter);
+		Set<String> fields = sparseFields.of(filter);
+		if (withoutStudents && enrollmentIndex.isReadyFor(filter)) {
+			return Pagination.toPage(enrollmentIndex.getCoursesWithoutStudent(filter.getCursor() == null ? 0L : filter.getCursor(), limit == null ? Integer.MAX_VALUE : limit + 1), limit,
+				ids -> pagination.findByIds(ids, chunk -> courseRepository.getCoursesByIds(fields, chunk), row -> (Long) row.get("id")));
+		}
+		List<Map<String, Object>> rows = withoutStudents
+			? courseRepository.getCoursesWithoutStudentPage(fields, filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit))
+			: courseRepository.getCoursesPage(fields, filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit));
+		return PageDto.of(rows, limit, row -> (Long) row.get("id"));
+	}
+
+	/**
+	 * Same rows as getCourses and getCoursesWithoutStudent, without a page: each row is handed to the consumer as it is read (with a
+	 * forward-only cursor, or one chunk of ids at a time from the index), so the listing is never held in memory.
+	 */
+	@Transactional(readOnly = true)
+	public void streamCourses(ListFilter filter, boolean withoutStudents, Consumer<CourseDto> consumer) {
+		long cursor = filter.getCursor() == null ? 0L : filter.getCursor();
+		if (withoutStudents && enrollmentIndex.isReadyFor(filter)) {
+			long[] ids = enrollmentIndex.getCoursesWithoutStudent(cursor, Integer.MAX_VALUE);
+			int chunk = properties.getPagination().getMaxLimit();
+			for (int from = 0; from < ids.length; from += chunk) {
+				findCourses(Arrays.copyOfRange(ids, from, Math.min(ids.length, from + chunk))).forEach(consumer);
+			}
+			return;
+		}
+		try (Stream<CourseDto> rows = withoutStudents
+			? courseRepository.streamCoursesWithoutStudent(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo())
+			: courseRepository.streamCourses(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo())) {
+			rows.forEach(consumer);
+		}
+	}
+
+	/**
+	 * Concurrent calls that miss the cache are loaded together (see {@link BatchLoader}).
+	 */
+	@Cacheable(cacheNames = CacheConfig.COURSES, key = "#id")
 	public CourseDto getCourse(Long id) {
-		return courseRepository.findById(id)
-			.map(course -> new CourseDto(course.getId(), course.getName(), course.getCreatedAt(), course.getUpdatedAt()))
-			.orElseThrow(() -> new ResponseStatusException(
-				HttpStatus.NOT_FOUND, "Course not found."));
+		CourseDto course = courseLoader.load(id);
+		if (course == null) {
+			throw new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Course not found.");
+		}
+		return course;
 	}
 
-	@Transactional
-	public CourseDto updateCourse(CourseDto courseDto) {
+	/**
+	 * @param ids = the course ids, at most the maximum page size.
+	 * @return the courses of the ids, ordered by id. Unknown and repeated ids are skipped.
+	 */
+	public List<CourseDto> getCoursesByIds(Collection<Long> ids) {
+		return findCourses(toLookupIds(ids));
+	}
+
+	/**
+	 * Same as getCoursesByIds, selecting only the fields of the filter (and the id) for each row.
+	 */
+	public List<Map<String, Object>> getCourseFieldsByIds(Collection<Long> ids, ListFilter filter) {
+		Set<String> fields = sparseFields.of(filter);
+		return pagination.findByIds(toLookupIds(ids), chunk -> courseRepository.getCoursesByIds(fields, chunk), row -> (Long) row.get("id"));
+	}
+
+	/**
+	 * Autocomplete: every word of the query must start a word of the name, ignoring case and accents (ex: "adv mat"
+	 * finds "Advanced Mathematics"). Without the {@link SearchIndex}, the whole query must start a word.
+	 *
+	 * @return up to limit courses, ordered by id.
+	 */
+	public List<CourseDto> searchCourses(String query, Integer limit) {
+		int max = getSearchLimit(query, limit);
+		if (!searchIndex.isReady()) {
+			return courseRepository.searchCourses(ListFilter.escapeLike(query.strip()), PageRequest.of(0, max));
+		}
+		return findCourses(searchIndex.searchCourses(query, max));
+	}
+
+	private int getSearchLimit(String query, Integer limit) {
+		if (query.isBlank()) {
+			throw new ResponseStatusException(
+				HttpStatus.BAD_REQUEST, "The search query is blank.");
+		}
+		int max = limit == null ? properties.getSearch().getDefaultLimit() : limit;
+		if (max < 1) {
+			throw new ResponseStatusException(
+				HttpStatus.BAD_REQUEST, "The search limit must be greater than zero.");
+		}
+		if (max > properties.getPagination().getMaxLimit()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A search can not return more than " + properties.getPagination().getMaxLimit() + " courses.");
+		}
+		return max;
+	}
+
+	private long[] toLookupIds(Collection<Long> ids) {
+		long[] distinct = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).distinct().toArray();
+		if (distinct.length > properties.getPagination().getMaxLimit()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A lookup can not contain more than " + properties.getPagination().getMaxLimit() + " courses.");
+		}
+		return distinct;
+	}
+
+	/**
+	 * @param requiredVersion = the version the course must still have (If-Match), null for any version.
+	 */
+	public CourseDto updateCourse(CourseDto courseDto, Long requiredVersion) {
+		return writes.run(() -> tryUpdateCourse(courseDto, requiredVersion), () -> new ResponseStatusException(
+			HttpStatus.CONFLICT, "The course (id " + courseDto.getId() + ") was changed concurrently. Please retry."));
+	}
+
+	private CourseDto tryUpdateCourse(CourseDto courseDto, Long requiredVersion) {
 		Course course = courseRepository.findById(courseDto.getId()).orElseThrow(() -> new ResponseStatusException(
 			HttpStatus.NOT_FOUND, "Course not found."));
+		OptimisticWrites.checkVersion(requiredVersion, course.getVersion(), "course");
 
+		boolean updated = false;
 		if (courseDto.getName() != null && !courseDto.getName().isBlank() && !courseDto.getName().equals(course.getName())) {
 			course.setName(courseDto.getName());
+			studentCourseViewRepository.renameCourse(course.getId(), course.getName());
+			updated = true;
+		}
+		if (courseDto.getCapacity() != null && !courseDto.getCapacity().equals(course.getCapacity())) {
+			if (courseDto.getCapacity() < 1) {
+				throw new ResponseStatusException(
+					HttpStatus.BAD_REQUEST, "The capacity of a course must be greater than zero.");
+			}
+			//the capacity can not be lower than the number of enrolled students
+			if (courseRepository.updateCapacity(course.getId(), courseDto.getCapacity()) == 0) {
+				throw new ResponseStatusException(
+					HttpStatus.FORBIDDEN, "The course has more students enrolled than the requested capacity.");
+			}
+			course.setCapacity(courseDto.getCapacity());
+			updated = true;
+		}
+
+		if (updated) {
 			course.setUpdatedAt(Timestamp.from(Instant.now()));
-			course = courseRepository.save(course);
+			course = courseRepository.saveAndFlush(course);
+
+			searchIndex.putCourses(List.of(course));
+			changeFeed.courses(Operation.UPDATED, List.of(course.getId()));
+			versions.changed(Resource.COURSES);
+			readCache.evictCourse(course.getId());
+			readCache.evictCoursesByStudent(studentCourseRepository.getStudentIdsByCourse(course));
 		}
 
-		return new CourseDto(course.getId(), course.getName(), course.getCreatedAt(), course.getUpdatedAt());
+		return new CourseDto(course.getId(), course.getName(), course.getCapacity(), course.getCreatedAt(), course.getUpdatedAt(), course.getVersion());
 	}
 
-	@Transactional
-	public List<StudentCourseDto> updateCourseStudents(Long id, List<Long> studentIds) {
-		if (studentIds.size() > 50) {
-			throw new ResponseStatusException(
-				HttpStatus.FORBIDDEN, "A course can not have more than 50 students.");
-		}
+	/**
+	 * Concurrent updates of the same course are retried (see {@link OptimisticWrites}), so they do not need to be
+	 * serialized by the clients.
+	 *
+	 * @param requiredVersion = the version the course must still have (If-Match), null for any version.
+	 */
+	public List<StudentCourseDto> updateCourseStudents(Long id, List<Long> studentIds, Long requiredVersion) {
+		return writes.run(() -> tryUpdateCourseStudents(id, studentIds, requiredVersion), () -> concurrentEnrollmentChange(id));
+	}
 
+	private List<StudentCourseDto> tryUpdateCourseStudents(Long id, List<Long> studentIds, Long requiredVersion) {
 		Course course = courseRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
 			HttpStatus.NOT_FOUND, "Course not found."));
+		OptimisticWrites.checkVersion(requiredVersion, course.getVersion(), "course");
 
-		//building the students list
-		List<StudentCourse> studentCourses = studentIds.stream()
-			.map(studentId -> new StudentCourse(studentRepository.findById(studentId).orElseThrow(() -> new ResponseStatusException(
-				HttpStatus.NOT_FOUND, "Student (id " + studentId + ") not found.")), course))
+		//building the students list, resolving all the requested students with one query
+		List<Long> distinctStudentIds = studentIds.stream().distinct().collect(Collectors.toList());
+		if (distinctStudentIds.size() > course.getCapacity()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A course can not have more than " + course.getCapacity() + " students.");
+		}
+		Map<Long, Student> students = new HashMap<>();
+		if (!distinctStudentIds.isEmpty()) {
+			studentRepository.findAllById(distinctStudentIds).forEach(student -> students.put(student.getId(), student));
+		}
+		Set<Long> currentStudentIds = new HashSet<>(studentCourseRepository.getStudentIdsByCourse(course));
+
+		//For each student verifies:
+		//1) Does the Student exist?
+		//2) Considering the student is not enrolled in the course, is the student already enrolled in the maximum of courses?
+		List<StudentCourse> studentCourses = distinctStudentIds.stream()
+			.map(studentId -> {
+				Student student = students.get(studentId);
+				if (student == null)
+					throw new ResponseStatusException(
+						HttpStatus.NOT_FOUND, "Student (id " + studentId + ") not found.");
+				if (!currentStudentIds.contains(studentId) && student.getCourseCount() >= Student.MAX_COURSES)
+					throw new ResponseStatusException(
+						HttpStatus.FORBIDDEN, "The student (id " + studentId + ") is already enrolled in " + Student.MAX_COURSES + " courses.");
+				return new StudentCourse(student, course);
+			})
 			.collect(Collectors.toList());
 
-		//updating the course's timestamp
-		course.setUpdatedAt(Timestamp.from(Instant.now()));
-		courseRepository.save(course);
-		//deleting current students
-		studentCourseRepository.deleteStudentsByCourse(course);
+		//Only the difference between the current and the requested students is written.
+		List<Long> added = distinctStudentIds.stream()
+			.filter(studentId -> !currentStudentIds.contains(studentId))
+			.collect(Collectors.toList());
+		List<Long> removed = currentStudentIds.stream()
+			.filter(studentId -> !students.containsKey(studentId))
+			.collect(Collectors.toList());
+
+		if (!added.isEmpty() || !removed.isEmpty()) {
+			//updating the course's timestamp, failing if the course was updated since it was read
+			course.setUpdatedAt(Timestamp.from(Instant.now()));
+			courseRepository.saveAndFlush(course);
+			//deleting the students that are no longer requested
+			if (!removed.isEmpty()) {
+				if (studentCourseRepository.deleteCourseStudents(course, removed) != removed.size()) {
+					throw new ConcurrencyFailureException("The students of the course (id " + id + ") were changed concurrently.");
+				}
+				studentCourseViewRepository.deleteCourseStudents(id, removed);
+			}
+			//updating the seat counters
+			updateSeatCounters(course, added, removed);
+			//the courses of the added and removed students changed too
+			List<Long> changedStudentIds = Stream.concat(added.stream(), removed.stream()).collect(Collectors.toList());
+			studentRepository.incrementVersion(changedStudentIds);
+			//saving the new students
+			try {
+				List<StudentCourse> addedStudentCourses = studentCourses.stream()
+					.filter(studentCourse -> added.contains(studentCourse.getStudent().getId()))
+					.collect(Collectors.toList());
+				studentCourseRepository.saveAll(addedStudentCourses);
+				studentCourseViewRepository.saveAll(addedStudentCourses.stream()
+					.map(studentCourse -> new StudentCourseView(studentCourse.getStudent(), studentCourse.getCourse()))
+					.collect(Collectors.toList()));
+				studentCourseRepository.flush();
+			} catch (DataIntegrityViolationException e) {
+				throw new ConcurrencyFailureException("The students of the course (id " + id + ") were changed concurrently.", e);
+			}
 
-		//saving new students
-		studentCourses = studentCourseRepository.saveAll(studentCourses);
+			enrollmentIndex.updateCourseStudents(id, added, removed);
+			changeFeed.courses(Operation.UPDATED, List.of(id));
+			changeFeed.courseEnrollments(Operation.CREATED, id, added);
+			changeFeed.courseEnrollments(Operation.DELETED, id, removed);
+			versions.changed(Resource.STUDENTS, Resource.COURSES, Resource.ENROLLMENTS);
+			//the course's timestamp is part of every course list the course belongs (or belonged) to
+			readCache.evictCourse(id);
+			changedStudentIds.forEach(readCache::evictStudent);
+			readCache.evictStudentsByCourse(List.of(id));
+			readCache.evictCoursesByStudent(currentStudentIds);
+			readCache.evictCoursesByStudent(added);
+		}
 
 		return studentCourses.stream()
 			.map(studentCourse -> new StudentCourseDto(studentCourse.getStudent().getId(), studentCourse.getStudent().getName(), studentCourse.getCourse().getId(), studentCourse.getCourse().getName()))
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * Applies the enrollment delta to the course's and students' counters with conditional updates,
+	 * failing (and rolling back) if a concurrent enrollment filled one of the limits in the meantime.
+	 */
+	private void updateSeatCounters(Course course, List<Long> added, List<Long> removed) {
+		if (!removed.isEmpty()) {
+			studentRepository.decrementCourseCount(removed);
+		}
+		if (!added.isEmpty() && studentRepository.incrementCourseCount(added, Student.MAX_COURSES) != added.size()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "One of the requested students is already enrolled in " + Student.MAX_COURSES + " courses.");
+		}
+		int delta = added.size() - removed.size();
+		if (delta != 0 && courseRepository.addToEnrolledCount(course.getId(), delta) == 0) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A course can not have more than " + course.getCapacity() + " students.");
+		}
+	}
+
+	//the attempts of the enrollment update lost every race with the concurrent ones
+	private static ResponseStatusException concurrentEnrollmentChange(Long id) {
+		return new ResponseStatusException(
+			HttpStatus.CONFLICT, "The students of the course (id " + id + ") were changed concurrently. Please retry.");
+	}
+
+	@Transactional
 	public List<CourseDto> createCourses(List<CourseDto> coursesDto) {
 		if (coursesDto.size() > 50) {
 			throw new ResponseStatusException(
@@ -107,41 +397,105 @@ public class CourseService {
 		}
 		Timestamp ts = Timestamp.from(Instant.now());
 		List<Course> l = courseRepository.saveAll(coursesDto.stream()
-			.filter(c -> c.getName() != null && !c.getName().isBlank())
+			.filter(c -> validationError(c) == null)
 			.map(courseDto -> new Course(courseDto.getName(),
+				courseDto.getCapacity() == null ? properties.getEnrollment().getDefaultCapacity() : courseDto.getCapacity(),
 				ts,
 				ts,
 				new HashSet<StudentCourse>()))
 			.collect(Collectors.toList()));
+		enrollmentIndex.addCourses(l.stream().map(Course::getId).collect(Collectors.toList()));
+		searchIndex.putCourses(l);
+		changeFeed.courses(Operation.CREATED, l.stream().map(Course::getId).collect(Collectors.toList()));
+		versions.changed(Resource.COURSES);
 
 		return l.stream()
 			.map(course -> new CourseDto(course.getId(),
 				course.getName(),
+				course.getCapacity(),
 				course.getCreatedAt(),
-				course.getUpdatedAt()))
+				course.getUpdatedAt(),
+				course.getVersion()))
 			.collect(Collectors.toList());
 	}
 
-	@Transactional
-	public void deleteAllCourses(Boolean confirmDeletion) {
-		if (confirmDeletion) {
-			studentCourseRepository.deleteAll();
-			courseRepository.deleteAll();
-		} else {
+	/**
+	 * @return why the course can not be registered, or null when it is valid.
+	 */
+	static String validationError(CourseDto courseDto) {
+		if (courseDto.getName() == null || courseDto.getName().isBlank()) {
+			return "The name is blank.";
+		}
+		if (courseDto.getCapacity() != null && courseDto.getCapacity() < 1) {
+			return "The capacity must be greater than zero.";
+		}
+		return null;
+	}
+
+	/**
+	 * Deletes the courses in the background, school.bulk-delete.chunk-size courses (and their enrollments) per
+	 * transaction, with set-based statements. An interrupted job leaves consistent data and is resumed on restart.
+	 *
+	 * @return the job, which is the unfinished one when a deletion of all courses was already submitted.
+	 */
+	public JobDto deleteAllCourses(Boolean confirmDeletion, Priority priority) {
+		if (!confirmDeletion) {
 			throw new ResponseStatusException(
 				HttpStatus.NOT_FOUND,
 				"To delete ALL courses and courses-students relationships, inform confirm-deletion=true as a query param.");
 		}
+		return jobs.submit(DELETE_ALL_JOB, null, priority);
 	}
 
-	@Transactional
+	private void deleteCoursesInChunks(Jobs.Progress progress) {
+		progress.setTotal(courseRepository.count());
+		int deleted;
+		do {
+			deleted = transactionTemplate.execute(status -> deleteCoursesChunk());
+			progress.add(deleted);
+		} while (deleted > 0);
+	}
+
+	/**
+	 * @return the number of deleted courses.
+	 */
+	private int deleteCoursesChunk() {
+		List<Long> ids = courseRepository.getIds(PageRequest.of(0, properties.getBulkDelete().getChunkSize()));
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		List<Object[]> enrollments = studentCourseRepository.getEnrollmentsByCourses(ids);
+		studentRepository.decrementCourseCountByCourses(ids);
+		studentCourseViewRepository.deleteByCourses(ids);
+		studentCourseRepository.deleteByCourses(ids);
+		courseRepository.deleteByIds(ids);
+
+		Set<Long> studentIds = new HashSet<>();
+		for (Object[] enrollment : enrollments) {
+			changeFeed.courseEnrollments(Operation.DELETED, (Long) enrollment[0], List.of((Long) enrollment[1]));
+			studentIds.add((Long) enrollment[1]);
+		}
+		changeFeed.courses(Operation.DELETED, ids);
+		enrollmentIndex.removeCourses(ids);
+		searchIndex.removeCourses(ids);
+		versions.changed(Resource.COURSES, Resource.ENROLLMENTS);
+		ids.forEach(readCache::evictCourse);
+		readCache.evictStudentsByCourse(ids);
+		readCache.evictCoursesByStudent(studentIds);
+		return ids.size();
+	}
+
+	/**
+	 * A large roster is removed in chunks of school.bulk-delete.chunk-size enrollments, each in its own transaction;
+	 * the last chunk is deleted with the course.
+	 */
 	public void deleteCourse(Long id, Boolean confirmDeletion) {
 		if (confirmDeletion) {
-			Course course = courseRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
-				HttpStatus.NOT_FOUND, "Course not found."));
-
-			studentCourseRepository.deleteStudentsByCourse(course);
-			courseRepository.deleteById(id);
+			int chunkSize = properties.getBulkDelete().getChunkSize();
+			while (transactionTemplate.execute(status -> unenrollChunk(id, chunkSize))) {
+				//next chunk
+			}
+			transactionTemplate.executeWithoutResult(status -> deleteCourseWithRoster(id));
 		} else {
 			throw new ResponseStatusException(
 				HttpStatus.NOT_FOUND,
@@ -149,19 +503,85 @@ public class CourseService {
 		}
 	}
 
+	/**
+	 * @return true when a chunk of the course students was unenrolled, false when the rest fits in one chunk.
+	 */
+	private boolean unenrollChunk(Long id, int chunkSize) {
+		Course course = courseRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
+			HttpStatus.NOT_FOUND, "Course not found."));
+		List<Long> studentIds = studentCourseRepository.getStudentIdsByCourse(course, PageRequest.of(0, chunkSize + 1));
+		if (studentIds.size() <= chunkSize) {
+			return false;
+		}
+		List<Long> removed = new ArrayList<>(studentIds.subList(0, chunkSize));
+		if (studentCourseRepository.deleteCourseStudents(course, removed) != removed.size()) {
+			throw concurrentEnrollmentChange(id);
+		}
+		studentCourseViewRepository.deleteCourseStudents(id, removed);
+		studentRepository.decrementCourseCount(removed);
+		courseRepository.addToEnrolledCount(id, -removed.size());
+
+		enrollmentIndex.updateCourseStudents(id, List.of(), removed);
+		changeFeed.courseEnrollments(Operation.DELETED, id, removed);
+		versions.changed(Resource.ENROLLMENTS);
+		readCache.evictStudentsByCourse(List.of(id));
+		readCache.evictCoursesByStudent(removed);
+		return true;
+	}
+
+	private void deleteCourseWithRoster(Long id) {
+		Course course = courseRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
+			HttpStatus.NOT_FOUND, "Course not found."));
+
+		List<Long> studentIds = studentCourseRepository.getStudentIdsByCourse(course);
+		studentRepository.decrementCourseCountByCourse(course);
+		studentCourseRepository.deleteStudentsByCourse(course);
+		studentCourseViewRepository.deleteStudentsByCourse(id);
+		courseRepository.deleteById(id);
+
+		enrollmentIndex.removeCourse(id);
+		searchIndex.removeCourse(id);
+		changeFeed.courseEnrollments(Operation.DELETED, id, studentIds);
+		changeFeed.courses(Operation.DELETED, List.of(id));
+		versions.changed(Resource.COURSES, Resource.ENROLLMENTS);
+		readCache.evictCourse(id);
+		readCache.evictStudentsByCourse(List.of(id));
+		readCache.evictCoursesByStudent(studentIds);
+	}
+
 	//--------------------------
+	@Cacheable(cacheNames = CacheConfig.COURSES_BY_STUDENT, key = "#id")
 	public List<CourseDto> getCoursesByStudent(Long id) {
+		if (enrollmentIndex.isReady()) {
+			long[] ids = enrollmentIndex.getCourseIds(id);
+			if (ids == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Student not found.");
+			}
+			return findCourses(ids);
+		}
 		Student student = studentRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Student not found."));
-		return courseRepository
-			.getCoursesByStudent(student).stream()
-			.map(course -> new CourseDto(course.getId(),
-				course.getName(),
-				course.getCreatedAt(),
-				course.getUpdatedAt()))
-			.collect(Collectors.toList());
+		return courseRepository.getCoursesByStudent(student);
+	}
+
+	private List<CourseDto> findCourses(long[] ids) {
+		return pagination.findByIds(ids, courseRepository::getCoursesByIds, CourseDto::getId);
 	}
 
 	public List<StudentCourseView> getCourseStudentRelationship() {
 		return studentCourseViewRepository.getCourseStudentRelationship();
 	}
+
+	/**
+	 * Reads the relationships with a forward-only cursor, handing each row to the consumer as it arrives.
+	 * Rows are detached once consumed, so memory stays constant regardless of the number of rows.
+	 */
+	@Transactional(readOnly = true)
+	public void streamCourseStudentRelationship(Consumer<StudentCourseView> consumer) {
+		try (Stream<StudentCourseView> rows = studentCourseViewRepository.streamCourseStudentRelationship()) {
+			rows.forEach(row -> {
+				consumer.accept(row);
+				entityManager.detach(row);
+			});
+		}
+	}
 }
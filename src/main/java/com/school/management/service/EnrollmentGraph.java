@@ -0,0 +1,193 @@
+package com.school.management.service;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import org.roaringbitmap.BitSetUtil;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The enrollment bipartite graph in primitive structures: for each side, the sorted ids of the neighbours in a long-keyed
+ * map, and bit sets (indexed by id) of the existing nodes and of the nodes without neighbours. The roster of every course
+ * is also kept as a compressed bitmap for the set-algebra queries.
+ * Adjacency arrays are replaced, never modified, so a returned array stays valid. Not thread-safe.
+ * <p>
+ * Ids must fit in an int (the bit set index), otherwise the mutations throw IllegalArgumentException.
+ */
+class EnrollmentGraph {
+
+	private static final long[] NONE = new long[0];
+
+	private final Side students = new Side();
+	private final Side courses = new Side();
+	private final LongObjectHashMap<RoaringBitmap> rosters = new LongObjectHashMap<>();
+
+	void addStudent(long id) {
+		students.add(id);
+	}
+
+	void addCourse(long id) {
+		courses.add(id);
+	}
+
+	void enroll(long studentId, long courseId) {
+		students.link(studentId, courseId);
+		courses.link(courseId, studentId);
+		RoaringBitmap roster = rosters.get(courseId);
+		if (roster == null) {
+			rosters.put(courseId, roster = new RoaringBitmap());
+		}
+		roster.add((int) studentId);
+	}
+
+	void unenroll(long studentId, long courseId) {
+		students.unlink(studentId, courseId);
+		courses.unlink(courseId, studentId);
+		RoaringBitmap roster = rosters.get(courseId);
+		if (roster != null) {
+			roster.remove((int) studentId);
+		}
+	}
+
+	void removeStudent(long id) {
+		for (long courseId : students.remove(id)) {
+			courses.unlink(courseId, id);
+			rosters.get(courseId).remove((int) id);
+		}
+	}
+
+	void removeCourse(long id) {
+		for (long studentId : courses.remove(id)) {
+			students.unlink(studentId, id);
+		}
+		rosters.remove(id);
+	}
+
+	/**
+	 * @return the sorted course ids of the student, or null when the student does not exist.
+	 */
+	long[] getCourseIds(long studentId) {
+		return students.neighbours(studentId);
+	}
+
+	/**
+	 * @return the sorted student ids of the course, or null when the course does not exist.
+	 */
+	long[] getStudentIds(long courseId) {
+		return courses.neighbours(courseId);
+	}
+
+	/**
+	 * @return the student ids of the course (not to be modified), or null when the course does not exist.
+	 */
+	RoaringBitmap getRoster(long courseId) {
+		if (courses.neighbours(courseId) == null) {
+			return null;
+		}
+		RoaringBitmap roster = rosters.get(courseId);
+		return roster == null ? new RoaringBitmap() : roster;
+	}
+
+	/**
+	 * @return a new bitmap with the ids of all the students.
+	 */
+	RoaringBitmap getStudents() {
+		return BitSetUtil.bitmapOf(students.nodes);
+	}
+
+	/**
+	 * @return up to limit ids greater than the cursor, in ascending order.
+	 */
+	long[] getStudentsWithoutCourse(long cursor, int limit) {
+		return students.isolated(cursor, limit);
+	}
+
+	long[] getCoursesWithoutStudent(long cursor, int limit) {
+		return courses.isolated(cursor, limit);
+	}
+
+	private static int index(long id) {
+		if (id < 0 || id >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Id " + id + " does not fit in the enrollment index.");
+		}
+		return (int) id;
+	}
+
+	private static final class Side {
+		final LongObjectHashMap<long[]> adjacency = new LongObjectHashMap<>();
+		final BitSet nodes = new BitSet();
+		final BitSet isolated = new BitSet();
+
+		void add(long id) {
+			int i = index(id);
+			if (!nodes.get(i)) {
+				nodes.set(i);
+				isolated.set(i);
+			}
+		}
+
+		void link(long id, long other) {
+			add(id);
+			long[] current = adjacency.getOrDefault(id, NONE);
+			int position = Arrays.binarySearch(current, other);
+			if (position >= 0) {
+				return;
+			}
+			position = -position - 1;
+			long[] linked = new long[current.length + 1];
+			System.arraycopy(current, 0, linked, 0, position);
+			linked[position] = other;
+			System.arraycopy(current, position, linked, position + 1, current.length - position);
+			adjacency.put(id, linked);
+			isolated.clear(index(id));
+		}
+
+		void unlink(long id, long other) {
+			long[] current = adjacency.get(id);
+			int position = current == null ? -1 : Arrays.binarySearch(current, other);
+			if (position < 0) {
+				return;
+			}
+			if (current.length == 1) {
+				adjacency.remove(id);
+				isolated.set(index(id));
+				return;
+			}
+			long[] unlinked = new long[current.length - 1];
+			System.arraycopy(current, 0, unlinked, 0, position);
+			System.arraycopy(current, position + 1, unlinked, position, current.length - position - 1);
+			adjacency.put(id, unlinked);
+		}
+
+		/**
+		 * @return the neighbours the node had.
+		 */
+		long[] remove(long id) {
+			int i = index(id);
+			nodes.clear(i);
+			isolated.clear(i);
+			long[] removed = adjacency.remove(id);
+			return removed == null ? NONE : removed;
+		}
+
+		long[] neighbours(long id) {
+			if (id < 0 || id >= Integer.MAX_VALUE || !nodes.get((int) id)) {
+				return null;
+			}
+			return adjacency.getOrDefault(id, NONE);
+		}
+
+		long[] isolated(long cursor, int limit) {
+			LongArrayList ids = new LongArrayList();
+			if (cursor >= Integer.MAX_VALUE - 1) {
+				return ids.toArray();
+			}
+			for (int i = isolated.nextSetBit((int) Math.max(0, cursor + 1)); i >= 0 && ids.size() < limit; i = isolated.nextSetBit(i + 1)) {
+				ids.add(i);
+			}
+			return ids.toArray();
+		}
+	}
+}
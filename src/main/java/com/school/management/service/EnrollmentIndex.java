@@ -0,0 +1,191 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.ListFilter;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of the enrollments (see {@link EnrollmentGraph}), loaded before the web server accepts requests when
+ * school.enrollment-index.enabled is set. Changes are applied after their transaction commits, like the cache evictions,
+ * and only the writes of this instance are seen. When an id does not fit in the index, it stops serving reads and the
+ * services fall back to the database.
+ */
+@Component
+public class EnrollmentIndex implements SmartInitializingSingleton {
+
+	private static final Logger log = LoggerFactory.getLogger(EnrollmentIndex.class);
+
+	private static final int FETCH_SIZE = 1000;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final SchoolProperties properties;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private EnrollmentGraph graph;
+	private volatile boolean ready;
+
+	public EnrollmentIndex(JdbcTemplate jdbcTemplate, SchoolProperties properties) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.properties = properties;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (properties.getEnrollmentIndex().isEnabled()) {
+			load();
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the tables, streaming the rows.
+	 */
+	public void load() {
+		JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+		cursor.setFetchSize(FETCH_SIZE);
+		EnrollmentGraph loaded = new EnrollmentGraph();
+		try {
+			cursor.query("SELECT id FROM student", (RowCallbackHandler) rs -> loaded.addStudent(rs.getLong(1)));
+			cursor.query("SELECT id FROM course", (RowCallbackHandler) rs -> loaded.addCourse(rs.getLong(1)));
+			cursor.query("SELECT student_id, course_id FROM student_course", (RowCallbackHandler) rs -> loaded.enroll(rs.getLong(1), rs.getLong(2)));
+		} catch (IllegalArgumentException e) {
+			log.warn("The enrollment index is disabled: {}", e.getMessage());
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			graph = loaded;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Loaded the enrollment index.");
+	}
+
+	/**
+	 * @return true when the reads can be served by the index.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return true when the listing of the filter can be served by the index, which knows nothing about names and
+	 * timestamps.
+	 */
+	public boolean isReadyFor(ListFilter filter) {
+		return ready && filter.getEscapedNamePrefix() == null && filter.getCreatedFrom() == null && filter.getCreatedTo() == null;
+	}
+
+	/**
+	 * @return the sorted course ids of the student, or null when the student does not exist.
+	 */
+	public long[] getCourseIds(long studentId) {
+		return read(graph -> graph.getCourseIds(studentId));
+	}
+
+	/**
+	 * @return the sorted student ids of the course, or null when the course does not exist.
+	 */
+	public long[] getStudentIds(long courseId) {
+		return read(graph -> graph.getStudentIds(courseId));
+	}
+
+	/**
+	 * @return up to limit ids of students without courses greater than the cursor, in ascending order.
+	 */
+	public long[] getStudentsWithoutCourse(long cursor, int limit) {
+		return read(graph -> graph.getStudentsWithoutCourse(cursor, limit));
+	}
+
+	/**
+	 * @return up to limit ids of courses without students greater than the cursor, in ascending order.
+	 */
+	public long[] getCoursesWithoutStudent(long cursor, int limit) {
+		return read(graph -> graph.getCoursesWithoutStudent(cursor, limit));
+	}
+
+	/**
+	 * @return a new bitmap with the ids of the students matching the expression.
+	 */
+	public RoaringBitmap evaluate(CourseExpression expression) {
+		return read(graph -> expression.evaluate(graph::getRoster, graph::getStudents));
+	}
+
+	public void addStudents(Collection<Long> ids) {
+		afterCommit(graph -> ids.forEach(graph::addStudent));
+	}
+
+	public void addCourses(Collection<Long> ids) {
+		afterCommit(graph -> ids.forEach(graph::addCourse));
+	}
+
+	public void updateStudentCourses(long studentId, Collection<Long> added, Collection<Long> removed) {
+		afterCommit(graph -> {
+			added.forEach(courseId -> graph.enroll(studentId, courseId));
+			removed.forEach(courseId -> graph.unenroll(studentId, courseId));
+		});
+	}
+
+	public void updateCourseStudents(long courseId, Collection<Long> added, Collection<Long> removed) {
+		afterCommit(graph -> {
+			added.forEach(studentId -> graph.enroll(studentId, courseId));
+			removed.forEach(studentId -> graph.unenroll(studentId, courseId));
+		});
+	}
+
+	public void removeStudent(long id) {
+		afterCommit(graph -> graph.removeStudent(id));
+	}
+
+	public void removeCourse(long id) {
+		afterCommit(graph -> graph.removeCourse(id));
+	}
+
+	public void removeStudents(Collection<Long> ids) {
+		afterCommit(graph -> ids.forEach(graph::removeStudent));
+	}
+
+	public void removeCourses(Collection<Long> ids) {
+		afterCommit(graph -> ids.forEach(graph::removeCourse));
+	}
+
+	private <T> T read(Function<EnrollmentGraph, T> query) {
+		lock.readLock().lock();
+		try {
+			return query.apply(graph);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void afterCommit(Consumer<EnrollmentGraph> change) {
+		if (ready) {
+			AfterCommit.run(() -> apply(change));
+		}
+	}
+
+	private void apply(Consumer<EnrollmentGraph> change) {
+		lock.writeLock().lock();
+		try {
+			if (ready) {
+				change.accept(graph);
+			}
+		} catch (IllegalArgumentException e) {
+			ready = false;
+			log.warn("The enrollment index is disabled: {}", e.getMessage());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
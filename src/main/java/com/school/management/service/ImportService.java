@@ -0,0 +1,293 @@
+package com.school.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Course;
+import com.school.management.model.Student;
+import com.school.management.model.StudentCourse;
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ImportReportDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.ResourceVersions.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of students and courses from CSV (with a header line) or NDJSON files of any size.
+ * <p>
+ * The file is parsed row by row and the valid rows are persisted in batches, each batch in its own transaction and sent
+ * as JDBC batch inserts (the ids come from the pooled generator). The persistence context is cleared after every batch,
+ * so memory use is bounded by the batch size. Invalid rows are skipped and reported.
+ */
+@Service
+public class ImportService {
+
+	public static final String TEXT_CSV_VALUE = "text/csv";
+	public static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+	/**
+	 * Length of the varchar columns generated by Hibernate.
+	 */
+	private static final int MAX_TEXT_LENGTH = 255;
+
+	private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final SchoolProperties properties;
+	private final EnrollmentIndex enrollmentIndex;
+	private final SearchIndex searchIndex;
+	private final ResourceVersions versions;
+	private final ChangeFeed changeFeed;
+
+	public ImportService(EntityManager entityManager, PlatformTransactionManager transactionManager, ObjectMapper objectMapper, SchoolProperties properties, EnrollmentIndex enrollmentIndex, SearchIndex searchIndex, ResourceVersions versions, ChangeFeed changeFeed) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.objectMapper = objectMapper;
+		this.properties = properties;
+		this.enrollmentIndex = enrollmentIndex;
+		this.searchIndex = searchIndex;
+		this.versions = versions;
+		this.changeFeed = changeFeed;
+	}
+
+	/**
+	 * @param in          = CSV (columns: name, address) or NDJSON ({"name": ..., "address": ...} per line).
+	 * @param contentType = text/csv or application/x-ndjson.
+	 * @return the number of imported and rejected rows.
+	 */
+	public ImportReportDto importStudents(InputStream in, MediaType contentType) {
+		Timestamp ts = Timestamp.from(Instant.now());
+		return importRows(in, contentType, StudentDto.class, ImportService::validationError, studentDto ->
+			new Student(studentDto.getName(), studentDto.getAddress(), ts, ts, new HashSet<StudentCourse>()),
+			students -> {
+				List<Long> ids = students.stream().map(Student::getId).collect(Collectors.toList());
+				enrollmentIndex.addStudents(ids);
+				searchIndex.putStudents(students);
+				changeFeed.students(Operation.CREATED, ids);
+				versions.changed(Resource.STUDENTS);
+			});
+	}
+
+	/**
+	 * @param in          = CSV (columns: name, capacity) or NDJSON ({"name": ..., "capacity": ...} per line).
+	 *                    The capacity is optional.
+	 * @param contentType = text/csv or application/x-ndjson.
+	 * @return the number of imported and rejected rows.
+	 */
+	public ImportReportDto importCourses(InputStream in, MediaType contentType) {
+		Timestamp ts = Timestamp.from(Instant.now());
+		int defaultCapacity = properties.getEnrollment().getDefaultCapacity();
+		return importRows(in, contentType, CourseDto.class, ImportService::validationError, courseDto ->
+			new Course(courseDto.getName(), courseDto.getCapacity() == null ? defaultCapacity : courseDto.getCapacity(), ts, ts, new HashSet<StudentCourse>()),
+			courses -> {
+				List<Long> ids = courses.stream().map(Course::getId).collect(Collectors.toList());
+				enrollmentIndex.addCourses(ids);
+				searchIndex.putCourses(courses);
+				changeFeed.courses(Operation.CREATED, ids);
+				versions.changed(Resource.COURSES);
+			});
+	}
+
+	private static String validationError(StudentDto studentDto) {
+		String error = StudentService.validationError(studentDto);
+		if (error == null && (studentDto.getName().length() > MAX_TEXT_LENGTH || studentDto.getAddress().length() > MAX_TEXT_LENGTH)) {
+			error = "The name and the address can not be longer than " + MAX_TEXT_LENGTH + " characters.";
+		}
+		return error;
+	}
+
+	private static String validationError(CourseDto courseDto) {
+		String error = CourseService.validationError(courseDto);
+		if (error == null && courseDto.getName().length() > MAX_TEXT_LENGTH) {
+			error = "The name can not be longer than " + MAX_TEXT_LENGTH + " characters.";
+		}
+		return error;
+	}
+
+	/**
+	 * @param onInserted = called with every batch of persisted entities, within the batch transaction.
+	 */
+	private <T, E> ImportReportDto importRows(InputStream in, MediaType contentType, Class<T> type, Function<T, String> validator, Function<T, E> toEntity, Consumer<List<E>> onInserted) {
+		int batchSize = properties.getBulkImport().getBatchSize();
+		ImportReportDto report = new ImportReportDto();
+		List<E> batch = new ArrayList<>(batchSize);
+
+		RowConsumer<T> consumer = (row, value) -> {
+			String error = validator.apply(value);
+			if (error != null) {
+				reject(report, row, error);
+				return;
+			}
+			batch.add(toEntity.apply(value));
+			if (batch.size() == batchSize) {
+				insert(batch, report, onInserted);
+			}
+		};
+
+		Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset))) {
+			if (TEXT_CSV.isCompatibleWith(contentType)) {
+				readCsv(reader, type, consumer, report);
+			} else {
+				readNdjson(reader, type, consumer, report);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		insert(batch, report, onInserted);
+		return report;
+	}
+
+	private <T> void readCsv(BufferedReader reader, Class<T> type, RowConsumer<T> consumer, ImportReportDto report) throws IOException {
+		MappingIterator<String[]> rows = CSV_MAPPER.readerFor(String[].class)
+			.with(CsvParser.Feature.WRAP_AS_ARRAY)
+			.with(CsvParser.Feature.SKIP_EMPTY_LINES)
+			.readValues(reader);
+		long row = 0;
+		try {
+			if (!rows.hasNext()) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The CSV file must start with a header line.");
+			}
+			String[] header = rows.next();
+			for (int i = 0; i < header.length; i++) {
+				header[i] = header[i].trim();
+			}
+
+			while (rows.hasNext()) {
+				String[] values = rows.next();
+				row++;
+				if (values.length > header.length) {
+					reject(report, row, "The row has more columns than the header.");
+					continue;
+				}
+				Map<String, String> fields = new HashMap<>();
+				for (int i = 0; i < values.length; i++) {
+					if (!values[i].isEmpty()) {
+						fields.put(header[i], values[i]);
+					}
+				}
+				T value;
+				try {
+					value = objectMapper.convertValue(fields, type);
+				} catch (IllegalArgumentException e) {
+					reject(report, row, reason(e));
+					continue;
+				}
+				consumer.accept(row, value);
+			}
+		} catch (RuntimeJsonMappingException e) {
+			//the rest of the file can not be parsed reliably after a syntax error (ex: an unclosed quote)
+			reject(report, row + 1, "Malformed CSV, the remaining rows were not imported: " + e.getMessage());
+		}
+	}
+
+	private <T> void readNdjson(BufferedReader reader, Class<T> type, RowConsumer<T> consumer, ImportReportDto report) throws IOException {
+		int maxLineLength = properties.getBulkImport().getMaxLineLength();
+		StringBuilder buffer = new StringBuilder();
+		long row = 0;
+		String line;
+		while ((line = readLine(reader, buffer, maxLineLength)) != null) {
+			row++;
+			if (line.length() > maxLineLength) {
+				throw new ResponseStatusException(
+					HttpStatus.PAYLOAD_TOO_LARGE, "The line " + row + " is longer than " + maxLineLength + " characters.");
+			}
+			if (line.isBlank()) {
+				continue;
+			}
+			T value;
+			try {
+				value = objectMapper.readValue(line, type);
+			} catch (JsonProcessingException e) {
+				reject(report, row, e.getOriginalMessage());
+				continue;
+			}
+			consumer.accept(row, value);
+		}
+	}
+
+	/**
+	 * BufferedReader.readLine() without a bound: stops reading a line after maxLength + 1 characters.
+	 *
+	 * @return the line (longer than maxLength when it was cut), or null at the end of the input.
+	 */
+	private static String readLine(BufferedReader reader, StringBuilder buffer, int maxLength) throws IOException {
+		buffer.setLength(0);
+		int c;
+		while ((c = reader.read()) != -1 && c != '\n') {
+			if (buffer.length() > maxLength) {
+				return buffer.toString();
+			}
+			buffer.append((char) c);
+		}
+		if (c == -1 && buffer.length() == 0) {
+			return null;
+		}
+		int end = buffer.length();
+		if (end > 0 && buffer.charAt(end - 1) == '\r') {
+			buffer.setLength(end - 1);
+		}
+		return buffer.toString();
+	}
+
+	private <E> void insert(List<E> batch, ImportReportDto report, Consumer<List<E>> onInserted) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			batch.forEach(entityManager::persist);
+			entityManager.flush();
+			onInserted.accept(batch);
+			entityManager.clear();
+		});
+		report.setImported(report.getImported() + batch.size());
+		batch.clear();
+	}
+
+	private void reject(ImportReportDto report, long row, String reason) {
+		report.setRejected(report.getRejected() + 1);
+		if (report.getRejects().size() < properties.getBulkImport().getMaxReportedRejects()) {
+			report.getRejects().add(new ImportReportDto.Reject(row, reason));
+		}
+	}
+
+	private static String reason(IllegalArgumentException e) {
+		return e.getCause() instanceof JsonProcessingException ? ((JsonProcessingException) e.getCause()).getOriginalMessage() : e.getMessage();
+	}
+
+	@FunctionalInterface
+	private interface RowConsumer<T> {
+		void accept(long row, T value);
+	}
+}
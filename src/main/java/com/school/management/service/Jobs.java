@@ -0,0 +1,280 @@
+package com.school.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.Job;
+import com.school.management.model.Job.Priority;
+import com.school.management.model.Job.Status;
+import com.school.management.model.dto.JobDto;
+import com.school.management.repository.JobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the long writes (ex: deleting every student, bulk enrollments) in the background, so the request returns at
+ * once with the job id and the client polls the job status (GET /jobs/{id}).
+ * <p>
+ * The jobs are stored in the job table and run by school.jobs.workers threads, the queued ones by priority and then in
+ * submission order. A job runs on a single worker and commits its work in chunks, so it holds at most one database
+ * connection at a time and the jobs together never take more than school.jobs.workers connections from the pool.
+ * <p>
+ * A job is run by the handler registered for its type, from its stored parameters. The jobs left unfinished by a
+ * stopped instance are run again from the start when the application starts (single-instance deployments), so the
+ * handlers must be idempotent and leave consistent data wherever they stop.
+ */
+@Component
+public class Jobs implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(Jobs.class);
+
+	/**
+	 * How often the progress of a running job is written.
+	 */
+	private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
+	private static final List<Status> UNFINISHED = List.of(Status.QUEUED, Status.RUNNING);
+
+	/**
+	 * Higher priorities first, then the oldest job.
+	 */
+	private static final Comparator<Run> QUEUE_ORDER = Comparator.comparing((Run run) -> run.priority).reversed().thenComparing(run -> run.id);
+
+	/**
+	 * Runs a job of a type. The returned result (null for none) is stored as JSON.
+	 */
+	public interface Handler<P> {
+		Object run(P parameters, Progress progress);
+	}
+
+	/**
+	 * Runs a job of a type without parameters nor result.
+	 */
+	public interface Task {
+		void run(Progress progress);
+	}
+
+	public interface Progress {
+		void setTotal(long total);
+
+		void add(long processed);
+	}
+
+	private final JobRepository jobRepository;
+	private final ObjectMapper objectMapper;
+	private final SchoolProperties properties;
+	private final Map<String, Registration> handlers = new ConcurrentHashMap<>();
+	private final ThreadPoolExecutor executor;
+
+	public Jobs(JobRepository jobRepository, ObjectMapper objectMapper, SchoolProperties properties) {
+		this.jobRepository = jobRepository;
+		this.objectMapper = objectMapper;
+		this.properties = properties;
+		int workers = properties.getJobs().getWorkers();
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+			runnable -> new Thread(runnable, "school-jobs-" + threads.incrementAndGet()));
+	}
+
+	public <P> void register(String type, TypeReference<P> parametersType, Handler<P> handler) {
+		handlers.put(type, new Registration(objectMapper.getTypeFactory().constructType(parametersType), handler));
+	}
+
+	public void register(String type, Task task) {
+		register(type, new TypeReference<Void>() {
+		}, (none, progress) -> {
+			task.run(progress);
+			return null;
+		});
+	}
+
+	/**
+	 * @param parameters = serialized as JSON for the handler of the type.
+	 * @return the job status. While a job of the same type and parameters is queued or running, it is returned
+	 * instead of a new one.
+	 */
+	public synchronized JobDto submit(String type, Object parameters, Priority priority) {
+		if (!handlers.containsKey(type)) {
+			throw new IllegalArgumentException("No handler for the jobs of type " + type + ".");
+		}
+		String json = toJson(parameters);
+		jobRepository.deleteFinishedBefore(Timestamp.from(Instant.now().minus(properties.getJobs().getRetention())));
+		for (Job job : jobRepository.findByTypeAndStatusIn(type, UNFINISHED)) {
+			if (Objects.equals(job.getParameters(), json)) {
+				return toDto(job);
+			}
+		}
+		if (jobRepository.countByStatus(Status.QUEUED) >= properties.getJobs().getMaxQueued()) {
+			throw new ResponseStatusException(
+				HttpStatus.SERVICE_UNAVAILABLE, "There are " + properties.getJobs().getMaxQueued() + " jobs waiting to run. Please retry later.");
+		}
+		Job job = jobRepository.save(new Job(type, priority, json, Timestamp.from(Instant.now())));
+		executor.execute(new Run(job.getId(), job.getPriority()));
+		return toDto(job);
+	}
+
+	public JobDto getJob(Long id) {
+		return toDto(jobRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
+			HttpStatus.NOT_FOUND, "Job not found.")));
+	}
+
+	/**
+	 * Queues again the jobs left unfinished when the application stopped.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resume() {
+		jobRepository.requeueRunning(Status.RUNNING, Status.QUEUED);
+		for (Job job : jobRepository.findByStatusOrderById(Status.QUEUED)) {
+			log.info("Resuming the job {} ({})", job.getId(), job.getType());
+			executor.execute(new Run(job.getId(), job.getPriority()));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private void run(Long id) {
+		Job job = jobRepository.findById(id).orElse(null);
+		Timestamp startedAt = Timestamp.from(Instant.now());
+		if (job == null || jobRepository.start(id, startedAt, Status.QUEUED, Status.RUNNING) != 1) {
+			return;
+		}
+		Registration registration = handlers.get(job.getType());
+		JobProgress progress = new JobProgress(id);
+		try {
+			if (registration == null) {
+				throw new IllegalStateException("No handler for the jobs of type " + job.getType() + ".");
+			}
+			Object result = registration.handler.run(objectMapper.readValue(job.getParameters(), registration.parametersType), progress);
+			jobRepository.finish(id, Status.SUCCEEDED, progress.processed, result == null ? null : toJson(result), null, Timestamp.from(Instant.now()));
+		} catch (Throwable e) {
+			//an Error (ex: OutOfMemoryError) fails the job too, instead of leaving it RUNNING until the next restart
+			log.warn("The job {} ({}) failed", id, job.getType(), e);
+			String error = String.valueOf(e.getMessage());
+			jobRepository.finish(id, Status.FAILED, progress.processed, null,
+				error.length() > Job.MAX_ERROR_LENGTH ? error.substring(0, Job.MAX_ERROR_LENGTH) : error, Timestamp.from(Instant.now()));
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+	}
+
+	private String toJson(Object value) {
+		try {
+			return objectMapper.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private JobDto toDto(Job job) {
+		JobDto dto = new JobDto();
+		dto.setId(job.getId());
+		dto.setType(job.getType());
+		dto.setStatus(job.getStatus());
+		dto.setPriority(job.getPriority());
+		dto.setProcessed(job.getProcessed());
+		dto.setTotal(job.getTotal());
+		try {
+			dto.setResult(job.getResult() == null ? null : objectMapper.readTree(job.getResult()));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+		dto.setError(job.getError());
+		dto.setCreatedAt(job.getCreatedAt());
+		dto.setStartedAt(job.getStartedAt());
+		dto.setFinishedAt(job.getFinishedAt());
+		return dto;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static class Registration {
+		final JavaType parametersType;
+		final Handler<Object> handler;
+
+		Registration(JavaType parametersType, Handler<?> handler) {
+			this.parametersType = parametersType;
+			this.handler = (Handler<Object>) handler;
+		}
+	}
+
+	/**
+	 * Queue entry of a job.
+	 */
+	private class Run implements Runnable, Comparable<Run> {
+		final Long id;
+		final Priority priority;
+
+		Run(Long id, Priority priority) {
+			this.id = id;
+			this.priority = priority;
+		}
+
+		@Override
+		public void run() {
+			Jobs.this.run(id);
+		}
+
+		@Override
+		public int compareTo(Run other) {
+			return QUEUE_ORDER.compare(this, other);
+		}
+	}
+
+	/**
+	 * Written at most every PROGRESS_INTERVAL, and when the total is known.
+	 */
+	private class JobProgress implements Progress {
+		final Long id;
+		long processed;
+		Long total;
+		Instant written = Instant.now();
+
+		JobProgress(Long id) {
+			this.id = id;
+		}
+
+		@Override
+		public void setTotal(long total) {
+			this.total = total;
+			write();
+		}
+
+		@Override
+		public void add(long processed) {
+			this.processed += processed;
+			if (Instant.now().isAfter(written.plus(PROGRESS_INTERVAL))) {
+				write();
+			}
+		}
+
+		private void write() {
+			jobRepository.updateProgress(id, processed, total);
+			written = Instant.now();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Read-modify-write of a student or course (or of its enrollments) under optimistic locking, instead of serializing
+ * the writers.
+ * <p>
+ * Each attempt runs in its own transaction. An attempt that lost a race with a concurrent write (a stale version, an
+ * enrollment inserted or deleted in the meantime, a deadlock) is rolled back and run again on the new state after a
+ * short random pause, up to school.optimistic-locking.max-attempts times. An attempt that checks an If-Match version
+ * fails with 412 instead when the concurrent write changed the entity.
+ */
+final class OptimisticWrites {
+
+	private final TransactionTemplate transactionTemplate;
+	private final int maxAttempts;
+	private final long backoffMillis;
+
+	OptimisticWrites(TransactionTemplate transactionTemplate, SchoolProperties.OptimisticLocking properties) {
+		this.transactionTemplate = transactionTemplate;
+		this.maxAttempts = Math.max(properties.getMaxAttempts(), 1);
+		this.backoffMillis = properties.getBackoff().toMillis();
+	}
+
+	/**
+	 * @param conflict = the error (409) returned when the last attempt also lost the race.
+	 */
+	<T> T run(Supplier<T> write, Supplier<ResponseStatusException> conflict) {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> write.get());
+			} catch (ConcurrencyFailureException e) {
+				if (attempt == maxAttempts || !pause(attempt)) {
+					ResponseStatusException exception = conflict.get();
+					exception.addSuppressed(e);
+					throw exception;
+				}
+			}
+		}
+	}
+
+	//random, so the writers that collided do not retry at the same time
+	private boolean pause(int attempt) {
+		if (backoffMillis > 0) {
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param requiredVersion = the version of the If-Match header, null when any version is accepted.
+	 * @throws ResponseStatusException (412) when the entity was changed since the client read it.
+	 */
+	static void checkVersion(Long requiredVersion, Long version, String entity) {
+		if (requiredVersion != null && !requiredVersion.equals(version == null ? 0L : version)) {
+			throw new ResponseStatusException(
+				HttpStatus.PRECONDITION_FAILED, "The " + entity + " was changed since it was read. Read it again and retry.");
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Page size of the keyset listings (see {@link ListFilter}), validated against school.pagination, and the pages of
+ * the listings served by id (from the enrollment index or a lookup).
+ */
+final class Pagination {
+
+	private final SchoolProperties properties;
+	private final String rows;
+
+	/**
+	 * @param rows = what the listing returns, for the error messages (ex: "students").
+	 */
+	Pagination(SchoolProperties properties, String rows) {
+		this.properties = properties;
+		this.rows = rows;
+	}
+
+	/**
+	 * @return the page size for the filter, or null when the whole list was requested.
+	 */
+	Integer getPageLimit(ListFilter filter) {
+		return filter.isPaged() ? getPageLimit(filter.getLimit()) : null;
+	}
+
+	/**
+	 * @param requestedLimit = the requested page size, null for the default one.
+	 * @return the page size.
+	 */
+	int getPageLimit(Integer requestedLimit) {
+		int limit = requestedLimit == null ? properties.getPagination().getDefaultLimit() : requestedLimit;
+		if (limit < 1) {
+			throw new ResponseStatusException(
+				HttpStatus.BAD_REQUEST, "The page limit must be greater than zero.");
+		}
+		if (limit > properties.getPagination().getMaxLimit()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A page can not contain more than " + properties.getPagination().getMaxLimit() + " " + rows + ".");
+		}
+		return limit;
+	}
+
+	//one extra row tells whether there is a next page
+	static Pageable toPageable(Integer limit) {
+		return limit == null ? Pageable.unpaged() : PageRequest.of(0, limit + 1);
+	}
+
+	/**
+	 * @param ids    = fetched with limit + 1, so an extra id means there is a next page.
+	 * @param loader = loads the rows of the ids, in the same order.
+	 */
+	static <T> PageDto<T> toPage(long[] ids, Integer limit, Function<long[], List<T>> loader) {
+		if (limit == null || ids.length <= limit) {
+			return new PageDto<>(loader.apply(ids), null);
+		}
+		return new PageDto<>(loader.apply(Arrays.copyOf(ids, limit)), ids[limit - 1]);
+	}
+
+	/**
+	 * Loads the rows of the given ids (at most one IN list per page size), sorted by id.
+	 * Ids missing from the database are skipped.
+	 */
+	<T> List<T> findByIds(long[] ids, Function<List<Long>, List<T>> query, Function<T, Long> idOf) {
+		List<T> rows = new ArrayList<>(ids.length);
+		int chunk = properties.getPagination().getMaxLimit();
+		for (int from = 0; from < ids.length; from += chunk) {
+			rows.addAll(query.apply(LongStream.of(ids).skip(from).limit(chunk).boxed().collect(Collectors.toList())));
+		}
+		rows.sort(Comparator.comparing(idOf));
+		return rows;
+	}
+}
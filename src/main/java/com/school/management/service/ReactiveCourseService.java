@@ -0,0 +1,71 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.repository.ReactiveCourseRepository;
+import com.school.management.repository.ReactiveStudentRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking version of the course reads of {@link CourseService} (profile "reactive"), see {@link ReactiveStudentService}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCourseService {
+
+	private final ReactiveCourseRepository courseRepository;
+	private final ReactiveStudentRepository studentRepository;
+	private final Pagination pagination;
+
+	public ReactiveCourseService(ReactiveCourseRepository courseRepository, ReactiveStudentRepository studentRepository, SchoolProperties properties) {
+		this.courseRepository = courseRepository;
+		this.studentRepository = studentRepository;
+		this.pagination = new Pagination(properties, "courses");
+	}
+
+	public Mono<CourseDto> getCourse(Long id) {
+		return courseRepository.getCourse(id)
+			.switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Course not found.")));
+	}
+
+	/**
+	 * Same as {@link CourseService#getCourses} and {@link CourseService#getCoursesWithoutStudent}.
+	 * The page is collected, to know the cursor of the next page before the response is written.
+	 */
+	public Mono<PageDto<CourseDto>> getCourses(ListFilter filter, boolean withoutStudents) {
+		Integer limit = pagination.getPageLimit(filter);
+		return findCourses(filter, withoutStudents, limit == null ? null : limit + 1)
+			.collectList()
+			.map(rows -> PageDto.of(rows, limit, CourseDto::getId));
+	}
+
+	/**
+	 * Same courses as {@link #getCourses}, emitted one by one as the subscriber requests them. There is no next
+	 * cursor: the next page starts after the id of the last course received.
+	 */
+	public Flux<CourseDto> streamCourses(ListFilter filter, boolean withoutStudents) {
+		return findCourses(filter, withoutStudents, pagination.getPageLimit(filter));
+	}
+
+	public Flux<CourseDto> getCoursesByStudent(Long studentId) {
+		return studentRepository.getStudent(studentId)
+			.switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Student not found.")))
+			.flatMapMany(student -> courseRepository.getCoursesByStudent(studentId));
+	}
+
+	private Flux<CourseDto> findCourses(ListFilter filter, boolean withoutStudents, Integer rows) {
+		long cursor = filter.getCursor() == null ? 0L : filter.getCursor();
+		return withoutStudents
+			? courseRepository.getCoursesWithoutStudentPage(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), rows)
+			: courseRepository.getCoursesPage(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), rows);
+	}
+}
@@ -0,0 +1,72 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.repository.ReactiveCourseRepository;
+import com.school.management.repository.ReactiveStudentRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking version of the student reads of {@link StudentService} (profile "reactive"). Nothing here waits for the
+ * database: the results are published by the R2DBC driver threads, and the caches and the enrollment index are not used.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveStudentService {
+
+	private final ReactiveStudentRepository studentRepository;
+	private final ReactiveCourseRepository courseRepository;
+	private final Pagination pagination;
+
+	public ReactiveStudentService(ReactiveStudentRepository studentRepository, ReactiveCourseRepository courseRepository, SchoolProperties properties) {
+		this.studentRepository = studentRepository;
+		this.courseRepository = courseRepository;
+		this.pagination = new Pagination(properties, "students");
+	}
+
+	public Mono<StudentDto> getStudent(Long id) {
+		return studentRepository.getStudent(id)
+			.switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Student not found.")));
+	}
+
+	/**
+	 * Same as {@link StudentService#getStudents} and {@link StudentService#getStudentsWithoutCourse}.
+	 * The page is collected, to know the cursor of the next page before the response is written.
+	 */
+	public Mono<PageDto<StudentDto>> getStudents(ListFilter filter, boolean withoutCourses) {
+		Integer limit = pagination.getPageLimit(filter);
+		return findStudents(filter, withoutCourses, limit == null ? null : limit + 1)
+			.collectList()
+			.map(rows -> PageDto.of(rows, limit, StudentDto::getId));
+	}
+
+	/**
+	 * Same students as {@link #getStudents}, emitted one by one as the subscriber requests them. There is no next
+	 * cursor: the next page starts after the id of the last student received.
+	 */
+	public Flux<StudentDto> streamStudents(ListFilter filter, boolean withoutCourses) {
+		return findStudents(filter, withoutCourses, pagination.getPageLimit(filter));
+	}
+
+	public Flux<StudentDto> getStudentsByCourse(Long courseId) {
+		return courseRepository.getCourse(courseId)
+			.switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Course not found.")))
+			.flatMapMany(course -> studentRepository.getStudentsByCourse(courseId));
+	}
+
+	private Flux<StudentDto> findStudents(ListFilter filter, boolean withoutCourses, Integer rows) {
+		long cursor = filter.getCursor() == null ? 0L : filter.getCursor();
+		return withoutCourses
+			? studentRepository.getStudentsWithoutCoursePage(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), rows)
+			: studentRepository.getStudentsPage(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), rows);
+	}
+}
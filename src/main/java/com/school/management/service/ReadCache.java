@@ -0,0 +1,51 @@
+package com.school.management.service;
+
+import com.school.management.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Invalidation of the read caches used by StudentService and CourseService.
+ */
+@Component
+public class ReadCache {
+
+	private final CacheManager cacheManager;
+
+	public ReadCache(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	public void evictStudent(Long id) {
+		cache(CacheConfig.STUDENTS).evict(id);
+	}
+
+	public void evictCourse(Long id) {
+		cache(CacheConfig.COURSES).evict(id);
+	}
+
+	public void evictCoursesByStudent(Collection<Long> studentIds) {
+		Cache cache = cache(CacheConfig.COURSES_BY_STUDENT);
+		studentIds.forEach(cache::evict);
+	}
+
+	public void evictStudentsByCourse(Collection<Long> courseIds) {
+		Cache cache = cache(CacheConfig.STUDENTS_BY_COURSE);
+		courseIds.forEach(cache::evict);
+	}
+
+	public void clear() {
+		cacheManager.getCacheNames().forEach(name -> cache(name).clear());
+	}
+
+	private Cache cache(String name) {
+		Cache cache = cacheManager.getCache(name);
+		if (cache == null) {
+			throw new IllegalStateException("Cache " + name + " is not configured.");
+		}
+		return cache;
+	}
+}
@@ -0,0 +1,100 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Collection-level versions backing the ETag and Last-Modified headers of the listings, so a conditional GET is
+ * answered without querying the database.
+ * <p>
+ * Every write bumps the versions of the collections it changed once its transaction commits. The versions only see the
+ * writes of this instance: like the read caches, the validators also change every school.cache.time-to-live, which
+ * bounds how long a client of another instance can be told its copy is current.
+ */
+@Component
+public class ResourceVersions {
+
+	public enum Resource {
+		STUDENTS, COURSES, ENROLLMENTS
+	}
+
+	private final Clock clock;
+	private final long ttlMillis;
+	private final String epoch;
+	private final Map<Resource, Version> versions = new EnumMap<>(Resource.class);
+
+	@Autowired
+	public ResourceVersions(SchoolProperties properties) {
+		this(properties, Clock.systemUTC());
+	}
+
+	ResourceVersions(SchoolProperties properties, Clock clock) {
+		this.clock = clock;
+		this.ttlMillis = properties.getCache().getTimeToLive().toMillis();
+		//validators issued before a restart must not match the restarted counters
+		this.epoch = Long.toString(clock.millis(), Character.MAX_RADIX);
+		for (Resource resource : Resource.values()) {
+			versions.put(resource, new Version(clock.millis()));
+		}
+	}
+
+	/**
+	 * Bumps the versions after the current transaction commits.
+	 */
+	public void changed(Resource... resources) {
+		AfterCommit.run(() -> {
+			for (Resource resource : resources) {
+				versions.get(resource).bump(clock.millis());
+			}
+		});
+	}
+
+	/**
+	 * @return a strong ETag (quoted) that changes whenever one of the resources does.
+	 */
+	public String getETag(Resource... resources) {
+		StringBuilder etag = new StringBuilder("\"").append(epoch);
+		for (Resource resource : resources) {
+			etag.append('-').append(versions.get(resource).value);
+		}
+		if (ttlMillis > 0) {
+			etag.append('-').append(clock.millis() / ttlMillis);
+		}
+		return etag.append('"').toString();
+	}
+
+	/**
+	 * @return the epoch millis of the last change of the resources seen by this instance (or of the start of the
+	 * current time-to-live period, if later).
+	 */
+	public long getLastModified(Resource... resources) {
+		long lastModified = 0;
+		for (Resource resource : resources) {
+			lastModified = Math.max(lastModified, versions.get(resource).lastModified);
+		}
+		if (ttlMillis > 0) {
+			long now = clock.millis();
+			lastModified = Math.max(lastModified, now - now % ttlMillis);
+		}
+		return lastModified;
+	}
+
+	private static final class Version {
+		volatile long value;
+		volatile long lastModified;
+
+		Version(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		synchronized void bump(long now) {
+			value++;
+			lastModified = Math.max(lastModified, now);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.Course;
+import com.school.management.model.Student;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory prefix indexes (see {@link TextIndex}) of the student names and addresses and of the course names, loaded
+ * before the web server accepts requests when school.search.enabled is set. Like the {@link EnrollmentIndex}, changes
+ * are applied after their transaction commits and only the writes of this instance are seen: the search results are
+ * read back from the database, so a stale index can miss a match but never returns outdated data.
+ */
+@Component
+public class SearchIndex implements SmartInitializingSingleton {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+	private static final int FETCH_SIZE = 1000;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final SchoolProperties properties;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private TextIndex students;
+	private TextIndex courses;
+	private volatile boolean ready;
+
+	public SearchIndex(JdbcTemplate jdbcTemplate, SchoolProperties properties) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.properties = properties;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (properties.getSearch().isEnabled()) {
+			load();
+		}
+	}
+
+	/**
+	 * Rebuilds the indexes from the tables, streaming the rows.
+	 */
+	public void load() {
+		JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+		cursor.setFetchSize(FETCH_SIZE);
+		TextIndex loadedStudents = new TextIndex(2);
+		TextIndex loadedCourses = new TextIndex(1);
+		try {
+			cursor.query("SELECT id, name, address FROM student", (RowCallbackHandler) rs -> loadedStudents.put(rs.getLong(1), rs.getString(2), rs.getString(3)));
+			cursor.query("SELECT id, name FROM course", (RowCallbackHandler) rs -> loadedCourses.put(rs.getLong(1), rs.getString(2)));
+		} catch (IllegalArgumentException e) {
+			log.warn("The search index is disabled: {}", e.getMessage());
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			students = loadedStudents;
+			courses = loadedCourses;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Loaded the search index ({} students, {} courses).", loadedStudents.size(), loadedCourses.size());
+	}
+
+	/**
+	 * @return true when the searches can be served by the index.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return up to limit ids of the students matching the query, the name matches first (see {@link TextIndex#search}).
+	 */
+	public long[] searchStudents(String query, int limit) {
+		return read(() -> students.search(query, limit));
+	}
+
+	/**
+	 * @return up to limit ids of the courses whose name matches the query.
+	 */
+	public long[] searchCourses(String query, int limit) {
+		return read(() -> courses.search(query, limit));
+	}
+
+	public void putStudents(Collection<Student> changed) {
+		//the values are copied now: the entities may still be modified before the commit
+		List<Runnable> puts = changed.stream().map(student -> {
+			long id = student.getId();
+			String name = student.getName();
+			String address = student.getAddress();
+			return (Runnable) () -> students.put(id, name, address);
+		}).collect(Collectors.toList());
+		afterCommit(() -> puts.forEach(Runnable::run));
+	}
+
+	public void putCourses(Collection<Course> changed) {
+		List<Runnable> puts = changed.stream().map(course -> {
+			long id = course.getId();
+			String name = course.getName();
+			return (Runnable) () -> courses.put(id, name);
+		}).collect(Collectors.toList());
+		afterCommit(() -> puts.forEach(Runnable::run));
+	}
+
+	public void removeStudent(long id) {
+		afterCommit(() -> students.remove(id));
+	}
+
+	public void removeCourse(long id) {
+		afterCommit(() -> courses.remove(id));
+	}
+
+	public void removeStudents(Collection<Long> ids) {
+		afterCommit(() -> ids.forEach(students::remove));
+	}
+
+	public void removeCourses(Collection<Long> ids) {
+		afterCommit(() -> ids.forEach(courses::remove));
+	}
+
+	private long[] read(Supplier<long[]> query) {
+		lock.readLock().lock();
+		try {
+			return query.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void afterCommit(Runnable change) {
+		if (ready) {
+			AfterCommit.run(() -> apply(change));
+		}
+	}
+
+	private void apply(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			if (ready) {
+				change.run();
+			}
+		} catch (IllegalArgumentException e) {
+			ready = false;
+			log.warn("The search index is disabled: {}", e.getMessage());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.school.management.service;
+
+import com.school.management.model.dto.ListFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields a listing can be restricted to (sparse fieldset, ex: ?fields=id,name). The names are concatenated into
+ * the JPQL of the listing (see FieldsQuery), so only the names of this set are accepted.
+ */
+final class SparseFields {
+
+	private final String entity;
+	private final List<String> fields;
+
+	/**
+	 * @param entity = the listed entity, for the error messages (ex: "student").
+	 */
+	SparseFields(String entity, List<String> fields) {
+		this.entity = entity;
+		this.fields = fields;
+	}
+
+	/**
+	 * @return the fields requested by the filter, the id first.
+	 */
+	Set<String> of(ListFilter filter) {
+		Set<String> selected = new LinkedHashSet<>();
+		selected.add("id");
+		for (String field : filter.getFields()) {
+			if (field.isBlank()) {
+				continue;
+			}
+			if (!fields.contains(field.trim())) {
+				throw new ResponseStatusException(
+					HttpStatus.BAD_REQUEST, "Unknown field '" + field.trim() + "'. The fields of a " + entity + " are: " + String.join(", ", fields) + ".");
+			}
+			selected.add(field.trim());
+		}
+		return selected;
+	}
+}
@@ -1,70 +1,302 @@
 package com.school.management.service;
 
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.school.management.config.CacheConfig;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Job.Priority;
 import com.school.management.model.Course;
 import com.school.management.model.Student;
 import com.school.management.model.StudentCourse;
 import com.school.management.model.StudentCourseView;
+import com.school.management.model.dto.EnrollmentReportDto;
+import com.school.management.model.dto.JobDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
 import com.school.management.model.dto.StudentCourseDto;
 import com.school.management.model.dto.StudentDto;
 import com.school.management.repository.CourseRepository;
 import com.school.management.repository.StudentCourseRepository;
 import com.school.management.repository.StudentCourseViewRepository;
 import com.school.management.repository.StudentRepository;
+import com.school.management.service.ResourceVersions.Resource;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManager;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Service
 public class StudentService {
 
+	/**
+	 * Fields a listing can be restricted to (sparse fieldset, ex: ?fields=id,name). The id is always included.
+	 */
+	public static final List<String> FIELDS = List.of("id", "name", "address", "createdAt", "updatedAt");
+
+	private static final String DELETE_ALL_JOB = "delete-all-students";
+	private static final String UPDATE_COURSES_JOB = "update-student-courses";
+
 	private final StudentRepository studentRepository;
 	private final CourseRepository courseRepository;
 	private final StudentCourseRepository studentCourseRepository;
 	private final StudentCourseViewRepository studentCourseViewRepository;
+	private final SchoolProperties properties;
+	private final EntityManager entityManager;
+	private final ReadCache readCache;
+	private final EnrollmentIndex enrollmentIndex;
+	private final SearchIndex searchIndex;
+	private final ResourceVersions versions;
+	private final ChangeFeed changeFeed;
+	private final TransactionTemplate transactionTemplate;
+	private final OptimisticWrites writes;
+	private final Jobs jobs;
+	//this service through its proxy, for the calls of the jobs to get the same advice (ex: the metrics) as the REST ones
+	private final ObjectProvider<StudentService> self;
+	private final Pagination pagination;
+	private final SparseFields sparseFields;
+	private final BatchLoader<StudentDto> studentLoader;
 
-
-	public StudentService(StudentRepository studentRepository, CourseRepository courseRepository, StudentCourseRepository studentCourseRepository, StudentCourseViewRepository studentCourseViewRepository) {
+	public StudentService(StudentRepository studentRepository, CourseRepository courseRepository, StudentCourseRepository studentCourseRepository, StudentCourseViewRepository studentCourseViewRepository, SchoolProperties properties, EntityManager entityManager, ReadCache readCache, EnrollmentIndex enrollmentIndex, SearchIndex searchIndex, ResourceVersions versions, ChangeFeed changeFeed, PlatformTransactionManager transactionManager, Jobs jobs, ObjectProvider<StudentService> self) {
 		this.studentRepository = studentRepository;
 		this.courseRepository = courseRepository;
 		this.studentCourseRepository = studentCourseRepository;
 		this.studentCourseViewRepository = studentCourseViewRepository;
+		this.properties = properties;
+		this.pagination = new Pagination(properties, "students");
+		this.sparseFields = new SparseFields("student", FIELDS);
+		this.entityManager = entityManager;
+		this.readCache = readCache;
+		this.enrollmentIndex = enrollmentIndex;
+		this.searchIndex = searchIndex;
+		this.versions = versions;
+		this.changeFeed = changeFeed;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.writes = new OptimisticWrites(transactionTemplate, properties.getOptimisticLocking());
+		this.jobs = jobs;
+		this.self = self;
+		this.studentLoader = new BatchLoader<>(studentRepository::getStudentsByIds, StudentDto::getId,
+			properties.getLookup().getBatchWindow(), properties.getLookup().getMaxBatchSize());
+		jobs.register(DELETE_ALL_JOB, this::deleteStudentsInChunks);
+		jobs.register(UPDATE_COURSES_JOB, new TypeReference<Map<Long, List<Long>>>() {
+		}, this::applyStudentsCourses);
 	}
 
-	public List<StudentDto> getStudents() {
-		return studentRepository.findAll().stream()
-			.map(student -> new StudentDto(student.getId(), student.getName(), student.getAddress(), student.getCreatedAt(), student.getUpdatedAt()))
-			.collect(Collectors.toList());
+	public PageDto<StudentDto> getStudents(ListFilter filter) {
+		Integer limit = pagination.getPageLimit(filter);
+		return PageDto.of(studentRepository
+			.getStudentsPage(filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit)), limit, StudentDto::getId);
 	}
 
-	public List<StudentDto> getStudentsWithoutCourse() {
-		return studentRepository.getStudentsWithoutCourse().stream()
-			.map(student -> new StudentDto(student.getId(), student.getName(), student.getAddress(), student.getCreatedAt(), student.getUpdatedAt()))
-			.collect(Collectors.toList());
+	public PageDto<StudentDto> getStudentsWithoutCourse(ListFilter filter) {
+		Integer limit = pagination.getPageLimit(filter);
+		if (enrollmentIndex.isReadyFor(filter)) {
+			return Pagination.toPage(enrollmentIndex.getStudentsWithoutCourse(filter.getCursor() == null ? 0L : filter.getCursor(), limit == null ? Integer.MAX_VALUE : limit + 1), limit, this::findStudents);
+		}
+		return PageDto.of(studentRepository
+			.getStudentsWithoutCoursePage(filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit)), limit, StudentDto::getId);
+	}
+
+	/**
+	 * Same as getStudents and getStudentsWithoutCourse, selecting only the fields of the filter (and the id) for each row.
+	 */
+	public PageDto<Map<String, Object>> getStudentFields(ListFilter filter, boolean withoutCourses) {
+		Integer limit = pagination.getPageLimit(filter);
+		Set<String> fields = sparseFields.of(filter);
+		if (withoutCourses && enrollmentIndex.isReadyFor(filter)) {
+			return Pagination.toPage(enrollmentIndex.getStudentsWithoutCourse(filter.getCursor() == null ? 0L : filter.getCursor(), limit == null ? Integer.MAX_VALUE : limit + 1), limit,
+				ids -> pagination.findByIds(ids, chunk -> studentRepository.getStudentsByIds(fields, chunk), row -> (Long) row.get("id")));
+		}
+		List<Map<String, Object>> rows = withoutCourses
+			? studentRepository.getStudentsWithoutCoursePage(fields, filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit))
+			: studentRepository.getStudentsPage(fields, filter.getCursor() == null ? 0L : filter.getCursor(), filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo(), Pagination.toPageable(limit));
+		return PageDto.of(rows, limit, row -> (Long) row.get("id"));
+	}
+
+	/**
+	 * Same rows as getStudents and getStudentsWithoutCourse, without a page: each row is handed to the consumer as it is read (with a
+	 * forward-only cursor, or one chunk of ids at a time from the index), so the listing is never held in memory.
+	 */
+	@Transactional(readOnly = true)
+	public void streamStudents(ListFilter filter, boolean withoutCourses, Consumer<StudentDto> consumer) {
+		long cursor = filter.getCursor() == null ? 0L : filter.getCursor();
+		if (withoutCourses && enrollmentIndex.isReadyFor(filter)) {
+			long[] ids = enrollmentIndex.getStudentsWithoutCourse(cursor, Integer.MAX_VALUE);
+			int chunk = properties.getPagination().getMaxLimit();
+			for (int from = 0; from < ids.length; from += chunk) {
+				findStudents(Arrays.copyOfRange(ids, from, Math.min(ids.length, from + chunk))).forEach(consumer);
+			}
+			return;
+		}
+		try (Stream<StudentDto> rows = withoutCourses
+			? studentRepository.streamStudentsWithoutCourse(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo())
+			: studentRepository.streamStudents(cursor, filter.getEscapedNamePrefix(), filter.getCreatedFrom(), filter.getCreatedTo())) {
+			rows.forEach(consumer);
+		}
 	}
 
+	/**
+	 * @param expression = boolean expression over course rosters (see {@link CourseExpression}).
+	 * @param filter     = only the cursor and the limit are considered.
+	 * @return the page of students matching the expression, ordered by id.
+	 */
+	public PageDto<StudentDto> getStudentsByCourseExpression(String expression, ListFilter filter) {
+		Integer limit = pagination.getPageLimit(filter);
+		CourseExpression courseExpression = CourseExpression.parse(expression);
+		RoaringBitmap studentIds = enrollmentIndex.isReady() ? enrollmentIndex.evaluate(courseExpression) : evaluate(courseExpression);
+
+		LongArrayList ids = new LongArrayList();
+		long cursor = filter.getCursor() == null ? 0L : Math.max(0L, filter.getCursor());
+		if (cursor < Integer.MAX_VALUE) {
+			PeekableIntIterator iterator = studentIds.getIntIterator();
+			iterator.advanceIfNeeded((int) cursor + 1);
+			while (iterator.hasNext() && (limit == null || ids.size() <= limit)) {
+				ids.add(iterator.next());
+			}
+		}
+		return Pagination.toPage(ids.toArray(), limit, this::findStudents);
+	}
+
+	/**
+	 * Evaluates the expression with the rosters of its courses read in one query, for when the enrollment index is off.
+	 */
+	private RoaringBitmap evaluate(CourseExpression expression) {
+		LongObjectHashMap<RoaringBitmap> rosters = new LongObjectHashMap<>();
+		courseRepository.getExistingIds(expression.getCourseIds()).forEach(courseId -> rosters.put(courseId, new RoaringBitmap()));
+		studentCourseRepository.getEnrollmentsByCourses(expression.getCourseIds())
+			.forEach(row -> rosters.get((Long) row[0]).add(toBitmapId((Long) row[1])));
+		return expression.evaluate(rosters::get, () -> {
+			RoaringBitmap students = new RoaringBitmap();
+			studentRepository.getIds().forEach(id -> students.add(toBitmapId(id)));
+			return students;
+		});
+	}
+
+	//the rosters are 32-bit bitmaps, with the same bound as the enrollment index (see EnrollmentGraph)
+	private static int toBitmapId(long studentId) {
+		if (studentId < 0 || studentId >= Integer.MAX_VALUE) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "Course expressions are not supported for student ids from " + Integer.MAX_VALUE + " on.");
+		}
+		return (int) studentId;
+	}
+
+	/**
+	 * Concurrent calls that miss the cache are loaded together (see {@link BatchLoader}).
+	 */
+	@Cacheable(cacheNames = CacheConfig.STUDENTS, key = "#id")
 	public StudentDto getStudent(Long id) {
-		return studentRepository.findById(id)
-			.map(student -> new StudentDto(student.getId(), student.getName(), student.getAddress(), student.getCreatedAt(), student.getUpdatedAt()))
-			.orElseThrow(() -> new ResponseStatusException(
-				HttpStatus.NOT_FOUND, "Student not found."));
+		StudentDto student = studentLoader.load(id);
+		if (student == null) {
+			throw new ResponseStatusException(
+				HttpStatus.NOT_FOUND, "Student not found.");
+		}
+		return student;
 	}
 
-	@Transactional
-	public StudentDto updateStudent(StudentDto studentDto) {
+	/**
+	 * @param ids = the student ids, at most the maximum page size.
+	 * @return the students of the ids, ordered by id. Unknown and repeated ids are skipped.
+	 */
+	public List<StudentDto> getStudentsByIds(Collection<Long> ids) {
+		return findStudents(toLookupIds(ids));
+	}
+
+	/**
+	 * Same as getStudentsByIds, selecting only the fields of the filter (and the id) for each row.
+	 */
+	public List<Map<String, Object>> getStudentFieldsByIds(Collection<Long> ids, ListFilter filter) {
+		Set<String> fields = sparseFields.of(filter);
+		return pagination.findByIds(toLookupIds(ids), chunk -> studentRepository.getStudentsByIds(fields, chunk), row -> (Long) row.get("id"));
+	}
+
+	/**
+	 * Autocomplete: every word of the query must start a word of the name or of the address, ignoring case and accents
+	 * (ex: "jo sil" finds "João da Silva"). Without the {@link SearchIndex}, the whole query must start a word.
+	 *
+	 * @return up to limit students, the name matches first, then ordered by id.
+	 */
+	public List<StudentDto> searchStudents(String query, Integer limit) {
+		int max = getSearchLimit(query, limit);
+		if (!searchIndex.isReady()) {
+			return studentRepository.searchStudents(ListFilter.escapeLike(query.strip()), PageRequest.of(0, max));
+		}
+		long[] ids = searchIndex.searchStudents(query, max);
+		Map<Long, StudentDto> students = findStudents(ids).stream().collect(Collectors.toMap(StudentDto::getId, Function.identity()));
+		return LongStream.of(ids).mapToObj(students::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	private int getSearchLimit(String query, Integer limit) {
+		if (query.isBlank()) {
+			throw new ResponseStatusException(
+				HttpStatus.BAD_REQUEST, "The search query is blank.");
+		}
+		int max = limit == null ? properties.getSearch().getDefaultLimit() : limit;
+		if (max < 1) {
+			throw new ResponseStatusException(
+				HttpStatus.BAD_REQUEST, "The search limit must be greater than zero.");
+		}
+		if (max > properties.getPagination().getMaxLimit()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A search can not return more than " + properties.getPagination().getMaxLimit() + " students.");
+		}
+		return max;
+	}
+
+	private long[] toLookupIds(Collection<Long> ids) {
+		long[] distinct = ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).distinct().toArray();
+		if (distinct.length > properties.getPagination().getMaxLimit()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A lookup can not contain more than " + properties.getPagination().getMaxLimit() + " students.");
+		}
+		return distinct;
+	}
+
+	/**
+	 * @param requiredVersion = the version the student must still have (If-Match), null for any version.
+	 */
+	public StudentDto updateStudent(StudentDto studentDto, Long requiredVersion) {
+		return writes.run(() -> tryUpdateStudent(studentDto, requiredVersion), () -> new ResponseStatusException(
+			HttpStatus.CONFLICT, "The student (id " + studentDto.getId() + ") was changed concurrently. Please retry."));
+	}
+
+	private StudentDto tryUpdateStudent(StudentDto studentDto, Long requiredVersion) {
 		Student student = studentRepository.findById(studentDto.getId()).orElseThrow(() -> new ResponseStatusException(
 			HttpStatus.NOT_FOUND, "Student not found."));
+		OptimisticWrites.checkVersion(requiredVersion, student.getVersion(), "student");
 
 		Boolean updated = false;
 		if (studentDto.getName() != null && !studentDto.getName().isBlank() && !studentDto.getName().equals(student.getName())) {
 			student.setName(studentDto.getName());
+			studentCourseViewRepository.renameStudent(student.getId(), student.getName());
 			updated = true;
 		}
 		if (studentDto.getAddress() != null && !studentDto.getAddress().isBlank() && !studentDto.getAddress().equals(student.getAddress())) {
@@ -74,54 +306,185 @@ public class StudentService {
 
 		if (updated) {
 			student.setUpdatedAt(Timestamp.from(Instant.now()));
-			student = studentRepository.save(student);
+			student = studentRepository.saveAndFlush(student);
+
+			searchIndex.putStudents(List.of(student));
+			changeFeed.students(Operation.UPDATED, List.of(student.getId()));
+			versions.changed(Resource.STUDENTS);
+			readCache.evictStudent(student.getId());
+			readCache.evictStudentsByCourse(studentCourseRepository.getCourseIdsByStudent(student));
 		}
 
-		return new StudentDto(student.getId(), student.getName(), student.getAddress(), student.getCreatedAt(), student.getUpdatedAt());
+		return new StudentDto(student.getId(), student.getName(), student.getAddress(), student.getCreatedAt(), student.getUpdatedAt(), student.getVersion());
 	}
 
-	@Transactional
-	public List<StudentCourseDto> updateStudentCourses(Long id, List<Long> courseIds) {
-		//Trying to enroll in more than five courses.
-		if (courseIds.size() > 5) {
+	/**
+	 * Concurrent updates of the same student are retried (see {@link OptimisticWrites}), so they do not need to be
+	 * serialized by the clients.
+	 *
+	 * @param requiredVersion = the version the student must still have (If-Match), null for any version.
+	 */
+	public List<StudentCourseDto> updateStudentCourses(Long id, List<Long> courseIds, Long requiredVersion) {
+		//Trying to enroll in more than the maximum of courses.
+		if (courseIds.size() > Student.MAX_COURSES) {
 			throw new ResponseStatusException(
-				HttpStatus.FORBIDDEN, "A student can not enroll in more than five courses.");
+				HttpStatus.FORBIDDEN, "A student can not enroll in more than " + Student.MAX_COURSES + " courses.");
 		}
+		return writes.run(() -> tryUpdateStudentCourses(id, courseIds, requiredVersion), () -> concurrentEnrollmentChange(id));
+	}
 
+	private List<StudentCourseDto> tryUpdateStudentCourses(Long id, List<Long> courseIds, Long requiredVersion) {
 		//Invalid student id.
 		Student student = studentRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
 			HttpStatus.NOT_FOUND, "Student not found."));
+		OptimisticWrites.checkVersion(requiredVersion, student.getVersion(), "student");
+
+		//Resolving all the requested courses with one query.
+		List<Long> distinctCourseIds = courseIds.stream().distinct().collect(Collectors.toList());
+		Map<Long, Course> courses = new HashMap<>();
+		if (!distinctCourseIds.isEmpty()) {
+			courseRepository.findAllById(distinctCourseIds).forEach(course -> courses.put(course.getId(), course));
+		}
+		Set<Long> currentCourseIds = new HashSet<>(studentCourseRepository.getCourseIdsByStudent(student));
 
 		//For each course verifies:
 		//1) Does the Course exist?
-		//2) Considering the student is not enrolled in the course, does the course already has 50 students enrolled?
-		List<StudentCourse> studentCourses = courseIds.stream()
-			.filter(courseId -> {
-				if (studentCourseRepository
-					.getTotalOtherStudentsByCourse(courseRepository.findById(courseId)
-						.orElseThrow(() -> new ResponseStatusException(
-							HttpStatus.NOT_FOUND, "Course (id " + courseId + ") not found.")), student) >= 50)
+		//2) Considering the student is not enrolled in the course, has the course already reached its capacity?
+		List<StudentCourse> studentCourses = distinctCourseIds.stream()
+			.map(courseId -> {
+				Course course = courses.get(courseId);
+				if (course == null)
+					throw new ResponseStatusException(
+						HttpStatus.NOT_FOUND, "Course (id " + courseId + ") not found.");
+				if (!currentCourseIds.contains(courseId) && course.getEnrolledCount() >= course.getCapacity())
 					throw new ResponseStatusException(
-						HttpStatus.FORBIDDEN, "The course (id " + courseId + ") has already 50 students enrolled.");
-				return true;
+						HttpStatus.FORBIDDEN, "The course (id " + courseId + ") has already " + course.getCapacity() + " students enrolled.");
+				return new StudentCourse(student, course);
 			})
-			.map(courseId -> new StudentCourse(student, courseRepository.findById(courseId).get()))
 			.collect(Collectors.toList());
 
-		//updating the student's timestamp
-		student.setUpdatedAt(Timestamp.from(Instant.now()));
-		studentRepository.save(student);
-		//deleting current student's courses
-		studentCourseRepository.deleteCoursesByStudent(student);
+		//Only the difference between the current and the requested courses is written.
+		List<Long> added = distinctCourseIds.stream()
+			.filter(courseId -> !currentCourseIds.contains(courseId))
+			.collect(Collectors.toList());
+		List<Long> removed = currentCourseIds.stream()
+			.filter(courseId -> !courses.containsKey(courseId))
+			.collect(Collectors.toList());
 
-		//saving new courses
-		studentCourses = studentCourseRepository.saveAll(studentCourses);
+		if (!added.isEmpty() || !removed.isEmpty()) {
+			//updating the student's timestamp, failing if the student was updated since it was read
+			student.setUpdatedAt(Timestamp.from(Instant.now()));
+			studentRepository.saveAndFlush(student);
+			//deleting the courses that are no longer requested
+			if (!removed.isEmpty()) {
+				if (studentCourseRepository.deleteStudentCourses(student, removed) != removed.size()) {
+					throw new ConcurrencyFailureException("The courses of the student (id " + id + ") were changed concurrently.");
+				}
+				studentCourseViewRepository.deleteStudentCourses(id, removed);
+			}
+			//updating the seat counters
+			updateSeatCounters(student, added, removed);
+			//the rosters of the added and removed courses changed too
+			List<Long> changedCourseIds = Stream.concat(added.stream(), removed.stream()).collect(Collectors.toList());
+			courseRepository.incrementVersion(changedCourseIds);
+			//saving the new courses
+			try {
+				List<StudentCourse> addedStudentCourses = studentCourses.stream()
+					.filter(studentCourse -> added.contains(studentCourse.getCourse().getId()))
+					.collect(Collectors.toList());
+				studentCourseRepository.saveAll(addedStudentCourses);
+				studentCourseViewRepository.saveAll(addedStudentCourses.stream()
+					.map(studentCourse -> new StudentCourseView(studentCourse.getStudent(), studentCourse.getCourse()))
+					.collect(Collectors.toList()));
+				studentCourseRepository.flush();
+			} catch (DataIntegrityViolationException e) {
+				throw new ConcurrencyFailureException("The courses of the student (id " + id + ") were changed concurrently.", e);
+			}
+
+			enrollmentIndex.updateStudentCourses(id, added, removed);
+			changeFeed.students(Operation.UPDATED, List.of(id));
+			changeFeed.studentEnrollments(Operation.CREATED, id, added);
+			changeFeed.studentEnrollments(Operation.DELETED, id, removed);
+			versions.changed(Resource.STUDENTS, Resource.COURSES, Resource.ENROLLMENTS);
+			//the student's timestamp is part of every roster the student belongs (or belonged) to
+			readCache.evictStudent(id);
+			changedCourseIds.forEach(readCache::evictCourse);
+			readCache.evictCoursesByStudent(List.of(id));
+			readCache.evictStudentsByCourse(currentCourseIds);
+			readCache.evictStudentsByCourse(added);
+		}
 
 		return studentCourses.stream()
 			.map(studentCourse -> new StudentCourseDto(studentCourse.getStudent().getId(), studentCourse.getStudent().getName(), studentCourse.getCourse().getId(), studentCourse.getCourse().getName()))
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * Replaces the courses of many students in the background, each student in its own transaction, as
+	 * PUT /students/{id}/courses does. A student whose courses are rejected does not stop the others.
+	 *
+	 * @param studentCourses = the ids of the courses of each student id.
+	 * @return the job, whose result is the EnrollmentReportDto.
+	 */
+	public JobDto updateStudentsCourses(Map<Long, List<Long>> studentCourses, Priority priority) {
+		if (studentCourses.isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No student informed.");
+		}
+		if (studentCourses.size() > properties.getBulkEnrollment().getMaxStudents()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A request can not contain more than " + properties.getBulkEnrollment().getMaxStudents() + " students.");
+		}
+		if (studentCourses.containsKey(null) || studentCourses.values().stream().anyMatch(courseIds -> courseIds == null || courseIds.contains(null))) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The student and course ids can not be null.");
+		}
+		return jobs.submit(UPDATE_COURSES_JOB, studentCourses, priority);
+	}
+
+	private EnrollmentReportDto applyStudentsCourses(Map<Long, List<Long>> studentCourses, Jobs.Progress progress) {
+		EnrollmentReportDto report = new EnrollmentReportDto();
+		StudentService service = self.getObject();
+		progress.setTotal(studentCourses.size());
+		studentCourses.forEach((id, courseIds) -> {
+			try {
+				service.updateStudentCourses(id, courseIds, null);
+				report.setUpdated(report.getUpdated() + 1);
+			} catch (ResponseStatusException e) {
+				report.setRejected(report.getRejected() + 1);
+				if (report.getRejects().size() < properties.getBulkEnrollment().getMaxReportedRejects()) {
+					report.getRejects().add(new EnrollmentReportDto.Reject(id, e.getReason()));
+				}
+			}
+			progress.add(1);
+		});
+		return report;
+	}
+
+	/**
+	 * Applies the enrollment delta to the student's and courses' counters with conditional updates,
+	 * failing (and rolling back) if a concurrent enrollment filled one of the limits in the meantime.
+	 */
+	private void updateSeatCounters(Student student, List<Long> added, List<Long> removed) {
+		if (!removed.isEmpty()) {
+			courseRepository.decrementEnrolledCount(removed);
+		}
+		if (!added.isEmpty() && courseRepository.incrementEnrolledCount(added) != added.size()) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "One of the requested courses has no seats left.");
+		}
+		int delta = added.size() - removed.size();
+		if (delta != 0 && studentRepository.addToCourseCount(student.getId(), delta, Student.MAX_COURSES) == 0) {
+			throw new ResponseStatusException(
+				HttpStatus.FORBIDDEN, "A student can not enroll in more than " + Student.MAX_COURSES + " courses.");
+		}
+	}
+
+	//the attempts of the enrollment update lost every race with the concurrent ones
+	private static ResponseStatusException concurrentEnrollmentChange(Long id) {
+		return new ResponseStatusException(
+			HttpStatus.CONFLICT, "The courses of the student (id " + id + ") were changed concurrently. Please retry.");
+	}
+
+	@Transactional
 	public List<StudentDto> createStudents(List<StudentDto> studentsDto) {
 		if (studentsDto.size() > 50) {
 			throw new ResponseStatusException(
@@ -130,33 +493,92 @@ public class StudentService {
 
 		Timestamp ts = Timestamp.from(Instant.now());
 		List<Student> l = studentRepository.saveAll(studentsDto.stream()
-			.filter(s -> s.getName() != null && !s.getName().isBlank() && s.getAddress() != null && !s.getAddress().isBlank())
+			.filter(s -> validationError(s) == null)
 			.map(studentDto -> new Student(studentDto.getName(),
 				studentDto.getAddress(),
 				ts,
 				ts,
 				new HashSet<StudentCourse>()))
 			.collect(Collectors.toList()));
+		enrollmentIndex.addStudents(l.stream().map(Student::getId).collect(Collectors.toList()));
+		searchIndex.putStudents(l);
+		changeFeed.students(Operation.CREATED, l.stream().map(Student::getId).collect(Collectors.toList()));
+		versions.changed(Resource.STUDENTS);
 
 		return l.stream()
 			.map(student -> new StudentDto(student.getId(),
 				student.getName(),
 				student.getAddress(),
 				student.getCreatedAt(),
-				student.getUpdatedAt()))
+				student.getUpdatedAt(),
+				student.getVersion()))
 			.collect(Collectors.toList());
 	}
 
-	@Transactional
-	public void deleteAllStudents(Boolean confirmDeletion) {
-		if (confirmDeletion) {
-			studentCourseRepository.deleteAll();
-			studentRepository.deleteAll();
-		} else {
+	/**
+	 * @return why the student can not be registered, or null when it is valid.
+	 */
+	static String validationError(StudentDto studentDto) {
+		if (studentDto.getName() == null || studentDto.getName().isBlank()) {
+			return "The name is blank.";
+		}
+		if (studentDto.getAddress() == null || studentDto.getAddress().isBlank()) {
+			return "The address is blank.";
+		}
+		return null;
+	}
+
+	/**
+	 * Deletes the students in the background, school.bulk-delete.chunk-size students (and their enrollments) per
+	 * transaction, with set-based statements. An interrupted job leaves consistent data and is resumed on restart.
+	 *
+	 * @return the job, which is the unfinished one when a deletion of all students was already submitted.
+	 */
+	public JobDto deleteAllStudents(Boolean confirmDeletion, Priority priority) {
+		if (!confirmDeletion) {
 			throw new ResponseStatusException(
 				HttpStatus.NOT_FOUND,
 				"To delete ALL students and students-courses relationships, inform confirm-deletion=true as a query param.");
 		}
+		return jobs.submit(DELETE_ALL_JOB, null, priority);
+	}
+
+	private void deleteStudentsInChunks(Jobs.Progress progress) {
+		progress.setTotal(studentRepository.count());
+		int deleted;
+		do {
+			deleted = transactionTemplate.execute(status -> deleteStudentsChunk());
+			progress.add(deleted);
+		} while (deleted > 0);
+	}
+
+	/**
+	 * @return the number of deleted students.
+	 */
+	private int deleteStudentsChunk() {
+		List<Long> ids = studentRepository.getIds(PageRequest.of(0, properties.getBulkDelete().getChunkSize()));
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		List<Object[]> enrollments = studentCourseRepository.getEnrollmentsByStudents(ids);
+		courseRepository.decrementEnrolledCountByStudents(ids);
+		studentCourseViewRepository.deleteByStudents(ids);
+		studentCourseRepository.deleteByStudents(ids);
+		studentRepository.deleteByIds(ids);
+
+		Set<Long> courseIds = new HashSet<>();
+		for (Object[] enrollment : enrollments) {
+			changeFeed.studentEnrollments(Operation.DELETED, (Long) enrollment[0], List.of((Long) enrollment[1]));
+			courseIds.add((Long) enrollment[1]);
+		}
+		changeFeed.students(Operation.DELETED, ids);
+		enrollmentIndex.removeStudents(ids);
+		searchIndex.removeStudents(ids);
+		versions.changed(Resource.STUDENTS, Resource.ENROLLMENTS);
+		ids.forEach(readCache::evictStudent);
+		readCache.evictCoursesByStudent(ids);
+		readCache.evictStudentsByCourse(courseIds);
+		return ids.size();
 	}
 
 	@Transactional
@@ -164,8 +586,20 @@ public class StudentService {
 		if (confirmDeletion) {
 			Student student = studentRepository.findById(id).orElseThrow(() -> new ResponseStatusException(
 				HttpStatus.NOT_FOUND, "Student not found."));
+			List<Long> courseIds = studentCourseRepository.getCourseIdsByStudent(student);
+			courseRepository.decrementEnrolledCountByStudent(student);
 			studentCourseRepository.deleteCoursesByStudent(student);
+			studentCourseViewRepository.deleteCoursesByStudent(id);
 			studentRepository.deleteById(id);
+
+			enrollmentIndex.removeStudent(id);
+			searchIndex.removeStudent(id);
+			changeFeed.studentEnrollments(Operation.DELETED, id, courseIds);
+			changeFeed.students(Operation.DELETED, List.of(id));
+			versions.changed(Resource.STUDENTS, Resource.ENROLLMENTS);
+			readCache.evictStudent(id);
+			readCache.evictCoursesByStudent(List.of(id));
+			readCache.evictStudentsByCourse(courseIds);
 		} else {
 			throw new ResponseStatusException(
 				HttpStatus.NOT_FOUND,
@@ -176,19 +610,38 @@ public class StudentService {
 	}
 
 	//--------------------------
+	@Cacheable(cacheNames = CacheConfig.STUDENTS_BY_COURSE, key = "#id")
 	public List<StudentDto> getStudentsByCourse(Long id) {
+		if (enrollmentIndex.isReady()) {
+			long[] ids = enrollmentIndex.getStudentIds(id);
+			if (ids == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found.");
+			}
+			return findStudents(ids);
+		}
 		Course course = courseRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found."));
-		return studentRepository
-			.getStudentsByCourse(course).stream()
-			.map(student -> new StudentDto(student.getId(),
-				student.getName(),
-				student.getAddress(),
-				student.getCreatedAt(),
-				student.getUpdatedAt()))
-			.collect(Collectors.toList());
+		return studentRepository.getStudentsByCourse(course);
+	}
+
+	private List<StudentDto> findStudents(long[] ids) {
+		return pagination.findByIds(ids, studentRepository::getStudentsByIds, StudentDto::getId);
 	}
 
 	public List<StudentCourseView> getStudentCourseRelationship() {
 		return studentCourseViewRepository.getStudentCourseRelationship();
 	}
+
+	/**
+	 * Reads the relationships with a forward-only cursor, handing each row to the consumer as it arrives.
+	 * Rows are detached once consumed, so memory stays constant regardless of the number of rows.
+	 */
+	@Transactional(readOnly = true)
+	public void streamStudentCourseRelationship(Consumer<StudentCourseView> consumer) {
+		try (Stream<StudentCourseView> rows = studentCourseViewRepository.streamStudentCourseRelationship()) {
+			rows.forEach(row -> {
+				consumer.accept(row);
+				entityManager.detach(row);
+			});
+		}
+	}
 }
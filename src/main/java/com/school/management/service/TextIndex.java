@@ -0,0 +1,174 @@
+package com.school.management.service;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix (edge n-gram) index of the text fields of an entity: each word of a field is lower-cased, stripped of its
+ * accents, and every prefix of it (up to {@value #MAX_PREFIX} characters) is mapped to the bitmap of the ids having it.
+ * A search is then one bitmap lookup per query word and an intersection, whatever the number of indexed words.
+ * Not thread-safe.
+ * <p>
+ * Ids must fit in an int (the bitmap index), otherwise {@link #put} throws IllegalArgumentException.
+ */
+class TextIndex {
+
+	/**
+	 * Longest indexed prefix. Longer query words are looked up by their first characters and then checked against the
+	 * indexed text.
+	 */
+	static final int MAX_PREFIX = 12;
+
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final RoaringBitmap NONE = new RoaringBitmap();
+
+	//per field: prefix --> ids
+	private final List<Map<String, RoaringBitmap>> prefixes = new ArrayList<>();
+	//id --> indexed text of each field, to remove its prefixes
+	private final LongObjectHashMap<String[]> texts = new LongObjectHashMap<>();
+
+	/**
+	 * @param fields = number of text fields of an entity. The matches of the first one rank first.
+	 */
+	TextIndex(int fields) {
+		for (int i = 0; i < fields; i++) {
+			prefixes.add(new HashMap<>());
+		}
+	}
+
+	/**
+	 * Indexes (or re-indexes) the fields of the id. Null fields are not indexed.
+	 */
+	void put(long id, String... fields) {
+		if (id < 0 || id >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The id " + id + " does not fit in the text index.");
+		}
+		remove(id);
+		texts.put(id, fields.clone());
+		for (int field = 0; field < prefixes.size(); field++) {
+			Map<String, RoaringBitmap> index = prefixes.get(field);
+			for (String prefix : prefixesOf(fields[field])) {
+				index.computeIfAbsent(prefix, p -> new RoaringBitmap()).add((int) id);
+			}
+		}
+	}
+
+	void remove(long id) {
+		String[] fields = texts.remove(id);
+		if (fields == null) {
+			return;
+		}
+		for (int field = 0; field < prefixes.size(); field++) {
+			Map<String, RoaringBitmap> index = prefixes.get(field);
+			for (String prefix : prefixesOf(fields[field])) {
+				RoaringBitmap ids = index.get(prefix);
+				ids.remove((int) id);
+				if (ids.isEmpty()) {
+					index.remove(prefix);
+				}
+			}
+		}
+	}
+
+	void clear() {
+		texts.clear();
+		prefixes.forEach(Map::clear);
+	}
+
+	int size() {
+		return texts.size();
+	}
+
+	/**
+	 * Every word of the query must start a word of one of the fields, ex: "jo sil" matches "João da Silva".
+	 *
+	 * @return up to limit ids: first the ones matched by the first field alone, then the others, each group in ascending
+	 * order.
+	 */
+	long[] search(String query, int limit) {
+		List<String> words = words(query);
+		if (words.isEmpty() || limit < 1) {
+			return new long[0];
+		}
+
+		RoaringBitmap first = null;
+		RoaringBitmap any = null;
+		for (String word : words) {
+			String prefix = word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word;
+			RoaringBitmap[] perField = new RoaringBitmap[prefixes.size()];
+			for (int field = 0; field < perField.length; field++) {
+				perField[field] = prefixes.get(field).getOrDefault(prefix, NONE);
+			}
+			first = first == null ? perField[0].clone() : RoaringBitmap.and(first, perField[0]);
+			RoaringBitmap union = perField.length == 1 ? perField[0] : FastAggregation.or(perField);
+			any = any == null ? union.clone() : RoaringBitmap.and(any, union);
+		}
+		any.andNot(first);
+
+		boolean verify = words.stream().anyMatch(word -> word.length() > MAX_PREFIX);
+		long[] ids = new long[limit];
+		int n = collect(first, words, verify, true, ids, 0);
+		n = collect(any, words, verify, false, ids, n);
+		return Arrays.copyOf(ids, n);
+	}
+
+	private int collect(RoaringBitmap candidates, List<String> words, boolean verify, boolean firstField, long[] ids, int n) {
+		IntIterator it = candidates.getIntIterator();
+		while (n < ids.length && it.hasNext()) {
+			int id = it.next();
+			if (!verify || matches(texts.get(id), words, firstField)) {
+				ids[n++] = id;
+			}
+		}
+		return n;
+	}
+
+	private static boolean matches(String[] fields, List<String> words, boolean firstFieldOnly) {
+		List<String> indexed = new ArrayList<>();
+		for (int field = 0; field < (firstFieldOnly ? 1 : fields.length); field++) {
+			indexed.addAll(words(fields[field]));
+		}
+		return words.stream().allMatch(word -> indexed.stream().anyMatch(w -> w.startsWith(word)));
+	}
+
+	private static Set<String> prefixesOf(String text) {
+		Set<String> result = new LinkedHashSet<>();
+		for (String word : words(text)) {
+			for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX); length++) {
+				result.add(word.substring(0, length));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the words of the text, lower-cased and without accents.
+	 */
+	static List<String> words(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null) {
+			return words;
+		}
+		String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+		for (String word : SEPARATORS.split(normalized)) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+}
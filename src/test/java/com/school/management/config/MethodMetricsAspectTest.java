@@ -0,0 +1,79 @@
+package com.school.management.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+class MethodMetricsAspectTest {
+
+	MeterRegistry registry;
+
+	SampleService service;
+
+	@BeforeEach
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		AspectJProxyFactory factory = new AspectJProxyFactory(new SampleService());
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new MethodMetricsAspect(registry));
+		service = factory.getProxy();
+	}
+
+	@Test
+	public void callsAreTimedByOutcome() {
+		service.find(1L);
+		Assertions.assertThrows(ResponseStatusException.class, () -> service.find(2L));
+
+		Assertions.assertEquals(1, registry.get(MethodMetricsAspect.DURATION).tags("class", "SampleService", "method", "find", "outcome", "SUCCESS").timer().count());
+		Assertions.assertEquals(1, registry.get(MethodMetricsAspect.DURATION).tags("layer", "service", "outcome", "ERROR").timer().count());
+		Assertions.assertEquals(0, registry.get(MethodMetricsAspect.IN_FLIGHT).gauge().value());
+	}
+
+	@Test
+	public void errorsAreCountedByStatus() {
+		Assertions.assertThrows(ResponseStatusException.class, () -> service.find(2L));
+		Assertions.assertThrows(ResponseStatusException.class, () -> service.find(2L));
+		Assertions.assertThrows(IllegalStateException.class, () -> service.find(3L));
+
+		Assertions.assertEquals(2, registry.get(MethodMetricsAspect.ERRORS).tags("status", "404").counter().count());
+		Assertions.assertEquals(1, registry.get(MethodMetricsAspect.ERRORS).tags("status", "500", "exception", "IllegalStateException").counter().count());
+	}
+
+	@Test
+	public void publishersAreTimedWhenTheyTerminate() {
+		Mono<String> found = service.findLater(1L);
+		Mono<String> notFound = service.findLater(2L);
+		Assertions.assertEquals(0, registry.get(MethodMetricsAspect.DURATION).tags("method", "findLater").timers().stream().mapToLong(t -> t.count()).sum());
+
+		Assertions.assertEquals("found", found.block());
+		Assertions.assertThrows(ResponseStatusException.class, notFound::block);
+
+		Assertions.assertEquals(1, registry.get(MethodMetricsAspect.DURATION).tags("method", "findLater", "outcome", "SUCCESS").timer().count());
+		Assertions.assertEquals(1, registry.get(MethodMetricsAspect.ERRORS).tags("method", "findLater", "status", "404").counter().count());
+		Assertions.assertEquals(0, registry.get(MethodMetricsAspect.IN_FLIGHT).tags("method", "findLater").gauge().value());
+	}
+
+	@Service
+	static class SampleService {
+		public String find(Long id) {
+			if (id == 2L) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found.");
+			}
+			if (id == 3L) {
+				throw new IllegalStateException();
+			}
+			return "found";
+		}
+
+		public Mono<String> findLater(Long id) {
+			return Mono.fromCallable(() -> find(id));
+		}
+	}
+}
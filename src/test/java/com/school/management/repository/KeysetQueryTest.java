@@ -0,0 +1,70 @@
+package com.school.management.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.sql.Timestamp;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KeysetQueryTest {
+	@Mock
+	DatabaseClient databaseClient;
+
+	@Mock(answer = Answers.RETURNS_SELF)
+	DatabaseClient.GenericExecuteSpec spec;
+
+	@Test
+	void onlyTheCursorWithoutFilters() {
+		when(databaseClient.execute(anyString())).thenReturn(spec);
+
+		new KeysetQuery("SELECT s.id FROM student s", "s", 0L).execute(databaseClient, null);
+
+		verify(databaseClient).execute("SELECT s.id FROM student s WHERE s.id > :cursor ORDER BY s.id");
+		verify(spec).bind("cursor", 0L);
+		verify(spec, never()).bindNull(anyString(), any());
+	}
+
+	@Test
+	void informedFiltersAreBound() {
+		when(databaseClient.execute(anyString())).thenReturn(spec);
+		Timestamp from = Timestamp.valueOf("2020-01-01 00:00:00");
+		Timestamp to = Timestamp.valueOf("2021-01-01 00:00:00");
+
+		new KeysetQuery("SELECT c.id FROM course c", "c", 10L)
+			.where("c.capacity > 0")
+			.nameStartsWith("Ma")
+			.createdBetween(from, to)
+			.execute(databaseClient, 21);
+
+		verify(databaseClient).execute("SELECT c.id FROM course c WHERE c.id > :cursor AND c.capacity > 0"
+			+ " AND c.name LIKE CONCAT(:namePrefix, '%') ESCAPE '!' AND c.created_at >= :createdFrom AND c.created_at < :createdTo"
+			+ " ORDER BY c.id LIMIT 21");
+		verify(spec).bind("cursor", 10L);
+		verify(spec).bind("namePrefix", "Ma");
+		verify(spec).bind("createdFrom", from.toLocalDateTime());
+		verify(spec).bind("createdTo", to.toLocalDateTime());
+	}
+
+	@Test
+	void missingBoundIsNotBound() {
+		when(databaseClient.execute(anyString())).thenReturn(spec);
+
+		new KeysetQuery("SELECT s.id FROM student s", "s", 0L)
+			.createdBetween(null, Timestamp.valueOf("2021-01-01 00:00:00"))
+			.execute(databaseClient, 5);
+
+		verify(databaseClient).execute("SELECT s.id FROM student s WHERE s.id > :cursor AND s.created_at < :createdTo ORDER BY s.id LIMIT 5");
+		verify(spec, never()).bind(eq("createdFrom"), any());
+	}
+}
@@ -0,0 +1,83 @@
+package com.school.management.rest;
+
+import com.school.management.model.dto.FieldsRow;
+import com.school.management.model.dto.StudentDto;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class AvroHttpMessageConverterTest {
+
+	static final Type STUDENTS = new ParameterizedTypeReference<List<StudentDto>>() {
+	}.getType();
+
+	final AvroHttpMessageConverter converter = new AvroHttpMessageConverter();
+
+	@Test
+	public void listsAreWrittenAsOneRowPerElement() throws IOException {
+		Timestamp ts = new Timestamp(1_600_000_000_123L);
+		List<GenericRecord> rows = write(List.of(new StudentDto(1L, "A", "a", ts, ts), new StudentDto(2L, "B", "b", ts, ts)), STUDENTS);
+
+		Assertions.assertEquals(2, rows.size());
+		Assertions.assertEquals("StudentDto", rows.get(0).getSchema().getName());
+		Assertions.assertEquals(2L, rows.get(1).get("id"));
+		Assertions.assertEquals("B", rows.get(1).get("name").toString());
+		Assertions.assertEquals(ts.getTime(), rows.get(1).get("createdAt"));
+	}
+
+	@Test
+	public void sparseFieldsetRowsGetTheirOwnSchema() throws IOException {
+		Map<String, Class<?>> types = new LinkedHashMap<>();
+		types.put("id", Long.class);
+		types.put("name", String.class);
+		types.put("createdAt", Timestamp.class);
+		FieldsRow first = new FieldsRow(types);
+		first.put("id", 1L);
+		first.put("name", "A");
+		first.put("createdAt", null);
+		FieldsRow second = new FieldsRow(types);
+		second.put("id", 2L);
+		second.put("name", "B");
+		second.put("createdAt", new Timestamp(1_600_000_000_123L));
+		List<GenericRecord> rows = write(List.of(first, second), List.class);
+
+		Assertions.assertEquals(3, rows.get(0).getSchema().getFields().size());
+		Assertions.assertEquals(1L, rows.get(0).get("id"));
+		Assertions.assertEquals("A", rows.get(0).get("name").toString());
+		Assertions.assertNull(rows.get(0).get("createdAt"));
+		//typed by the attribute, not by the null of the first row
+		Assertions.assertEquals(1_600_000_000_123L, rows.get(1).get("createdAt"));
+	}
+
+	@Test
+	public void singleObjectsAndEmptyLists() throws IOException {
+		Assertions.assertEquals(1, write(new StudentDto(1L, "A", "a", null, null), StudentDto.class).size());
+		Assertions.assertEquals(0, write(List.of(), STUDENTS).size());
+		Assertions.assertFalse(converter.canWrite(Map.class, AvroHttpMessageConverter.APPLICATION_AVRO));
+		Assertions.assertFalse(converter.canRead(STUDENTS, null, AvroHttpMessageConverter.APPLICATION_AVRO));
+	}
+
+	private List<GenericRecord> write(Object body, Type type) throws IOException {
+		MockHttpOutputMessage message = new MockHttpOutputMessage();
+		converter.write(body, type, AvroHttpMessageConverter.APPLICATION_AVRO, message);
+
+		List<GenericRecord> rows = new ArrayList<>();
+		try (DataFileStream<GenericRecord> in = new DataFileStream<>(new ByteArrayInputStream(message.getBodyAsBytes()), new GenericDatumReader<>())) {
+			in.forEach(rows::add);
+		}
+		return rows;
+	}
+}
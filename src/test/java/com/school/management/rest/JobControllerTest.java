@@ -0,0 +1,111 @@
+package com.school.management.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.model.Job.Priority;
+import com.school.management.model.Job.Status;
+import com.school.management.model.dto.JobDto;
+import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.Jobs;
+import com.school.management.service.ResourceVersions;
+import com.school.management.service.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.accept.ContentNegotiationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The background jobs are answered with 202 and polled at their Location.
+ */
+@ExtendWith(MockitoExtension.class)
+class JobControllerTest {
+	@Mock
+	StudentService studentService;
+
+	@Mock
+	CourseService courseService;
+
+	@Mock
+	ImportService importService;
+
+	@Mock
+	ResourceVersions versions;
+
+	@Mock
+	Jobs jobs;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		ResponseFormats formats = new ResponseFormats(new ContentNegotiationManager());
+		mockMvc = MockMvcBuilders.standaloneSetup(
+			new StudentController(studentService, courseService, importService, versions, new ObjectMapper(), formats),
+			new CourseController(studentService, courseService, importService, versions, new ObjectMapper(), formats),
+			new JobController(jobs)
+		).build();
+	}
+
+	@Test
+	void deletingAllStudentsIsAccepted() throws Exception {
+		when(studentService.deleteAllStudents(true, Priority.HIGH)).thenReturn(job(7L, Status.QUEUED));
+
+		mockMvc.perform(delete("/students/").param("confirm-deletion", "true").param("priority", "HIGH"))
+			.andExpect(status().isAccepted())
+			.andExpect(header().string(HttpHeaders.LOCATION, "/jobs/7"))
+			.andExpect(jsonPath("$.id").value(7))
+			.andExpect(jsonPath("$.status").value("QUEUED"));
+	}
+
+	@Test
+	void deletingAllCoursesIsAccepted() throws Exception {
+		when(courseService.deleteAllCourses(true, Priority.NORMAL)).thenReturn(job(8L, Status.QUEUED));
+
+		mockMvc.perform(delete("/courses/").param("confirm-deletion", "true"))
+			.andExpect(status().isAccepted())
+			.andExpect(header().string(HttpHeaders.LOCATION, "/jobs/8"))
+			.andExpect(jsonPath("$.id").value(8));
+	}
+
+	@Test
+	void bulkEnrollmentIsAccepted() throws Exception {
+		when(studentService.updateStudentsCourses(Map.of(1L, List.of(2L)), Priority.NORMAL)).thenReturn(job(9L, Status.QUEUED));
+
+		mockMvc.perform(put("/students/courses").contentType(MediaType.APPLICATION_JSON).content("{\"1\": [2]}"))
+			.andExpect(status().isAccepted())
+			.andExpect(header().string(HttpHeaders.LOCATION, "/jobs/9"));
+	}
+
+	@Test
+	void jobIsPolledAtItsLocation() throws Exception {
+		when(jobs.getJob(7L)).thenReturn(job(7L, Status.SUCCEEDED));
+
+		mockMvc.perform(get("/jobs/7"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.status").value("SUCCEEDED"));
+	}
+
+	private static JobDto job(Long id, Status status) {
+		JobDto job = new JobDto();
+		job.setId(id);
+		job.setStatus(status);
+		return job;
+	}
+}
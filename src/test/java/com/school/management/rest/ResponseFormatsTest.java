@@ -0,0 +1,175 @@
+package com.school.management.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.config.MessageFormatsConfig;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.service.CourseService;
+import com.school.management.service.ImportService;
+import com.school.management.service.ResourceVersions;
+import com.school.management.service.StudentService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Accept negotiation of the student endpoints, through the converters of {@link MessageFormatsConfig}.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResponseFormatsTest {
+	@Mock
+	StudentService studentService;
+
+	@Mock
+	CourseService courseService;
+
+	@Mock
+	ImportService importService;
+
+	@Mock
+	ResourceVersions versions;
+
+	@Mock
+	ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		when(objectMapperBuilder.getObject()).thenAnswer(invocation -> Jackson2ObjectMapperBuilder.json());
+		List<HttpMessageConverter<?>> converters = new ArrayList<>(List.of(new MappingJackson2HttpMessageConverter()));
+		new MessageFormatsConfig(objectMapperBuilder).extendMessageConverters(converters);
+
+		ContentNegotiationManager contentNegotiationManager = new ContentNegotiationManager();
+		StudentController controller = new StudentController(studentService, courseService, importService, versions, new ObjectMapper(), new ResponseFormats(contentNegotiationManager));
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+			.setMessageConverters(converters.toArray(new HttpMessageConverter<?>[0]))
+			.setContentNegotiationManager(contentNegotiationManager)
+			.build();
+	}
+
+	@Test
+	void eachFormatHasItsOwnETag() throws Exception {
+		when(studentService.getStudent(1L)).thenReturn(new StudentDto(1L, "A", "a", null, null, 3L));
+
+		mockMvc.perform(get("/students/1"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+		mockMvc.perform(get("/students/1").accept(MediaType.APPLICATION_CBOR))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3-cbor\""));
+		mockMvc.perform(get("/students/1").header(HttpHeaders.ACCEPT, "application/x-jackson-smile"))
+			.andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3-smile\""));
+		mockMvc.perform(get("/students/1").accept(AvroHttpMessageConverter.APPLICATION_AVRO))
+			.andExpect(content().contentTypeCompatibleWith(AvroHttpMessageConverter.APPLICATION_AVRO))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3-avro\""));
+	}
+
+	@Test
+	void qualityAndSpecificityChooseTheFormat() throws Exception {
+		when(studentService.getStudent(1L)).thenReturn(new StudentDto(1L, "A", "a", null, null, 3L));
+
+		mockMvc.perform(get("/students/1").header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3-cbor\""));
+		mockMvc.perform(get("/students/1").header(HttpHeaders.ACCEPT, "application/*, application/avro"))
+			.andExpect(content().contentTypeCompatibleWith(AvroHttpMessageConverter.APPLICATION_AVRO))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3-avro\""));
+		mockMvc.perform(get("/students/1").header(HttpHeaders.ACCEPT, "*/*"))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+	}
+
+	@Test
+	void notModifiedOnlyForTheETagOfTheSameFormat() throws Exception {
+		when(studentService.getStudent(1L)).thenReturn(new StudentDto(1L, "A", "a", null, null, 3L));
+
+		mockMvc.perform(get("/students/1").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, "\"1-3-cbor\""))
+			.andExpect(status().isNotModified());
+		mockMvc.perform(get("/students/1").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	void streamedListingsHaveAnETagPerContentCoding() throws Exception {
+		when(versions.getETag(any())).thenReturn("\"1-2\"");
+
+		mockMvc.perform(get("/students/"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-2\""));
+		mockMvc.perform(get("/students/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-2-gzip\""));
+		mockMvc.perform(get("/students/").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+			.andExpect(status().isOk());
+		mockMvc.perform(get("/students/").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, "\"1-2-gzip\""))
+			.andExpect(status().isNotModified());
+		//the pages are not streamed
+		when(studentService.getStudents(any())).thenReturn(new PageDto<>(List.of(), null));
+		mockMvc.perform(get("/students/?limit=10").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-2\""));
+	}
+
+	@Test
+	void jsonIsPreferredUnlessABinaryFormatRanksHigher() {
+		ResponseFormats formats = new ResponseFormats(new ContentNegotiationManager());
+
+		Assertions.assertTrue(formats.prefersJson(accepting(null)));
+		Assertions.assertTrue(formats.prefersJson(accepting("*/*")));
+		Assertions.assertTrue(formats.prefersJson(accepting("text/plain, application/json, */*")));
+		Assertions.assertTrue(formats.prefersJson(accepting("application/cbor;q=0.5, application/json")));
+		Assertions.assertFalse(formats.prefersJson(accepting("application/cbor, */*;q=0.1")));
+		Assertions.assertFalse(formats.prefersJson(accepting("application/avro")));
+		Assertions.assertFalse(formats.prefersJson(accepting("application/xml")));
+		Assertions.assertFalse(formats.prefersJson(accepting("not a media type")));
+	}
+
+	@Test
+	void ifMatchAcceptsTheETagOfAnyFormat() throws Exception {
+		when(studentService.updateStudent(any(), eq(3L))).thenReturn(new StudentDto(1L, "B", "b", null, null, 4L));
+
+		mockMvc.perform(put("/students/1").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"B\",\"address\":\"b\"}")
+				.accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_MATCH, "\"1-3-cbor\""))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1-4-cbor\""));
+		verify(studentService).updateStudent(any(), eq(3L));
+	}
+
+	private static ServletWebRequest accepting(String accept) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (accept != null) {
+			request.addHeader(HttpHeaders.ACCEPT, accept);
+		}
+		return new ServletWebRequest(request);
+	}
+}
@@ -0,0 +1,106 @@
+package com.school.management.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.model.Course;
+import com.school.management.model.Student;
+import com.school.management.model.StudentCourseView;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+class StreamingResponsesTest {
+
+	final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void jsonArrayHasTheBytesOfTheMaterializedList() throws IOException {
+		List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+		ResponseEntity<StreamingResponseBody> response = StreamingResponses.jsonArray(objectMapper, request(null, null), rows::forEach);
+
+		Assertions.assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(objectMapper.writeValueAsString(rows), body(response));
+		Assertions.assertEquals("[]", body(StreamingResponses.jsonArray(objectMapper, request(null, null), List.of()::forEach)));
+	}
+
+	@Test
+	public void bodyIsGzippedWhenAccepted() throws IOException {
+		List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+		ResponseEntity<StreamingResponseBody> response = StreamingResponses.ndjson(objectMapper, request(null, "deflate, gzip"), rows::forEach);
+
+		Assertions.assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals("{\"id\":1}\n{\"id\":2}\n", body(response));
+		Assertions.assertNull(StreamingResponses.ndjson(objectMapper, request(null, "gzip;q=0"), rows::forEach).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	public void relationshipsAreOneObjectPerLine() throws IOException {
+		List<StudentCourseView> rows = List.of(relationship(1L, "Ann", 2L, "Math"), relationship(1L, "Ann", 3L, "Physics"));
+		String body = body(StreamingResponses.ndjson(objectMapper, request(null, null), rows::forEach));
+
+		Assertions.assertTrue(body.endsWith("\n"));
+		String[] lines = body.split("\n");
+		Assertions.assertEquals(rows.size(), lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			Assertions.assertEquals(objectMapper.writeValueAsString(rows.get(i)), lines[i]);
+		}
+		Assertions.assertEquals("{\"student\":\"Ann\",\"course\":\"Physics\"}", lines[1]);
+	}
+
+	@Test
+	public void noRelationshipIsAnEmptyBody() throws IOException {
+		ResponseEntity<StreamingResponseBody> response = StreamingResponses.ndjson(objectMapper, request(null, null), List.<StudentCourseView>of()::forEach);
+
+		Assertions.assertEquals(StreamingResponses.APPLICATION_NDJSON, response.getHeaders().getContentType());
+		Assertions.assertEquals("", body(response));
+	}
+
+	@Test
+	public void gzippedBodyIsAnotherVariant() {
+		Assertions.assertEquals("", StreamingResponses.variantOf(request(null, null), ""));
+		Assertions.assertEquals("gzip", StreamingResponses.variantOf(request(null, "gzip"), ""));
+		Assertions.assertEquals("ndjson", StreamingResponses.variantOf(request(null, "gzip;q=0"), StreamingResponses.NDJSON_VARIANT));
+		Assertions.assertEquals("ndjson-gzip", StreamingResponses.variantOf(request(null, "deflate, gzip"), StreamingResponses.NDJSON_VARIANT));
+	}
+
+	private static StudentCourseView relationship(Long studentId, String student, Long courseId, String course) {
+		Student s = new Student(studentId);
+		s.setName(student);
+		Course c = new Course(courseId);
+		c.setName(course);
+		return new StudentCourseView(s, c);
+	}
+
+	private static ServletWebRequest request(String accept, String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (accept != null) {
+			request.addHeader(HttpHeaders.ACCEPT, accept);
+		}
+		if (acceptEncoding != null) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		return new ServletWebRequest(request);
+	}
+
+	private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		response.getBody().writeTo(out);
+		InputStream in = new ByteArrayInputStream(out.toByteArray());
+		if ("gzip".equals(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+			in = new GZIPInputStream(in);
+		}
+		return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,135 @@
+package com.school.management.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class BatchLoaderTest {
+
+	//queried ids of each batch
+	final List<List<Long>> queries = Collections.synchronizedList(new ArrayList<>());
+
+	//rows are the ids themselves; odd ids do not exist
+	List<Long> query(List<Long> ids) {
+		queries.add(List.copyOf(ids));
+		return ids.stream().filter(id -> id % 2 == 0).collect(Collectors.toList());
+	}
+
+	@Test
+	public void lookupWithoutContentionIsNotDelayed() {
+		BatchLoader<Long> loader = new BatchLoader<>(this::query, id -> id, Duration.ofSeconds(10), 100);
+
+		Assertions.assertTimeout(Duration.ofSeconds(1), () -> {
+			Assertions.assertEquals(2L, loader.load(2L));
+			Assertions.assertNull(loader.load(3L));
+		});
+		Assertions.assertEquals(List.of(List.of(2L), List.of(3L)), queries);
+	}
+
+	@Test
+	public void lookupsArrivingDuringAQueryShareTheNextOne() throws Exception {
+		CountDownLatch queried = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		BatchLoader<Long> loader = new BatchLoader<>(ids -> {
+			queried.countDown();
+			if (queries.isEmpty()) {
+				await(release);
+			}
+			return query(ids);
+		}, id -> id, Duration.ofSeconds(5), 100);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> first = executor.submit(() -> loader.load(2L));
+			await(queried);
+			//2 is in flight, the others wait for its query to end
+			List<Long> rows = loadConcurrently(loader, List.of(2L, 3L, 4L, 6L, 4L), release);
+
+			Assertions.assertEquals(2L, first.get());
+			Assertions.assertEquals(List.of(2L, -1L, 4L, 6L, 4L), rows);
+			Assertions.assertEquals(2, queries.size());
+			Assertions.assertEquals(List.of(2L), queries.get(0));
+			Assertions.assertEquals(List.of(3L, 4L, 6L), queries.get(1).stream().sorted().collect(Collectors.toList()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void failuresReachEveryCallerOfTheBatch() throws Exception {
+		BatchLoader<Long> loader = new BatchLoader<>(ids -> {
+			throw new IllegalStateException("database down");
+		}, id -> id, Duration.ofSeconds(1), 2);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Long> first = executor.submit(() -> loader.load(2L));
+			Future<Long> second = executor.submit(() -> loader.load(4L));
+			for (Future<Long> result : List.of(first, second)) {
+				ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+				Assertions.assertEquals(IllegalStateException.class, e.getCause().getClass());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void zeroWindowQueriesEachLookup() {
+		BatchLoader<Long> loader = new BatchLoader<>(this::query, id -> id, Duration.ZERO, 100);
+
+		Assertions.assertEquals(2L, loader.load(2L));
+		Assertions.assertNull(loader.load(3L));
+		Assertions.assertEquals(List.of(List.of(2L), List.of(3L)), queries);
+	}
+
+	/**
+	 * @param release = counted down once every lookup was started and given time to reach the loader.
+	 * @return the row of each id (-1 when missing), looked up from one thread per id, all started together.
+	 */
+	private List<Long> loadConcurrently(BatchLoader<Long> loader, List<Long> ids, CountDownLatch release) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(ids.size());
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Long>> results = new ArrayList<>();
+			for (Long id : ids) {
+				Callable<Long> lookup = () -> {
+					start.await();
+					Long row = loader.load(id);
+					return row == null ? -1L : row;
+				};
+				results.add(executor.submit(lookup));
+			}
+			start.countDown();
+			Thread.sleep(200);
+			release.countDown();
+			List<Long> rows = new ArrayList<>();
+			for (Future<Long> result : results) {
+				rows.add(result.get());
+			}
+			return rows;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
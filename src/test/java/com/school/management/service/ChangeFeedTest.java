@@ -0,0 +1,100 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord;
+import com.school.management.model.ChangeRecord.EntityType;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.repository.ChangeRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeFeedTest {
+
+	@Mock
+	ChangeRecordRepository changeRecordRepository;
+
+	@Mock
+	JdbcTemplate jdbcTemplate;
+
+	@Mock
+	EntityManager entityManager;
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
+
+	@InjectMocks
+	ChangeFeed changeFeed;
+
+	@AfterEach
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void recordsOfATransactionAreWrittenBeforeCommitWithConsecutiveIds() throws Exception {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		when(jdbcTemplate.update(anyString(), eq(3), eq(ChangeRecord.TABLE))).thenReturn(1);
+		//ids 10 to 12 reserved
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(ChangeRecord.TABLE))).thenReturn(13L);
+
+		changeFeed.students(Operation.UPDATED, List.of(5L));
+		changeFeed.studentEnrollments(Operation.CREATED, 5L, List.of(7L, 8L));
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		Assertions.assertEquals(1, synchronizations.size());
+		synchronizations.get(0).beforeCommit(false);
+
+		ArgumentCaptor<Collection<ChangeRecord>> records = ArgumentCaptor.forClass(Collection.class);
+		verify(jdbcTemplate).batchUpdate(anyString(), records.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+		List<ChangeRecord> written = new ArrayList<>(records.getValue());
+		Assertions.assertEquals(List.of(10L, 11L, 12L), written.stream().map(ChangeRecord::getId).collect(Collectors.toList()));
+		Assertions.assertEquals(EntityType.STUDENT, written.get(0).getEntityType());
+		Assertions.assertEquals(EntityType.ENROLLMENT, written.get(2).getEntityType());
+		Assertions.assertEquals(8L, written.get(2).getCourseId());
+	}
+
+	@Test
+	public void changesRequireATransaction() {
+		Assertions.assertThrows(IllegalStateException.class, () -> changeFeed.students(Operation.DELETED, List.of(1L)));
+	}
+
+	@Test
+	public void pageLimits() {
+		ResponseStatusException zero = Assertions.assertThrows(ResponseStatusException.class, () -> changeFeed.getChanges(0L, 0));
+		Assertions.assertEquals(HttpStatus.BAD_REQUEST, zero.getStatus());
+		ResponseStatusException tooLarge = Assertions.assertThrows(ResponseStatusException.class, () -> changeFeed.getChanges(0L, properties.getPagination().getMaxLimit() + 1));
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, tooLarge.getStatus());
+		Assertions.assertEquals("A page can not contain more than " + properties.getPagination().getMaxLimit() + " changes.", tooLarge.getReason());
+	}
+}
@@ -0,0 +1,75 @@
+package com.school.management.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CourseExpressionTest {
+
+	static final Map<Long, RoaringBitmap> ROSTERS = Map.of(
+		10L, RoaringBitmap.bitmapOf(1, 2, 3),
+		11L, RoaringBitmap.bitmapOf(4),
+		20L, RoaringBitmap.bitmapOf(2, 3, 4),
+		30L, RoaringBitmap.bitmapOf(3));
+
+	static int[] evaluate(String expression) {
+		return CourseExpression.parse(expression).evaluate(ROSTERS::get, () -> RoaringBitmap.bitmapOf(1, 2, 3, 4, 5)).toArray();
+	}
+
+	@Test
+	public void operatorsFollowTheirPrecedence() {
+		Assertions.assertArrayEquals(new int[]{2, 4}, evaluate("(10 or 11) AND 20 AND NOT 30"));
+		Assertions.assertArrayEquals(new int[]{1, 2, 3, 4}, evaluate("10 OR 11 AND 20"));
+		Assertions.assertArrayEquals(new int[]{1, 5}, evaluate("NOT 20 AND NOT 11"));
+		Assertions.assertArrayEquals(new int[]{1, 2, 3}, evaluate("10"));
+		Assertions.assertEquals(Set.of(10L, 30L), CourseExpression.parse("10 AND NOT (30 OR 10)").getCourseIds());
+	}
+
+	@Test
+	public void rostersAreNotModified() {
+		evaluate("10");
+		evaluate("10 AND NOT 30");
+		Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 2, 3), ROSTERS.get(10L));
+	}
+
+	@Test
+	public void invalidExpressionsAreRejected() {
+		for (String expression : new String[]{"", "10 AND", "(10 OR 11", "10 11", "10 & 11", "NOT"}) {
+			ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> CourseExpression.parse(expression));
+			Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+		}
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> evaluate("10 OR 99"));
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+	}
+
+	@Test
+	public void nestingIsBounded() {
+		int depth = CourseExpression.MAX_DEPTH;
+		Assertions.assertArrayEquals(new int[]{1, 2, 3}, evaluate("(".repeat(depth) + "10" + ")".repeat(depth)));
+		Assertions.assertArrayEquals(new int[]{1, 2, 3}, evaluate("NOT ".repeat(depth) + "10"));
+		for (String expression : new String[]{"(".repeat(100000) + "10" + ")".repeat(100000), "NOT ".repeat(100000) + "10", "NOT (".repeat(depth / 2 + 1) + "10" + ")".repeat(depth / 2 + 1)}) {
+			ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> CourseExpression.parse(expression));
+			Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+		}
+	}
+
+	@Test
+	public void allStudentsAreReadOncePerEvaluation() {
+		AtomicInteger reads = new AtomicInteger();
+		CourseExpression expression = CourseExpression.parse("NOT 10 OR NOT 11 OR (NOT 20 AND NOT 30)");
+
+		int[] students = expression.evaluate(ROSTERS::get, () -> {
+			reads.incrementAndGet();
+			return RoaringBitmap.bitmapOf(1, 2, 3, 4, 5);
+		}).toArray();
+
+		Assertions.assertArrayEquals(new int[]{1, 2, 3, 4, 5}, students);
+		Assertions.assertEquals(1, reads.get());
+	}
+}
@@ -1,26 +1,85 @@
 package com.school.management.service;
 
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Course;
+import com.school.management.model.Student;
 import com.school.management.model.dto.CourseDto;
+import com.school.management.repository.CourseRepository;
+import com.school.management.repository.StudentCourseRepository;
+import com.school.management.repository.StudentCourseViewRepository;
+import com.school.management.repository.StudentRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class CourseServiceTest {
 
 	@Mock
-	List<Long> studentIds;
+	List<CourseDto> coursesDto;
 
 	@Mock
-	List<CourseDto> coursesDto;
+	CourseRepository courseRepository;
+
+	@Mock
+	StudentRepository studentRepository;
+
+	@Mock
+	StudentCourseRepository studentCourseRepository;
+
+	@Mock
+	StudentCourseViewRepository studentCourseViewRepository;
+
+	@Mock
+	ReadCache readCache;
+
+	@Mock
+	EnrollmentIndex enrollmentIndex;
+
+	@Mock
+	SearchIndex searchIndex;
+
+	@Mock
+	ResourceVersions versions;
+
+	@Mock
+	ChangeFeed changeFeed;
+
+	@Mock
+	PlatformTransactionManager transactionManager;
+
+	@Mock
+	Jobs jobs;
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
 
 	@InjectMocks
 	CourseService courseService;
@@ -36,11 +95,255 @@ class CourseServiceTest {
 
 	@Test
 	public void moreThanFiftyStudentsInCourse() {
-		when(studentIds.size()).thenReturn(51);
+		Course course = new Course(1L);
+		course.setCapacity(50);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		List<Long> studentIds = LongStream.rangeClosed(1, 51).boxed().collect(Collectors.toList());
 
-		Assertions.assertThrows(ResponseStatusException.class, () ->
-			courseService.updateCourseStudents(1L, studentIds)
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			courseService.updateCourseStudents(1L, studentIds, null)
+		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+	}
+
+	@Test
+	public void repeatedStudentsCountOnceForTheCapacity() {
+		Course course = new Course(1L);
+		course.setCapacity(1);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentRepository.findAllById(List.of(1L))).thenReturn(List.of(new Student(1L)));
+		when(studentCourseRepository.getStudentIdsByCourse(course)).thenReturn(List.of(1L));
+
+		Assertions.assertEquals(1, courseService.updateCourseStudents(1L, List.of(1L, 1L), null).size());
+	}
+
+	@Test
+	public void staleVersionIsRejected() {
+		Course course = new Course(1L);
+		course.setVersion(3L);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			courseService.updateCourse(new CourseDto(1L, "Calculus", null, null, null), 2L)
+		);
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+		verify(courseRepository, never()).saveAndFlush(any());
+	}
+
+	@Test
+	public void updateIsRecordedInTheChangeFeed() {
+		Course course = new Course(1L);
+		course.setName("Algebra");
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(courseRepository.saveAndFlush(course)).thenReturn(course);
+
+		courseService.updateCourse(new CourseDto(1L, "Calculus", null, null, null), null);
+
+		verify(changeFeed).courses(Operation.UPDATED, List.of(1L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void enrollmentDiffIsRecordedInTheChangeFeed() {
+		Course course = new Course(1L);
+		course.setCapacity(50);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(student(1L), student(2L)));
+		when(studentCourseRepository.getStudentIdsByCourse(course)).thenReturn(List.of(2L, 3L));
+		when(studentCourseRepository.deleteCourseStudents(course, List.of(3L))).thenReturn(1);
+		when(studentRepository.incrementCourseCount(List.of(1L), Student.MAX_COURSES)).thenReturn(1);
+
+		courseService.updateCourseStudents(1L, List.of(1L, 2L), null);
+
+		verify(studentRepository).incrementVersion(List.of(1L, 3L));
+		verify(readCache).evictStudent(3L);
+		verify(changeFeed).courses(Operation.UPDATED, List.of(1L));
+		verify(changeFeed).courseEnrollments(Operation.CREATED, 1L, List.of(1L));
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 1L, List.of(3L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void rolledBackEnrollmentIsNotRecorded() {
+		Course course = new Course(1L);
+		course.setCapacity(50);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentRepository.findAllById(List.of(1L))).thenReturn(List.of(student(1L)));
+		//the student enrolled in other courses after being read
+		when(studentRepository.incrementCourseCount(List.of(1L), Student.MAX_COURSES)).thenReturn(0);
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			courseService.updateCourseStudents(1L, List.of(1L), null)
 		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+		verifyNoInteractions(changeFeed);
+	}
+
+	@Test
+	public void deleteIsRecordedWithTheRoster() {
+		Course course = new Course(1L);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentCourseRepository.getStudentIdsByCourse(any(Course.class), any())).thenReturn(List.of(2L, 3L));
+		when(studentCourseRepository.getStudentIdsByCourse(course)).thenReturn(List.of(2L, 3L));
+
+		courseService.deleteCourse(1L, true);
+
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 1L, List.of(2L, 3L));
+		verify(changeFeed).courses(Operation.DELETED, List.of(1L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void deleteAllRemovesChunksUntilNoneIsLeft() {
+		properties.getBulkDelete().setChunkSize(2);
+		when(courseRepository.getIds(PageRequest.of(0, 2))).thenReturn(List.of(1L, 2L), List.of());
+		when(studentCourseRepository.getEnrollmentsByCourses(List.of(1L, 2L))).thenReturn(List.of(new Object[]{1L, 10L}, new Object[]{2L, 10L}));
+		Jobs.Progress progress = mock(Jobs.Progress.class);
+
+		deleteAllJob().run(progress);
+
+		verify(courseRepository, times(2)).getIds(PageRequest.of(0, 2));
+		verify(studentRepository).decrementCourseCountByCourses(List.of(1L, 2L));
+		verify(studentCourseViewRepository).deleteByCourses(List.of(1L, 2L));
+		verify(studentCourseRepository).deleteByCourses(List.of(1L, 2L));
+		verify(courseRepository).deleteByIds(List.of(1L, 2L));
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 1L, List.of(10L));
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 2L, List.of(10L));
+		verify(changeFeed).courses(Operation.DELETED, List.of(1L, 2L));
+		verify(enrollmentIndex).removeCourses(List.of(1L, 2L));
+		verify(searchIndex).removeCourses(List.of(1L, 2L));
+		verify(readCache).evictCourse(1L);
+		verify(readCache).evictCourse(2L);
+		verify(readCache).evictStudentsByCourse(List.of(1L, 2L));
+		verify(readCache).evictCoursesByStudent(Set.of(10L));
+		verify(progress).add(2);
+		verify(progress).add(0);
+	}
+
+	@Test
+	public void deleteAllOfNoCoursesWritesNothing() {
+		when(courseRepository.getIds(any())).thenReturn(List.of());
+
+		deleteAllJob().run(mock(Jobs.Progress.class));
+
+		verify(courseRepository, times(1)).getIds(any());
+		verify(studentRepository, never()).decrementCourseCountByCourses(anyList());
+		verify(courseRepository, never()).deleteByIds(anyList());
+		verifyNoInteractions(changeFeed, enrollmentIndex, searchIndex, readCache);
+	}
+
+	@Test
+	public void largeRosterIsUnenrolledInChunks() {
+		properties.getBulkDelete().setChunkSize(2);
+		Course course = new Course(1L);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentCourseRepository.getStudentIdsByCourse(course, PageRequest.of(0, 3))).thenReturn(List.of(1L, 2L, 3L), List.of(3L));
+		when(studentCourseRepository.deleteCourseStudents(course, List.of(1L, 2L))).thenReturn(2);
+		when(studentCourseRepository.getStudentIdsByCourse(course)).thenReturn(List.of(3L));
+
+		courseService.deleteCourse(1L, true);
+
+		//one chunk, then the last student with the course
+		verify(studentCourseRepository, times(2)).getStudentIdsByCourse(course, PageRequest.of(0, 3));
+		verify(studentCourseViewRepository).deleteCourseStudents(1L, List.of(1L, 2L));
+		verify(studentRepository).decrementCourseCount(List.of(1L, 2L));
+		verify(courseRepository).addToEnrolledCount(1L, -2);
+		verify(enrollmentIndex).updateCourseStudents(1L, List.of(), List.of(1L, 2L));
+		verify(readCache).evictCoursesByStudent(List.of(1L, 2L));
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 1L, List.of(1L, 2L));
+		verify(changeFeed).courseEnrollments(Operation.DELETED, 1L, List.of(3L));
+		verify(changeFeed).courses(Operation.DELETED, List.of(1L));
+		verify(studentRepository).decrementCourseCountByCourse(course);
+		verify(courseRepository).deleteById(1L);
 	}
 
+	@Test
+	public void chunkChangedConcurrentlyIsAConflict() {
+		properties.getBulkDelete().setChunkSize(2);
+		Course course = new Course(1L);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentCourseRepository.getStudentIdsByCourse(course, PageRequest.of(0, 3))).thenReturn(List.of(1L, 2L, 3L));
+		//a student was unenrolled after the roster was read
+		when(studentCourseRepository.deleteCourseStudents(course, List.of(1L, 2L))).thenReturn(1);
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			courseService.deleteCourse(1L, true)
+		);
+		Assertions.assertEquals(HttpStatus.CONFLICT, e.getStatus());
+		verify(studentRepository, never()).decrementCourseCount(anyList());
+		verify(courseRepository, never()).deleteById(1L);
+		verifyNoInteractions(changeFeed);
+	}
+
+	@Test
+	public void enrollmentThroughTheStudentChangesTheCourseVersion() {
+		Course course = new Course(1L);
+		course.setCapacity(50);
+		course.setEnrolledCount(0);
+		course.setVersion(3L);
+		Student student = student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L))).thenReturn(List.of(course));
+		when(courseRepository.incrementEnrolledCount(List.of(1L))).thenReturn(1);
+		when(studentRepository.addToCourseCount(1L, 1, Student.MAX_COURSES)).thenReturn(1);
+		when(courseRepository.incrementVersion(List.of(1L))).thenAnswer(invocation -> {
+			course.setVersion(course.getVersion() + 1);
+			return 1;
+		});
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+
+		studentService().updateStudentCourses(1L, List.of(1L), null);
+
+		//the roster read with the course version 3 is stale
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			courseService.updateCourseStudents(1L, List.of(), 3L)
+		);
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+		verify(readCache).evictCourse(1L);
+		verify(studentCourseRepository, never()).deleteCourseStudents(any(), anyList());
+	}
+
+	@Test
+	public void enrollmentThroughTheCourseChangesTheStudentVersion() {
+		Course course = new Course(1L);
+		course.setCapacity(50);
+		Student student = student(1L);
+		student.setVersion(3L);
+		when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+		when(studentRepository.findAllById(List.of(1L))).thenReturn(List.of(student));
+		when(studentRepository.incrementCourseCount(List.of(1L), Student.MAX_COURSES)).thenReturn(1);
+		when(courseRepository.addToEnrolledCount(1L, 1)).thenReturn(1);
+		when(studentRepository.incrementVersion(List.of(1L))).thenAnswer(invocation -> {
+			student.setVersion(student.getVersion() + 1);
+			return 1;
+		});
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+
+		courseService.updateCourseStudents(1L, List.of(1L), null);
+
+		//the courses read with the student version 3 are stale
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService().updateStudentCourses(1L, List.of(), 3L)
+		);
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+		verify(readCache).evictStudent(1L);
+		verify(studentCourseRepository, never()).deleteStudentCourses(any(), anyList());
+	}
+
+	//the student endpoints, writing to the same repositories
+	private StudentService studentService() {
+		return new StudentService(studentRepository, courseRepository, studentCourseRepository, studentCourseViewRepository, properties, null, readCache, enrollmentIndex, searchIndex, versions, changeFeed, transactionManager, jobs, null);
+	}
+
+	private Jobs.Task deleteAllJob() {
+		ArgumentCaptor<Jobs.Task> task = ArgumentCaptor.forClass(Jobs.Task.class);
+		verify(jobs).register(eq("delete-all-courses"), task.capture());
+		return task.getValue();
+	}
+
+	private static Student student(Long id) {
+		Student student = new Student(id);
+		student.setCourseCount(0);
+		return student;
+	}
 }
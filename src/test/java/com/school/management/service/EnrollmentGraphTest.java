@@ -0,0 +1,60 @@
+package com.school.management.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EnrollmentGraphTest {
+
+	EnrollmentGraph graph;
+
+	@BeforeEach
+	public void setUp() {
+		graph = new EnrollmentGraph();
+		for (long id = 1; id <= 4; id++) {
+			graph.addStudent(id);
+			graph.addCourse(id * 10);
+		}
+		graph.enroll(1, 30);
+		graph.enroll(1, 10);
+		graph.enroll(2, 10);
+	}
+
+	@Test
+	public void adjacencyIsSortedBothWays() {
+		Assertions.assertArrayEquals(new long[]{10, 30}, graph.getCourseIds(1));
+		Assertions.assertArrayEquals(new long[]{1, 2}, graph.getStudentIds(10));
+		Assertions.assertArrayEquals(new long[0], graph.getCourseIds(3));
+		Assertions.assertNull(graph.getCourseIds(5));
+		Assertions.assertNull(graph.getStudentIds(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void unenrolledNodesArePagedById() {
+		Assertions.assertArrayEquals(new long[]{3, 4}, graph.getStudentsWithoutCourse(0, 10));
+		Assertions.assertArrayEquals(new long[]{20}, graph.getCoursesWithoutStudent(0, 1));
+		Assertions.assertArrayEquals(new long[]{40}, graph.getCoursesWithoutStudent(20, 1));
+
+		graph.unenroll(1, 30);
+		graph.unenroll(1, 10);
+		Assertions.assertArrayEquals(new long[]{1, 3, 4}, graph.getStudentsWithoutCourse(0, 10));
+		Assertions.assertArrayEquals(new long[]{20, 30, 40}, graph.getCoursesWithoutStudent(0, 10));
+	}
+
+	@Test
+	public void removalsUnlinkTheOtherSide() {
+		graph.removeStudent(2);
+		Assertions.assertNull(graph.getCourseIds(2));
+		Assertions.assertArrayEquals(new long[]{1}, graph.getStudentIds(10));
+
+		graph.removeCourse(10);
+		Assertions.assertArrayEquals(new long[]{30}, graph.getCourseIds(1));
+		Assertions.assertNull(graph.getStudentIds(10));
+	}
+
+	@Test
+	public void idsOutsideTheIndexAreRejected() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> graph.addStudent(Integer.MAX_VALUE + 1L));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> graph.addStudent(Integer.MAX_VALUE));
+	}
+}
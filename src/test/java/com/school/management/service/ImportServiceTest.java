@@ -0,0 +1,128 @@
+package com.school.management.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Student;
+import com.school.management.model.dto.ImportReportDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceTest {
+	@Mock
+	EntityManager entityManager;
+
+	@Mock
+	PlatformTransactionManager transactionManager;
+
+	@Mock
+	EnrollmentIndex enrollmentIndex;
+
+	@Mock
+	SearchIndex searchIndex;
+
+	@Mock
+	ResourceVersions versions;
+
+	@Mock
+	ChangeFeed changeFeed;
+
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
+
+	@InjectMocks
+	ImportService importService;
+
+	@Test
+	public void invalidCsvRowsAreReported() {
+		String csv = "name,capacity\nAlgebra,40\n,10\nPhysics,abc\nChemistry\nBiology,0\nHistory,30,extra\n";
+
+		ImportReportDto report = importService.importCourses(input(csv), ImportService.TEXT_CSV);
+
+		Assertions.assertEquals(2, report.getImported());
+		Assertions.assertEquals(4, report.getRejected());
+		Assertions.assertEquals(List.of(2L, 3L, 5L, 6L), report.getRejects().stream().map(ImportReportDto.Reject::getRow).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void ndjsonRowsAreInsertedInBatches() {
+		properties.getBulkImport().setBatchSize(2);
+		String ndjson = "{\"name\":\"A\",\"address\":\"a\"}\n{\"name\":\"B\",\"address\":\"b\"}\n\n{\"name\":\"C\",\n{\"name\":\"D\",\"address\":\" \"}\n{\"name\":\"E\",\"address\":\"e\"}\n";
+
+		ImportReportDto report = importService.importStudents(input(ndjson), MediaType.parseMediaType("application/x-ndjson"));
+
+		Assertions.assertEquals(3, report.getImported());
+		Assertions.assertEquals(2, report.getRejected());
+		verify(entityManager, times(3)).persist(any());
+		verify(entityManager, times(2)).flush();
+	}
+
+	@Test
+	public void ndjsonLineLongerThanTheLimitIsRejected() {
+		properties.getBulkImport().setMaxLineLength(40);
+		String ndjson = "{\"name\":\"A\",\"address\":\"a\"}\r\n{\"name\":\"" + "B".repeat(1000) + "\"}\n";
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			importService.importStudents(input(ndjson), MediaType.parseMediaType("application/x-ndjson"))
+		);
+		Assertions.assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+		Assertions.assertEquals("The line 2 is longer than 40 characters.", e.getReason());
+	}
+
+	@Test
+	public void importedBatchesAreRecorded() {
+		properties.getBulkImport().setBatchSize(2);
+		AtomicLong ids = new AtomicLong();
+		doAnswer(invocation -> {
+			invocation.<Student>getArgument(0).setId(ids.incrementAndGet());
+			return null;
+		}).when(entityManager).persist(any(Student.class));
+		String csv = "name,address\nA,a\nB,b\nC,c\n";
+
+		importService.importStudents(input(csv), ImportService.TEXT_CSV);
+
+		verify(changeFeed).students(Operation.CREATED, List.of(1L, 2L));
+		verify(changeFeed).students(Operation.CREATED, List.of(3L));
+	}
+
+	@Test
+	public void rolledBackBatchIsNotRecorded() {
+		doThrow(new PersistenceException("Data too long")).when(entityManager).flush();
+		String csv = "name,capacity\nAlgebra,40\n";
+
+		Assertions.assertThrows(PersistenceException.class, () -> importService.importCourses(input(csv), ImportService.TEXT_CSV));
+		verifyNoInteractions(changeFeed);
+	}
+
+	private static ByteArrayInputStream input(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
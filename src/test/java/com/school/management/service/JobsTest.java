@@ -0,0 +1,169 @@
+package com.school.management.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.Job;
+import com.school.management.model.Job.Priority;
+import com.school.management.model.Job.Status;
+import com.school.management.model.dto.JobDto;
+import com.school.management.repository.JobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JobsTest {
+
+	@Mock
+	JobRepository jobRepository;
+
+	final SchoolProperties properties = new SchoolProperties();
+
+	//the stored jobs
+	final Map<Long, Job> table = new ConcurrentHashMap<>();
+	final AtomicLong nextId = new AtomicLong(1);
+
+	Jobs jobs;
+
+	@BeforeEach
+	public void setUp() {
+		properties.getJobs().setWorkers(1);
+		when(jobRepository.save(any(Job.class))).thenAnswer(invocation -> {
+			Job job = invocation.getArgument(0);
+			job.setId(nextId.getAndIncrement());
+			table.put(job.getId(), job);
+			return job;
+		});
+		when(jobRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<Long>getArgument(0))));
+		when(jobRepository.findByTypeAndStatusIn(any(), any())).thenAnswer(invocation -> table.values().stream()
+			.filter(job -> job.getType().equals(invocation.getArgument(0)) && invocation.<Collection<Status>>getArgument(1).contains(job.getStatus()))
+			.collect(Collectors.toList()));
+		when(jobRepository.start(any(), any(), eq(Status.QUEUED), eq(Status.RUNNING))).thenReturn(1);
+		jobs = new Jobs(jobRepository, new ObjectMapper(), properties);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		jobs.destroy();
+	}
+
+	@Test
+	public void handlerRunsWithTheStoredParametersAndItsResultIsStored() {
+		jobs.register("sum", new TypeReference<List<Integer>>() {
+		}, (numbers, progress) -> {
+			progress.setTotal(numbers.size());
+			progress.add(numbers.size());
+			return numbers.stream().mapToInt(Integer::intValue).sum();
+		});
+
+		JobDto job = jobs.submit("sum", List.of(1, 2), Priority.NORMAL);
+
+		Assertions.assertEquals(Status.QUEUED, job.getStatus());
+		Assertions.assertEquals("[1,2]", table.get(job.getId()).getParameters());
+		verify(jobRepository, timeout(2000)).finish(eq(job.getId()), eq(Status.SUCCEEDED), eq(2L), eq("3"), isNull(), any(Timestamp.class));
+	}
+
+	@Test
+	public void queuedJobsRunByPriorityThenInSubmissionOrder() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> order = new CopyOnWriteArrayList<>();
+		jobs.register("block", progress -> await(release));
+		jobs.register("record", new TypeReference<String>() {
+		}, (name, progress) -> order.add(name));
+
+		jobs.submit("block", null, Priority.NORMAL);
+		jobs.submit("record", "low", Priority.LOW);
+		jobs.submit("record", "normal", Priority.NORMAL);
+		jobs.submit("record", "high", Priority.HIGH);
+		//same type and parameters as an unfinished job
+		Assertions.assertEquals(2L, jobs.submit("record", "low", Priority.HIGH).getId());
+		release.countDown();
+
+		verify(jobRepository, timeout(2000)).finish(eq(2L), eq(Status.SUCCEEDED), anyLong(), any(), isNull(), any(Timestamp.class));
+		Assertions.assertEquals(List.of("high", "normal", "low"), order);
+	}
+
+	@Test
+	public void unfinishedJobsAreResumedAndFailuresRecorded() {
+		jobs.register("fail", progress -> {
+			throw new IllegalStateException("database down");
+		});
+		Job interrupted = new Job("fail", Priority.NORMAL, "null", Timestamp.from(Instant.now()));
+		interrupted.setId(7L);
+		table.put(7L, interrupted);
+		Job unknown = new Job("retired", Priority.NORMAL, "null", Timestamp.from(Instant.now()));
+		unknown.setId(8L);
+		table.put(8L, unknown);
+		when(jobRepository.findByStatusOrderById(Status.QUEUED)).thenReturn(List.of(interrupted, unknown));
+
+		jobs.resume();
+
+		verify(jobRepository).requeueRunning(Status.RUNNING, Status.QUEUED);
+		verify(jobRepository, timeout(2000)).finish(eq(7L), eq(Status.FAILED), eq(0L), isNull(), eq("database down"), any(Timestamp.class));
+		verify(jobRepository, timeout(2000)).finish(eq(8L), eq(Status.FAILED), eq(0L), isNull(), eq("No handler for the jobs of type retired."), any(Timestamp.class));
+	}
+
+	@Test
+	public void jobFailingWithAnErrorIsRecorded() {
+		jobs.register("overflow", progress -> {
+			throw new StackOverflowError("too deep");
+		});
+
+		JobDto job = jobs.submit("overflow", null, Priority.NORMAL);
+
+		verify(jobRepository, timeout(2000)).finish(eq(job.getId()), eq(Status.FAILED), eq(0L), isNull(), eq("too deep"), any(Timestamp.class));
+	}
+
+	@Test
+	public void submissionsAreRefusedWhenTheQueueIsFull() {
+		jobs.register("noop", progress -> {
+		});
+		when(jobRepository.countByStatus(Status.QUEUED)).thenReturn((long) properties.getJobs().getMaxQueued());
+
+		ResponseStatusException full = Assertions.assertThrows(ResponseStatusException.class, () -> jobs.submit("noop", null, Priority.HIGH));
+		Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, full.getStatus());
+		verify(jobRepository, never()).save(any());
+		ResponseStatusException unknown = Assertions.assertThrows(ResponseStatusException.class, () -> jobs.getJob(99L));
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, unknown.getStatus());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.CourseDto;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.repository.ReactiveCourseRepository;
+import com.school.management.repository.ReactiveStudentRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCourseServiceTest {
+	@Mock
+	ReactiveCourseRepository courseRepository;
+
+	@Mock
+	ReactiveStudentRepository studentRepository;
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
+
+	@InjectMocks
+	ReactiveCourseService courseService;
+
+	@Test
+	void pageFetchesOneExtraRowForTheNextCursor() {
+		when(courseRepository.getCoursesWithoutStudentPage(0L, null, null, null, 2)).thenReturn(Flux.just(course(1L), course(2L)));
+
+		PageDto<CourseDto> page = courseService.getCourses(new ListFilter(null, 1, null, null, null), true).block();
+
+		Assertions.assertEquals(1, page.getContent().size());
+		Assertions.assertEquals(1L, page.getNext());
+	}
+
+	@Test
+	void pageLimitMustBePositive() {
+		ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
+			() -> courseService.streamCourses(new ListFilter(null, 0, null, null, null), false));
+		Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+	}
+
+	@Test
+	void coursesOfAStudent() {
+		when(studentRepository.getStudent(1L)).thenReturn(Mono.just(new StudentDto(1L, "Student", null, null, null)));
+		when(courseRepository.getCoursesByStudent(1L)).thenReturn(Flux.just(course(2L), course(3L)));
+
+		List<CourseDto> courses = courseService.getCoursesByStudent(1L).collectList().block();
+
+		Assertions.assertEquals(2, courses.size());
+	}
+
+	@Test
+	void coursesOfAMissingStudentAreNotFound() {
+		when(studentRepository.getStudent(1L)).thenReturn(Mono.empty());
+
+		ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class, () -> courseService.getCoursesByStudent(1L).blockLast());
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+	}
+
+	private static CourseDto course(long id) {
+		return new CourseDto(id, "Course " + id, 50, null, null);
+	}
+}
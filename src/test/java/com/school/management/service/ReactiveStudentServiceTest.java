@@ -0,0 +1,108 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.dto.ListFilter;
+import com.school.management.model.dto.PageDto;
+import com.school.management.model.dto.StudentDto;
+import com.school.management.repository.ReactiveCourseRepository;
+import com.school.management.repository.ReactiveStudentRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveStudentServiceTest {
+	@Mock
+	ReactiveStudentRepository studentRepository;
+
+	@Mock
+	ReactiveCourseRepository courseRepository;
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
+
+	@InjectMocks
+	ReactiveStudentService studentService;
+
+	@Test
+	void missingStudentIsNotFound() {
+		when(studentRepository.getStudent(1L)).thenReturn(Mono.empty());
+
+		ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class, () -> studentService.getStudent(1L).block());
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+	}
+
+	@Test
+	void pageFetchesOneExtraRowForTheNextCursor() {
+		when(studentRepository.getStudentsPage(5L, "a!%", null, null, 3)).thenReturn(Flux.just(student(6L), student(7L), student(8L)));
+
+		PageDto<StudentDto> page = studentService.getStudents(new ListFilter(5L, 2, "a%", null, null), false).block();
+
+		Assertions.assertEquals(2, page.getContent().size());
+		Assertions.assertEquals(7L, page.getNext());
+	}
+
+	@Test
+	void lastPageHasNoNextCursor() {
+		when(studentRepository.getStudentsWithoutCoursePage(0L, null, null, null, 3)).thenReturn(Flux.just(student(1L)));
+
+		PageDto<StudentDto> page = studentService.getStudents(new ListFilter(null, 2, null, null, null), true).block();
+
+		Assertions.assertEquals(1, page.getContent().size());
+		Assertions.assertNull(page.getNext());
+	}
+
+	@Test
+	void streamFetchesThePageSizeOnly() {
+		when(studentRepository.getStudentsPage(0L, null, null, null, 2)).thenReturn(Flux.just(student(1L), student(2L)));
+
+		List<StudentDto> students = studentService.streamStudents(new ListFilter(null, 2, null, null, null), false).collectList().block();
+
+		Assertions.assertEquals(2, students.size());
+	}
+
+	@Test
+	void unpagedListingHasNoLimit() {
+		when(studentRepository.getStudentsPage(0L, null, null, null, null)).thenReturn(Flux.empty());
+
+		Assertions.assertTrue(studentService.streamStudents(new ListFilter(), false).collectList().block().isEmpty());
+	}
+
+	@Test
+	void pageOverTheMaxLimitIsForbidden() {
+		ListFilter filter = new ListFilter(null, properties.getPagination().getMaxLimit() + 1, null, null, null);
+
+		ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class, () -> studentService.getStudents(filter, false));
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, exception.getStatus());
+		verify(studentRepository, never()).getStudentsPage(anyLong(), any(), any(), any(), any());
+	}
+
+	@Test
+	void studentsOfAMissingCourseAreNotFound() {
+		when(courseRepository.getCourse(1L)).thenReturn(Mono.empty());
+
+		ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class, () -> studentService.getStudentsByCourse(1L).blockLast());
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+		verify(studentRepository, never()).getStudentsByCourse(anyLong());
+	}
+
+	private static StudentDto student(long id) {
+		return new StudentDto(id, "Student " + id, null, null, null);
+	}
+}
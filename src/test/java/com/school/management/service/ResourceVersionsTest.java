@@ -0,0 +1,56 @@
+package com.school.management.service;
+
+import com.school.management.config.SchoolProperties;
+import com.school.management.service.ResourceVersions.Resource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class ResourceVersionsTest {
+
+	@Test
+	public void onlyTheChangedResourcesGetANewETag() {
+		ResourceVersions versions = new ResourceVersions(new SchoolProperties());
+		String students = versions.getETag(Resource.STUDENTS, Resource.ENROLLMENTS);
+		String courses = versions.getETag(Resource.COURSES);
+
+		versions.changed(Resource.STUDENTS);
+
+		Assertions.assertNotEquals(students, versions.getETag(Resource.STUDENTS, Resource.ENROLLMENTS));
+		Assertions.assertEquals(courses, versions.getETag(Resource.COURSES));
+	}
+
+	@Test
+	public void validatorsExpireWithTheCaches() {
+		SchoolProperties properties = new SchoolProperties();
+		properties.getCache().setTimeToLive(Duration.ofMinutes(10));
+		Instant[] now = {Instant.parse("2026-01-01T00:05:00Z")};
+		ResourceVersions versions = new ResourceVersions(properties, new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneOffset.UTC;
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return now[0];
+			}
+		});
+		String etag = versions.getETag(Resource.STUDENTS);
+
+		now[0] = Instant.parse("2026-01-01T00:12:00Z");
+
+		Assertions.assertNotEquals(etag, versions.getETag(Resource.STUDENTS));
+		Assertions.assertEquals(Instant.parse("2026-01-01T00:10:00Z").toEpochMilli(), versions.getLastModified(Resource.STUDENTS));
+	}
+}
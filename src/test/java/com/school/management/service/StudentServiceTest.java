@@ -1,16 +1,47 @@
 package com.school.management.service;
 
+import com.school.management.config.SchoolProperties;
+import com.school.management.model.ChangeRecord.Operation;
+import com.school.management.model.Course;
+import com.school.management.model.Job.Priority;
+import com.school.management.model.Student;
+import com.school.management.model.dto.EnrollmentReportDto;
+import com.school.management.model.dto.ListFilter;
 import com.school.management.model.dto.StudentDto;
+import com.school.management.repository.CourseRepository;
+import com.school.management.repository.StudentCourseRepository;
+import com.school.management.repository.StudentCourseViewRepository;
+import com.school.management.repository.StudentRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +52,45 @@ class StudentServiceTest {
 	@Mock
 	List<StudentDto> studentsDto;
 
+	@Mock
+	StudentRepository studentRepository;
+
+	@Mock
+	CourseRepository courseRepository;
+
+	@Mock
+	StudentCourseRepository studentCourseRepository;
+
+	@Mock
+	StudentCourseViewRepository studentCourseViewRepository;
+
+	@Mock
+	ReadCache readCache;
+
+	@Mock
+	EnrollmentIndex enrollmentIndex;
+
+	@Mock
+	SearchIndex searchIndex;
+
+	@Mock
+	ResourceVersions versions;
+
+	@Mock
+	ChangeFeed changeFeed;
+
+	@Mock
+	PlatformTransactionManager transactionManager;
+
+	@Mock
+	Jobs jobs;
+
+	@Mock
+	ObjectProvider<StudentService> self;
+
+	@Spy
+	SchoolProperties properties = new SchoolProperties();
+
 	@InjectMocks
 	StudentService studentService;
 
@@ -29,7 +99,7 @@ class StudentServiceTest {
 		when(courseIds.size()).thenReturn(6);
 
 		Assertions.assertThrows(ResponseStatusException.class, () ->
-			studentService.updateStudentCourses(1L, courseIds)
+			studentService.updateStudentCourses(1L, courseIds, null)
 		);
 	}
 
@@ -41,4 +111,290 @@ class StudentServiceTest {
 			studentService.createStudents(studentsDto)
 		);
 	}
+
+	@Test
+	public void pageLimitAboveMaximum() {
+		ListFilter filter = new ListFilter(null, properties.getPagination().getMaxLimit() + 1, null, null, null);
+
+		Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.getStudents(filter)
+		);
+	}
+
+	@Test
+	public void unknownField() {
+		ListFilter filter = new ListFilter(null, null, null, null, null);
+		filter.setFields(List.of("name", "password"));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.getStudentFields(filter, false)
+		);
+		Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+		verify(studentRepository, never()).getStudentsPage(anyCollection(), any(), any(), any(), any(), any());
+	}
+
+	@Test
+	public void studentIdsBeyondTheBitmapsAreRejected() {
+		when(courseRepository.getExistingIds(Set.of(10L))).thenReturn(List.of(10L));
+		when(studentCourseRepository.getEnrollmentsByCourses(Set.of(10L))).thenReturn(List.<Object[]>of(new Object[]{10L, 1L << 32}));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.getStudentsByCourseExpression("10", new ListFilter(null, null, null, null, null))
+		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+	}
+
+	@Test
+	public void negationsReadAllTheStudentsOnce() {
+		when(courseRepository.getExistingIds(Set.of(10L, 11L))).thenReturn(List.of(10L, 11L));
+		when(studentCourseRepository.getEnrollmentsByCourses(Set.of(10L, 11L))).thenReturn(List.<Object[]>of(new Object[]{10L, 1L}, new Object[]{11L, 2L}));
+		when(studentRepository.getIds()).thenReturn(List.of(1L, 2L, 3L));
+
+		studentService.getStudentsByCourseExpression("NOT 10 AND NOT 11", new ListFilter(null, null, null, null, null));
+		studentService.getStudentsByCourseExpression("NOT 10 OR NOT 11", new ListFilter(null, null, null, null, null));
+
+		//once per request
+		verify(studentRepository, times(2)).getIds();
+	}
+
+	@Test
+	public void courseNotFound() {
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(new Student(1L)));
+		when(courseRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(course(1L, 0)));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentCourses(1L, List.of(1L, 2L), null)
+		);
+		Assertions.assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+	}
+
+	@Test
+	public void courseWithFiftyStudents() {
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(new Student(1L)));
+		when(courseRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(course(1L, 0), course(2L, 50)));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentCourses(1L, List.of(1L, 2L), null)
+		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+	}
+
+	@Test
+	public void unchangedCoursesAreNotRewritten() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(course(1L, 10), course(2L, 50)));
+		when(studentCourseRepository.getCourseIdsByStudent(student)).thenReturn(List.of(2L, 1L));
+
+		Assertions.assertEquals(2, studentService.updateStudentCourses(1L, List.of(1L, 2L), null).size());
+		verify(studentCourseRepository, never()).deleteStudentCourses(any(), anyCollection());
+		verify(studentCourseRepository, never()).saveAll(any());
+		verify(readCache, never()).evictStudent(any());
+	}
+
+	@Test
+	public void updateIsRecordedInTheChangeFeed() {
+		Student student = new Student(1L);
+		student.setName("A");
+		student.setAddress("a");
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(studentRepository.saveAndFlush(student)).thenReturn(student);
+
+		studentService.updateStudent(new StudentDto(1L, "B", null, null, null), null);
+
+		verify(changeFeed).students(Operation.UPDATED, List.of(1L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void unchangedStudentIsNotRecorded() {
+		Student student = new Student(1L);
+		student.setName("A");
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+
+		studentService.updateStudent(new StudentDto(1L, "A", null, null, null), null);
+
+		verifyNoInteractions(changeFeed);
+	}
+
+	@Test
+	public void enrollmentDiffIsRecordedInTheChangeFeed() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(course(1L, 10), course(2L, 10)));
+		when(studentCourseRepository.getCourseIdsByStudent(student)).thenReturn(List.of(2L, 3L));
+		when(studentCourseRepository.deleteStudentCourses(student, List.of(3L))).thenReturn(1);
+		when(courseRepository.incrementEnrolledCount(List.of(1L))).thenReturn(1);
+
+		studentService.updateStudentCourses(1L, List.of(1L, 2L), null);
+
+		verify(courseRepository).incrementVersion(List.of(1L, 3L));
+		verify(readCache).evictCourse(3L);
+		verify(changeFeed).students(Operation.UPDATED, List.of(1L));
+		verify(changeFeed).studentEnrollments(Operation.CREATED, 1L, List.of(1L));
+		verify(changeFeed).studentEnrollments(Operation.DELETED, 1L, List.of(3L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void rolledBackEnrollmentIsNotRecorded() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L))).thenReturn(List.of(course(1L, 10)));
+		//the seat was taken after the course was read
+		when(courseRepository.incrementEnrolledCount(List.of(1L))).thenReturn(0);
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentCourses(1L, List.of(1L), null)
+		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+		verifyNoInteractions(changeFeed);
+	}
+
+	@Test
+	public void createdStudentsAreRecorded() {
+		when(studentRepository.saveAll(anyList())).thenReturn(List.of(new Student(1L), new Student(2L)));
+
+		studentService.createStudents(List.of(new StudentDto("A", "a"), new StudentDto("B", "b")));
+
+		verify(changeFeed).students(Operation.CREATED, List.of(1L, 2L));
+	}
+
+	@Test
+	public void deleteIsRecordedWithTheEnrollments() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(studentCourseRepository.getCourseIdsByStudent(student)).thenReturn(List.of(2L, 3L));
+
+		studentService.deleteStudent(1L, true);
+
+		verify(changeFeed).studentEnrollments(Operation.DELETED, 1L, List.of(2L, 3L));
+		verify(changeFeed).students(Operation.DELETED, List.of(1L));
+		verifyNoMoreInteractions(changeFeed);
+	}
+
+	@Test
+	public void deleteAllRemovesChunksUntilNoneIsLeft() {
+		properties.getBulkDelete().setChunkSize(2);
+		when(studentRepository.getIds(PageRequest.of(0, 2))).thenReturn(List.of(1L, 2L), List.of());
+		when(studentCourseRepository.getEnrollmentsByStudents(List.of(1L, 2L))).thenReturn(List.of(new Object[]{1L, 10L}, new Object[]{2L, 10L}));
+		Jobs.Progress progress = mock(Jobs.Progress.class);
+
+		deleteAllJob().run(progress);
+
+		verify(studentRepository, times(2)).getIds(PageRequest.of(0, 2));
+		verify(courseRepository).decrementEnrolledCountByStudents(List.of(1L, 2L));
+		verify(studentCourseViewRepository).deleteByStudents(List.of(1L, 2L));
+		verify(studentCourseRepository).deleteByStudents(List.of(1L, 2L));
+		verify(studentRepository).deleteByIds(List.of(1L, 2L));
+		verify(changeFeed).studentEnrollments(Operation.DELETED, 1L, List.of(10L));
+		verify(changeFeed).studentEnrollments(Operation.DELETED, 2L, List.of(10L));
+		verify(changeFeed).students(Operation.DELETED, List.of(1L, 2L));
+		verify(enrollmentIndex).removeStudents(List.of(1L, 2L));
+		verify(searchIndex).removeStudents(List.of(1L, 2L));
+		verify(readCache).evictStudent(1L);
+		verify(readCache).evictStudent(2L);
+		verify(readCache).evictCoursesByStudent(List.of(1L, 2L));
+		verify(readCache).evictStudentsByCourse(Set.of(10L));
+		verify(progress).add(2);
+		verify(progress).add(0);
+	}
+
+	@Test
+	public void deleteAllOfNoStudentsWritesNothing() {
+		when(studentRepository.getIds(any())).thenReturn(List.of());
+
+		deleteAllJob().run(mock(Jobs.Progress.class));
+
+		verify(studentRepository, times(1)).getIds(any());
+		verify(courseRepository, never()).decrementEnrolledCountByStudents(anyList());
+		verify(studentRepository, never()).deleteByIds(anyList());
+		verifyNoInteractions(changeFeed, enrollmentIndex, searchIndex, readCache);
+	}
+
+	@Test
+	public void bulkEnrollmentOfTooManyStudentsIsRejected() {
+		properties.getBulkEnrollment().setMaxStudents(2);
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentsCourses(Map.of(1L, List.of(), 2L, List.of(), 3L, List.of()), Priority.NORMAL)
+		);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+		verify(jobs, never()).submit(any(), any(), any());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void bulkEnrollmentReportsUpToMaxReportedRejects() {
+		properties.getBulkEnrollment().setMaxReportedRejects(1);
+		when(self.getObject()).thenReturn(studentService);
+		ArgumentCaptor<Jobs.Handler<Map<Long, List<Long>>>> handler = ArgumentCaptor.forClass(Jobs.Handler.class);
+		verify(jobs).register(eq("update-student-courses"), any(), handler.capture());
+
+		//none of the students exist
+		EnrollmentReportDto report = (EnrollmentReportDto) handler.getValue().run(Map.of(1L, List.of(), 2L, List.of()), mock(Jobs.Progress.class));
+
+		Assertions.assertEquals(2, report.getRejected());
+		Assertions.assertEquals(1, report.getRejects().size());
+		//through the proxy, as the REST calls
+		verify(self).getObject();
+	}
+
+	private Jobs.Task deleteAllJob() {
+		ArgumentCaptor<Jobs.Task> task = ArgumentCaptor.forClass(Jobs.Task.class);
+		verify(jobs).register(eq("delete-all-students"), task.capture());
+		return task.getValue();
+	}
+
+	@Test
+	public void staleVersionIsRejected() {
+		Student student = new Student(1L);
+		student.setVersion(3L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentCourses(1L, List.of(1L), 2L)
+		);
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+		verify(studentRepository, never()).saveAndFlush(any());
+	}
+
+	@Test
+	public void lostRaceIsRetried() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L))).thenReturn(List.of(course(1L, 10)));
+		when(studentRepository.saveAndFlush(student))
+			.thenThrow(new ObjectOptimisticLockingFailureException(Student.class, 1L))
+			.thenReturn(student);
+		when(courseRepository.incrementEnrolledCount(List.of(1L))).thenReturn(1);
+		when(studentRepository.addToCourseCount(1L, 1, Student.MAX_COURSES)).thenReturn(1);
+
+		Assertions.assertEquals(1, studentService.updateStudentCourses(1L, List.of(1L), null).size());
+		verify(studentRepository, times(2)).findById(1L);
+		//only the attempt that committed
+		verify(changeFeed, times(1)).studentEnrollments(Operation.CREATED, 1L, List.of(1L));
+	}
+
+	@Test
+	public void raceLostOnEveryAttemptIsAConflict() {
+		Student student = new Student(1L);
+		when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+		when(courseRepository.findAllById(List.of(1L))).thenReturn(List.of(course(1L, 10)));
+		when(studentRepository.saveAndFlush(student)).thenThrow(new ObjectOptimisticLockingFailureException(Student.class, 1L));
+
+		ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () ->
+			studentService.updateStudentCourses(1L, List.of(1L), null)
+		);
+		Assertions.assertEquals(HttpStatus.CONFLICT, e.getStatus());
+		verify(studentRepository, times(properties.getOptimisticLocking().getMaxAttempts())).findById(1L);
+		verifyNoInteractions(changeFeed);
+	}
+
+	private static Course course(Long id, int enrolledCount) {
+		Course course = new Course(id);
+		course.setCapacity(50);
+		course.setEnrolledCount(enrolledCount);
+		return course;
+	}
 }
@@ -0,0 +1,60 @@
+package com.school.management.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TextIndexTest {
+
+	TextIndex index;
+
+	@BeforeEach
+	public void setUp() {
+		index = new TextIndex(2);
+		index.put(1, "João da Silva", "Rua Augusta, 10");
+		index.put(2, "Maria Silveira", "Joaquim Street");
+		index.put(3, "Ana Souza", "Silva Jardim Avenue");
+	}
+
+	@Test
+	public void everyWordMustStartAWord() {
+		Assertions.assertArrayEquals(new long[]{1, 2}, index.search("jo sil", 10));
+		Assertions.assertArrayEquals(new long[]{1}, index.search("JOAO", 10));
+		Assertions.assertArrayEquals(new long[]{2}, index.search("mar JOA", 10));
+		Assertions.assertArrayEquals(new long[0], index.search("ilva", 10));
+		Assertions.assertArrayEquals(new long[0], index.search(" , ", 10));
+	}
+
+	@Test
+	public void nameMatchesRankFirst() {
+		Assertions.assertArrayEquals(new long[]{1, 2, 3}, index.search("sil", 10));
+		Assertions.assertArrayEquals(new long[]{1, 2}, index.search("sil", 2));
+		index.put(4, "Augusto Lima", "Elm Street");
+		Assertions.assertArrayEquals(new long[]{4, 1}, index.search("aug", 10));
+	}
+
+	@Test
+	public void changesReplaceThePreviousText() {
+		index.put(1, "Pedro Alves", "Rua Augusta, 10");
+		index.remove(2);
+
+		Assertions.assertArrayEquals(new long[]{3}, index.search("sil", 10));
+		Assertions.assertArrayEquals(new long[]{1}, index.search("pe alv", 10));
+		Assertions.assertEquals(2, index.size());
+
+		index.clear();
+		Assertions.assertArrayEquals(new long[0], index.search("a", 10));
+	}
+
+	@Test
+	public void wordsLongerThanTheIndexedPrefixAreChecked() {
+		index.put(4, "Internationalization", "x");
+		index.put(5, "Internationally", "x");
+
+		Assertions.assertArrayEquals(new long[]{4, 5}, index.search("internationa", 10));
+		Assertions.assertArrayEquals(new long[]{4}, index.search("internationaliz", 10));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> index.put(1L << 32, "x", "y"));
+		//same bound as the enrollment index
+		Assertions.assertThrows(IllegalArgumentException.class, () -> index.put(Integer.MAX_VALUE, "x", "y"));
+	}
+}